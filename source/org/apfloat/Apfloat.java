@@ -29,7 +29,7 @@ import org.apfloat.spi.ApfloatImpl;
  *
  * @see ApfloatMath
  *
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -735,6 +735,30 @@ public class Apfloat
         return new Apfloat(impl);
     }
 
+    /**
+     * Multiplies two apfloats, where the other number has been prepared
+     * in advance for multiplication.
+     *
+     * @param x The number to be multiplied by this number.
+     *
+     * @return <code>this * x</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public Apfloat multiply(TransformedApfloat x)
+        throws ApfloatRuntimeException
+    {
+        Apfloat value = x.getApfloat();
+
+        if (signum() == 0 || value.signum() == 0 || equals(ONE) || value.equals(ONE))
+        {
+            return multiply(value);
+        }
+
+        return x.multiply(this);
+    }
+
     /**
      * Divides two apfloats.
      *
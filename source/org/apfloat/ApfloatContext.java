@@ -56,6 +56,7 @@ import org.apfloat.spi.Util;
  *   <li><code>cacheL1Size</code>, set as in {@link #setCacheL1Size(int)}</li>
  *   <li><code>cacheL2Size</code>, set as in {@link #setCacheL2Size(int)}</li>
  *   <li><code>cacheBurst</code>, set as in {@link #setCacheBurst(int)}</li>
+ *   <li><code>cacheTableSize</code>, set as in {@link #setCacheTableSize(long)}</li>
  *   <li><code>memoryThreshold</code>, set as in {@link #setMemoryThreshold(long)}</li>
  *   <li><code>shredMemoryTreshold</code>, set as in {@link #setSharedMemoryTreshold(long)}</li>
  *   <li><code>blockSize</code>, set as in {@link #setBlockSize(int)}</li>
@@ -66,6 +67,15 @@ import org.apfloat.spi.Util;
  *   <li><code>cleanupAtExit</code>, set as in {@link #setCleanupAtExit(boolean)}</li>
  * </ul>
  *
+ * Additionally, the selection of the convolution algorithm can be tuned for
+ * the current machine with the properties {@link #KARATSUBA_CUTOFF_POINT},
+ * {@link #KARATSUBA_COST_FACTOR}, {@link #TOOM_COOK_3_COST_FACTOR},
+ * {@link #TOOM_COOK_4_COST_FACTOR} and {@link #NTT_COST_FACTOR}. Their names
+ * are prefixed with the element type of the builder factory and a period, e.g.
+ * <code>int.karatsubaCutoffPoint</code>. Suitable values can be measured with
+ * <code>org.apfloat.internal.ConvolutionCalibrator</code>. If they are
+ * not specified, the built-in values of the builder factory are used.<p>
+ *
  * An example <code>apfloat.properties</code> file could contain the following:<p>
  *
  * <pre>
@@ -75,6 +85,7 @@ import org.apfloat.spi.Util;
  * cacheL1Size=8192
  * cacheL2Size=262144
  * cacheBurst=32
+ * cacheTableSize=67108864
  * memoryThreshold=65536
  * sharedMemoryTreshold=65536
  * blockSize=65536
@@ -100,6 +111,13 @@ import org.apfloat.spi.Util;
  * Note that if you do not create a clone of the context, the same context will still
  * be used, since it's passed by reference.<p>
  *
+ * Alternatively, a context can be used for running a task in the current thread with
+ * {@link #runWithContext(ApfloatContext,Runnable)}. The context is then only in effect
+ * while the task is running, and it is also used by the tasks that the parallel
+ * algorithms run in other threads on behalf of the task. This doesn't need any clean-up,
+ * so it is suitable e.g. for using a separate context for each request in a server
+ * that runs lots of short-lived threads.<p>
+ *
  * Typically you may need to set the following properties for each thread:
  * <ul>
  *   <li>{@link #setNumberOfProcessors(int)}: Since the number of physical
@@ -122,9 +140,10 @@ import org.apfloat.spi.Util;
  *       {@link #setMaxMemoryBlockSize(long)} nor {@link #setSharedMemoryLock(Object)}.
  *       This way all threads can access the maximum amount of physical memory
  *       available. The drawback is that the threads will synchronize on the
- *       same memory block, so only one thread can use it at a time. This can
- *       have a major effect on performance, if threads are idle, waiting to acquire
- *       the shared memory lock for most of the time. To work around this, some
+ *       same memory, so large calculations can only run at the same time as long as
+ *       their combined memory requirement fits in the maximum memory block size.
+ *       This can have a major effect on performance, if threads are idle, waiting to
+ *       reserve memory using the shared memory lock for most of the time. To work around this, some
  *       mechanism can be set up for pooling the threads competing for the same
  *       lock, and executing the task using parallel threads from the thread pool.
  *       For example the default apfloat multiplication algorithm uses such a
@@ -157,7 +176,7 @@ import org.apfloat.spi.Util;
  * If these features are added to the Java platform in the future, they
  * may be added to the <code>ApfloatContext</code> API as well.
  *
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -200,6 +219,14 @@ public class ApfloatContext
 
     public static final String CACHE_BURST = "cacheBurst";
 
+    /**
+     * Property name for specifying the maximum size of the cached transform tables.
+     *
+     * @since 1.9.0
+     */
+
+    public static final String CACHE_TABLE_SIZE = "cacheTableSize";
+
     /**
      * Property name for specifying the apfloat memory threshold.
      */
@@ -257,6 +284,51 @@ public class ApfloatContext
 
     public static final String CLEANUP_AT_EXIT = "cleanupAtExit";
 
+    /**
+     * Property name suffix for specifying the Karatsuba convolution cutoff point.
+     * The full property name is prefixed with the element type, e.g. <code>int.karatsubaCutoffPoint</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public static final String KARATSUBA_CUTOFF_POINT = "karatsubaCutoffPoint";
+
+    /**
+     * Property name suffix for specifying the Karatsuba convolution cost factor.
+     * The full property name is prefixed with the element type, e.g. <code>int.karatsubaCostFactor</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public static final String KARATSUBA_COST_FACTOR = "karatsubaCostFactor";
+
+    /**
+     * Property name suffix for specifying the Toom-Cook 3-way convolution cost factor.
+     * The full property name is prefixed with the element type, e.g. <code>int.toomCook3CostFactor</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public static final String TOOM_COOK_3_COST_FACTOR = "toomCook3CostFactor";
+
+    /**
+     * Property name suffix for specifying the Toom-Cook 4-way convolution cost factor.
+     * The full property name is prefixed with the element type, e.g. <code>int.toomCook4CostFactor</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public static final String TOOM_COOK_4_COST_FACTOR = "toomCook4CostFactor";
+
+    /**
+     * Property name suffix for specifying the NTT convolution cost factor.
+     * The full property name is prefixed with the element type, e.g. <code>int.nttCostFactor</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public static final String NTT_COST_FACTOR = "nttCostFactor";
+
     // At system exit, run garbage collection and finalization to clean up temporary files
     private static class CleanupThread
         extends Thread
@@ -301,15 +373,22 @@ public class ApfloatContext
     }
 
     /**
-     * Get the ApfloatContext for the calling thread. If a thread-specific
-     * context has not been specified, the global context is returned.
+     * Get the ApfloatContext for the calling thread. If the thread is running a task
+     * with {@link #runWithContext(ApfloatContext,Runnable)}, that context is returned.
+     * Otherwise, if a thread-specific context has not been specified, the global context
+     * is returned.
      *
      * @return The ApfloatContext for the calling thread.
      */
 
     public static ApfloatContext getContext()
     {
-        ApfloatContext ctx = getThreadContext();
+        ApfloatContext ctx = ApfloatContext.scopedContext.get();
+
+        if (ctx == null)
+        {
+            ctx = getThreadContext();
+        }
 
         if (ctx == null)
         {
@@ -397,6 +476,46 @@ public class ApfloatContext
         ApfloatContext.threadContexts.remove(thread);
     }
 
+    /**
+     * Run a task in the calling thread using the specified ApfloatContext.
+     * While the task is running, {@link #getContext()} returns the specified
+     * context in the calling thread, regardless of the thread-specific context.
+     * The parallel algorithms also use the context for the work that they run
+     * in other threads on behalf of the task. When the task completes, the
+     * previous context of the thread is in effect again.<p>
+     *
+     * Unlike with {@link #setThreadContext(ApfloatContext)}, the thread is not
+     * stored in any shared data structure, so this is cheap also when there are
+     * lots of threads that only run for a short time. Note that the context is
+     * not visible to other threads with {@link #getThreadContext(Thread)}.
+     *
+     * @param ctx The ApfloatContext to use while running the task.
+     * @param runnable The task to run.
+     *
+     * @since 1.9.0
+     */
+
+    public static void runWithContext(ApfloatContext ctx, Runnable runnable)
+    {
+        ApfloatContext previousCtx = ApfloatContext.scopedContext.get();
+        ApfloatContext.scopedContext.set(ctx);
+        try
+        {
+            runnable.run();
+        }
+        finally
+        {
+            if (previousCtx == null)
+            {
+                ApfloatContext.scopedContext.remove();
+            }
+            else
+            {
+                ApfloatContext.scopedContext.set(previousCtx);
+            }
+        }
+    }
+
     /**
      * Removes all thread-specific ApfloatContexts.
      */
@@ -635,6 +754,48 @@ public class ApfloatContext
         this.cacheBurst = cacheBurst;
     }
 
+    /**
+     * Get the maximum size of the cached transform tables.
+     *
+     * @return The maximum size of the cached tables in bytes.
+     *
+     * @see #setCacheTableSize(long)
+     *
+     * @since 1.9.0
+     */
+
+    public long getCacheTableSize()
+    {
+        return this.cacheTableSize;
+    }
+
+    /**
+     * Set the maximum total size of the tables that the transforms cache,
+     * for example the tables of powers of the roots of unity. The tables are
+     * shared by all threads, and when a table is added to the cache, the least
+     * recently used tables are removed until the cache fits in the maximum size.
+     * The cached tables can also be garbage collected when memory is running low.<p>
+     *
+     * As the cache is shared by all threads, only the value set in the global
+     * context is used as the limit. A smaller value takes effect when the next
+     * table is added to the cache.<p>
+     *
+     * If the same transform lengths are used repeatedly, a cache that is large
+     * enough avoids calculating the tables again. Zero disables the caching.
+     * The default value for this setting is 64MB.
+     *
+     * @param cacheTableSize The maximum size of the cached tables in bytes.
+     *
+     * @since 1.9.0
+     */
+
+    public void setCacheTableSize(long cacheTableSize)
+    {
+        cacheTableSize = Math.max(cacheTableSize, 0);
+        this.properties.setProperty(CACHE_TABLE_SIZE, String.valueOf(cacheTableSize));
+        this.cacheTableSize = cacheTableSize;
+    }
+
     /**
      * Get the memory threshold.<p>
      *
@@ -902,6 +1063,30 @@ public class ApfloatContext
         return this.properties.getProperty(propertyName, defaultValue);
     }
 
+    /**
+     * Get the value of a convolution tuning property, for example
+     * <code>int.karatsubaCutoffPoint</code>. The value is parsed when the
+     * property is set, so this method does not need to parse any strings
+     * and is fast enough to be called for every multiplication.
+     *
+     * @param propertyName The name of the property.
+     *
+     * @return The value of the property, or <code>null</code> if the property is not set.
+     *
+     * @see #KARATSUBA_CUTOFF_POINT
+     * @see #KARATSUBA_COST_FACTOR
+     * @see #TOOM_COOK_3_COST_FACTOR
+     * @see #TOOM_COOK_4_COST_FACTOR
+     * @see #NTT_COST_FACTOR
+     *
+     * @since 1.9.0
+     */
+
+    public Number getTuningProperty(String propertyName)
+    {
+        return this.tuningProperties.get(propertyName);
+    }
+
     /**
      * Set the value of a property as string.
      * The name of the property can be any of the constants defined above.
@@ -941,6 +1126,15 @@ public class ApfloatContext
             {
                 setCacheBurst(Integer.parseInt(propertyValue));
             }
+            else if (propertyName.equals(CACHE_TABLE_SIZE))
+            {
+                long cacheTableSize = Long.parseLong(propertyValue);
+                if (cacheTableSize < 0)
+                {
+                    throw new IllegalArgumentException("Cache table size must not be negative");
+                }
+                setCacheTableSize(cacheTableSize);
+            }
             else if (propertyName.equals(MEMORY_TRESHOLD) || propertyName.equals(MEMORY_THRESHOLD))
             {
                 setMemoryThreshold(Long.parseLong(propertyValue));
@@ -979,6 +1173,30 @@ public class ApfloatContext
             {
                 setCleanupAtExit(Boolean.parseBoolean(propertyValue));
             }
+            else if (propertyName.endsWith('.' + KARATSUBA_CUTOFF_POINT))
+            {
+                // Store the parsed value, it is read by the convolution builder for every multiplication
+                int cutoffPoint = Integer.parseInt(propertyValue);
+                if (cutoffPoint < 1)
+                {
+                    throw new IllegalArgumentException("Cutoff point must be positive");
+                }
+                this.tuningProperties.put(propertyName, cutoffPoint);
+                this.properties.setProperty(propertyName, propertyValue);
+            }
+            else if (propertyName.endsWith('.' + KARATSUBA_COST_FACTOR) ||
+                     propertyName.endsWith('.' + TOOM_COOK_3_COST_FACTOR) ||
+                     propertyName.endsWith('.' + TOOM_COOK_4_COST_FACTOR) ||
+                     propertyName.endsWith('.' + NTT_COST_FACTOR))
+            {
+                float costFactor = Float.parseFloat(propertyValue);
+                if (!(costFactor > 0.0f))
+                {
+                    throw new IllegalArgumentException("Cost factor must be positive");
+                }
+                this.tuningProperties.put(propertyName, costFactor);
+                this.properties.setProperty(propertyName, propertyValue);
+            }
             else
             {
                 this.properties.setProperty(propertyName, propertyValue);
@@ -1047,6 +1265,7 @@ public class ApfloatContext
      * @return The ExecutorService.
      *
      * @see #getDefaultExecutorService
+     * @see #getForkJoinExecutorService
      *
      * @since 1.1
      */
@@ -1079,6 +1298,134 @@ public class ApfloatContext
         this.executorService = executorService;
     }
 
+    /**
+     * Cancel the calculations that use this ApfloatContext. The calculations
+     * throw an {@link ApfloatInterruptedException} when they next check if they
+     * have been cancelled, which is done between blocks of work e.g. in the
+     * transforms and the carry propagation. Reading and writing existing numbers
+     * is not affected. The context stays cancelled until {@link #clearCancelled()}
+     * is called; further calculations can also be run with a clone of the context,
+     * which is not cancelled.<p>
+     *
+     * Note that cancelling the global context stops the calculations of all threads
+     * that do not have their own context.
+     *
+     * @see #checkCancelled()
+     *
+     * @since 1.9.0
+     */
+
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    /**
+     * Clear the cancellation of this ApfloatContext, so that it can be used
+     * for new calculations after {@link #cancel()} has been called. Calculations
+     * that were already stopped are not resumed, but calculations that have not
+     * yet checked if they have been cancelled will not be stopped. The deadline
+     * is not changed, it can be removed with {@link #setDeadline(long)}.
+     *
+     * @since 1.9.0
+     */
+
+    public void clearCancelled()
+    {
+        this.cancelled = false;
+    }
+
+    /**
+     * Get if the calculations that use this ApfloatContext should be stopped,
+     * that is, if {@link #cancel()} has been called or the deadline has passed.
+     *
+     * @return If the calculations should be stopped.
+     *
+     * @since 1.9.0
+     */
+
+    public boolean isCancelled()
+    {
+        return (this.cancelled || this.deadline != Long.MAX_VALUE && System.currentTimeMillis() >= this.deadline);
+    }
+
+    /**
+     * Get the deadline of the calculations.
+     *
+     * @return The deadline, in milliseconds as returned by <code>System.currentTimeMillis()</code>.
+     *
+     * @see #setDeadline(long)
+     *
+     * @since 1.9.0
+     */
+
+    public long getDeadline()
+    {
+        return this.deadline;
+    }
+
+    /**
+     * Set the deadline of the calculations that use this ApfloatContext.
+     * After the deadline, the calculations throw an {@link ApfloatInterruptedException}
+     * when they next check if they have been cancelled. The deadline is not copied
+     * to clones of this context. The default is <code>Long.MAX_VALUE</code>, i.e. no deadline.
+     *
+     * @param deadline The deadline, in milliseconds as returned by <code>System.currentTimeMillis()</code>.
+     *
+     * @since 1.9.0
+     */
+
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Check if the calculation running in the current thread should be stopped.
+     *
+     * @exception org.apfloat.ApfloatInterruptedException If the current thread has been interrupted, or this context has been cancelled or its deadline has passed.
+     *
+     * @see #checkCancelled(Thread)
+     *
+     * @since 1.9.0
+     */
+
+    public void checkCancelled()
+        throws ApfloatInterruptedException
+    {
+        checkCancelled(Thread.currentThread());
+    }
+
+    /**
+     * Check if a calculation that was started by the specified thread should be stopped.
+     * This can be used when the work of the calculation is run in other threads, so that
+     * also interrupting the thread that started the calculation stops it. The interrupted
+     * status of the thread is not cleared.
+     *
+     * @param thread The thread that started the calculation.
+     *
+     * @exception org.apfloat.ApfloatInterruptedException If the thread has been interrupted, or this context has been cancelled or its deadline has passed.
+     *
+     * @since 1.9.0
+     */
+
+    public void checkCancelled(Thread thread)
+        throws ApfloatInterruptedException
+    {
+        if (thread.isInterrupted())
+        {
+            throw new ApfloatInterruptedException("Calculation was interrupted");
+        }
+        if (this.cancelled)
+        {
+            throw new ApfloatInterruptedException("Calculation was cancelled");
+        }
+        if (this.deadline != Long.MAX_VALUE && System.currentTimeMillis() >= this.deadline)
+        {
+            throw new ApfloatInterruptedException("Calculation deadline was exceeded");
+        }
+    }
+
     /**
      * Get an arbitrary object as an attribute for this ApfloatContext.
      *
@@ -1207,6 +1554,44 @@ public class ApfloatContext
         return executorService;
     }
 
+    /**
+     * Returns a new instance of a work-stealing ExecutorService.<p>
+     *
+     * The executor service is a <code>ForkJoinPool</code> where the parallelism
+     * is the number of processors set with {@link #setNumberOfProcessors(int)}.
+     * When it is set with {@link #setExecutorService(ExecutorService)}, the
+     * parallel algorithms run their work as fork-join tasks instead of
+     * using the default thread pool. The threads of the pool are daemon threads
+     * so the pool requires no clean-up at shutdown time.<p>
+     *
+     * This can be useful if many calculations are run concurrently, since
+     * threads waiting for other threads to complete execute pending tasks
+     * or block, instead of actively waiting.<p>
+     *
+     * The <code>ForkJoinPool</code> class is only available in Java 7 and later,
+     * so it is loaded dynamically.
+     *
+     * @return A new instance of a fork-join ExecutorService.
+     *
+     * @exception ApfloatConfigurationException If the runtime environment does not support fork-join pools.
+     *
+     * @since 1.9.0
+     */
+
+    public static ExecutorService getForkJoinExecutorService()
+        throws ApfloatConfigurationException
+    {
+        try
+        {
+            Class<?> forkJoinPoolClass = Class.forName("java.util.concurrent.ForkJoinPool");
+            return (ExecutorService) forkJoinPoolClass.getConstructor(Integer.TYPE).newInstance(getContext().getNumberOfProcessors());
+        }
+        catch (Exception e)
+        {
+            throw new ApfloatConfigurationException("Fork-join pool is not available", e);
+        }
+    }
+
     /**
      * Set the values of all properties as strings.
      * The names of the properties can be all of the constants defined above.
@@ -1240,6 +1625,9 @@ public class ApfloatContext
      * if an attribute is mutable and is modified in the clone, the modified
      * value will appear in the original also.<p>
      *
+     * The clone is not cancelled and has no deadline, even if the original
+     * ApfloatContext is cancelled or has a deadline.<p>
+     *
      * @return A mostly shallow copy of this object.
      */
 
@@ -1250,6 +1638,9 @@ public class ApfloatContext
             ApfloatContext ctx = (ApfloatContext) super.clone();    // Copy all attributes by reference
             ctx.properties = (Properties) ctx.properties.clone();   // Create shallow copies
             ctx.attributes = new ConcurrentHashMap<String, Object>(ctx.attributes);
+            ctx.tuningProperties = new ConcurrentHashMap<String, Number>(ctx.tuningProperties);
+            ctx.cancelled = false;                                  // The cancellation and deadline only apply to the calculations of this context
+            ctx.deadline = Long.MAX_VALUE;
 
             return ctx;
         }
@@ -1262,6 +1653,7 @@ public class ApfloatContext
 
     private static ApfloatContext globalContext;
     private static Map<Thread, ApfloatContext> threadContexts = new ConcurrentWeakHashMap<Thread, ApfloatContext>(); // Use a weak hash map to automatically remove completed threads; concurrent to avoid blocking threads
+    private static ThreadLocal<ApfloatContext> scopedContext = new ThreadLocal<ApfloatContext>();  // Contexts of the tasks run with runWithContext, not inherited by new threads
     private static Properties defaultProperties;
     private static ExecutorService defaultExecutorService;
 
@@ -1272,6 +1664,7 @@ public class ApfloatContext
     private volatile int cacheL1Size;
     private volatile int cacheL2Size;
     private volatile int cacheBurst;
+    private volatile long cacheTableSize;
     private volatile long memoryThreshold;
     private volatile long sharedMemoryTreshold;
     private volatile int blockSize;
@@ -1280,7 +1673,10 @@ public class ApfloatContext
     private volatile Properties properties;
     private volatile Object sharedMemoryLock = new Object();
     private volatile ExecutorService executorService = ApfloatContext.defaultExecutorService;
+    private volatile boolean cancelled;
+    private volatile long deadline = Long.MAX_VALUE;
     private volatile ConcurrentHashMap<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+    private volatile ConcurrentHashMap<String, Number> tuningProperties = new ConcurrentHashMap<String, Number>();
 
     static
     {
@@ -1314,6 +1710,7 @@ public class ApfloatContext
         ApfloatContext.defaultProperties.setProperty(CACHE_L1_SIZE, "8192");
         ApfloatContext.defaultProperties.setProperty(CACHE_L2_SIZE, "262144");
         ApfloatContext.defaultProperties.setProperty(CACHE_BURST, "32");
+        ApfloatContext.defaultProperties.setProperty(CACHE_TABLE_SIZE, "67108864");
         ApfloatContext.defaultProperties.setProperty(MEMORY_THRESHOLD, String.valueOf(memoryThreshold));
         ApfloatContext.defaultProperties.setProperty(SHARED_MEMORY_TRESHOLD, String.valueOf(maxMemoryBlockSize / numberOfProcessors / 32));
         ApfloatContext.defaultProperties.setProperty(BLOCK_SIZE, String.valueOf(blockSize));
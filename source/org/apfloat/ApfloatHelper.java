@@ -11,13 +11,14 @@ import java.io.IOException;
 
 import org.apfloat.spi.ApfloatBuilder;
 import org.apfloat.spi.ApfloatImpl;
+import org.apfloat.spi.MiddleProductApfloatImpl;
 import org.apfloat.spi.Util;
 import static org.apfloat.spi.RadixConstants.*;
 
 /**
  * Various utility methods related to apfloats.
  *
- * @version 1.6.2
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -379,7 +380,7 @@ class ApfloatHelper
 
     private static void checkPowPrecision(long targetPrecision)
         throws InfiniteExpansionException
-
+
     {
         if (targetPrecision == Apfloat.INFINITE)
         {
@@ -457,6 +458,30 @@ class ApfloatHelper
         return LONG_PRECISION[radix];
     }
 
+    // Returns x * y - 1, when it's known that |x * y - 1| < radix^-knownPrecision
+    public static Apfloat multiplySubtractOne(Apfloat x, Apfloat y, long knownPrecision)
+        throws ApfloatRuntimeException
+    {
+        if (x.signum() != 0 && y.signum() != 0)
+        {
+            long targetPrecision = Math.min(x.precision(), y.precision());
+
+            ApfloatImpl xImpl = x.getImpl(targetPrecision);
+
+            if (xImpl instanceof MiddleProductApfloatImpl)
+            {
+                ApfloatImpl impl = ((MiddleProductApfloatImpl) xImpl).multiplySubtractOne(y.getImpl(targetPrecision), knownPrecision);
+
+                if (impl != null)
+                {
+                    return new Apfloat(impl);
+                }
+            }
+        }
+
+        return x.multiply(y).subtract(new Apfloat(1, Apfloat.INFINITE, x.radix()));
+    }
+
     // Returns x with precision at most as specified
     public static Apfloat limitPrecision(Apfloat x, long precision)
         throws ApfloatRuntimeException
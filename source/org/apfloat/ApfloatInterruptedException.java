@@ -0,0 +1,52 @@
+package org.apfloat;
+
+/**
+ * Exception indicating that a calculation was stopped before it was completed.<p>
+ *
+ * This exception is thrown if the thread that started the calculation is
+ * interrupted, if the calculation is cancelled with {@link ApfloatContext#cancel()}
+ * or if the deadline set with {@link ApfloatContext#setDeadline(long)} is exceeded.
+ * The calculation checks for these conditions between blocks of work, so the
+ * exception is thrown soon after, but not immediately when the condition occurs.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class ApfloatInterruptedException
+    extends ApfloatRuntimeException
+{
+    /**
+     * Constructs a new apfloat interrupted exception with an empty detail message.
+     */
+
+    public ApfloatInterruptedException()
+    {
+    }
+
+    /**
+     * Constructs a new apfloat interrupted exception with the specified detail message.
+     *
+     * @param message The detail message.
+     */
+
+    public ApfloatInterruptedException(String message)
+    {
+        super(message);
+    }
+
+    /**
+     * Constructs a new apfloat interrupted exception with the specified detail message and cause.
+     *
+     * @param message The detail message.
+     * @param cause Originating cause of the exception.
+     */
+
+    public ApfloatInterruptedException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+
+    private static final long serialVersionUID = 3287414253592374624L;
+}
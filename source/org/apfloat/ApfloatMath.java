@@ -24,7 +24,7 @@ import org.apfloat.spi.Util;
  *
  * @see ApintMath
  *
- * @version 1.8.1
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -290,8 +290,7 @@ public class ApfloatMath
 
         long precision,
              doublePrecision = ApfloatHelper.getDoublePrecision(x.radix());
-        Apfloat one = new Apfloat(1, Apfloat.INFINITE, x.radix()),
-                divisor = new Apfloat(n, Apfloat.INFINITE, x.radix()),
+        Apfloat divisor = new Apfloat(n, Apfloat.INFINITE, x.radix()),
                 result;
 
         if (initialGuess == null || initialPrecision < doublePrecision)
@@ -336,6 +335,9 @@ public class ApfloatMath
 
         x = ApfloatHelper.extendPrecision(x);
 
+        // Number of digits of x * result^n - 1 that are known to be zero, the most significant digits of the product can be skipped
+        long knownPrecision = 0;
+
         // Newton's iteration
         while (iterations-- > 0)
         {
@@ -344,7 +346,7 @@ public class ApfloatMath
 
             Apfloat t = pow(result, n);
             t = lastIterationExtendPrecision(iterations, precisingIteration, t);
-            t = one.subtract(x.multiply(t));
+            t = ApfloatHelper.multiplySubtractOne(x, t, knownPrecision).negate();
             if (iterations < precisingIteration)
             {
                 t = t.precision(precision / 2);
@@ -353,6 +355,9 @@ public class ApfloatMath
             result = lastIterationExtendPrecision(iterations, precisingIteration, result);
             result = result.add(result.multiply(t).divide(divisor));
 
+            // The error after the iteration is approximately the square of the error before it, unless limited by the precision
+            knownPrecision = (t.signum() == 0 ? 0 : Math.min(-2 * t.scale(), result.precision()) - divisor.scale() - Apfloat.EXTRA_PRECISION);
+
             // Precising iteration
             if (iterations == precisingIteration)
             {
@@ -360,7 +365,7 @@ public class ApfloatMath
                 t = lastIterationExtendPrecision(iterations, -1, t);
 
                 result = lastIterationExtendPrecision(iterations, -1, result);
-                result = result.add(result.multiply(one.subtract(x.multiply(t))).divide(divisor));
+                result = result.add(result.multiply(ApfloatHelper.multiplySubtractOne(x, t, knownPrecision).negate()).divide(divisor));
             }
         }
 
@@ -694,6 +699,28 @@ public class ApfloatMath
         return multiplyAddOrSubtract(a, b, c, d, true);
     }
 
+    /**
+     * Multiplies two apfloats, where the second number has been prepared
+     * in advance for multiplication. When the same number is multiplied
+     * by many other numbers, performance can this way be better than by
+     * calculating <code>x.multiply(y.getApfloat())</code> each time.
+     *
+     * @param x The first argument.
+     * @param y The second argument, prepared for multiplication.
+     *
+     * @return <code>x * y</code>.
+     *
+     * @see TransformedApfloat
+     *
+     * @since 1.9.0
+     */
+
+    public static Apfloat multiply(Apfloat x, TransformedApfloat y)
+        throws ApfloatRuntimeException
+    {
+        return x.multiply(y);
+    }
+
     private static Apfloat multiplyAddOrSubtract(Apfloat a, Apfloat b, Apfloat c, Apfloat d, boolean subtract)
         throws ApfloatRuntimeException
     {
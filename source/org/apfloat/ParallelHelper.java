@@ -14,7 +14,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Helper methods for parallel algorithms.
  *
  * @since 1.8.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -109,16 +109,25 @@ class ParallelHelper
         runParallel(runnable, numberOfThreads);
     }
 
-    private static void runParallel(Runnable runnable, int numberOfThreads)
+    private static void runParallel(final Runnable runnable, int numberOfThreads)
     {
-        ApfloatContext ctx = ApfloatContext.getContext();
+        final ApfloatContext ctx = ApfloatContext.getContext();
         ExecutorService executorService = ctx.getExecutorService();
         Future<?>[] futures = new Future[numberOfThreads];
 
+        // Run the Runnable in the other threads with the same context as in the current thread
+        Runnable contextRunnable = new Runnable()
+        {
+            public void run()
+            {
+                ApfloatContext.runWithContext(ctx, runnable);
+            }
+        };
+
         // Dispatch other threads, if any
         for (int i = 0; i < futures.length; i++)
         {
-            futures[i] = executorService.submit(runnable);
+            futures[i] = executorService.submit(contextRunnable);
         }
 
         // Also run the Runnable in the current thread
@@ -133,10 +142,14 @@ class ParallelHelper
             }
             catch (InterruptedException ie)
             {
-                throw new ApfloatRuntimeException("Waiting for dispatched task to complete was interrupted", ie);
+                throw new ApfloatInterruptedException("Waiting for dispatched task to complete was interrupted", ie);
             }
             catch (ExecutionException ee)
             {
+                if (ee.getCause() instanceof ApfloatInterruptedException)
+                {
+                    throw new ApfloatInterruptedException(ee.getCause().getMessage(), ee);
+                }
                 throw new ApfloatRuntimeException("Task execution failed", ee);
             }
         }
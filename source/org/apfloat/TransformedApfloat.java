@@ -0,0 +1,123 @@
+package org.apfloat;
+
+import org.apfloat.spi.ApfloatImpl;
+import org.apfloat.spi.TransformableApfloatImpl;
+import org.apfloat.spi.TransformedOperand;
+
+/**
+ * An apfloat prepared for being multiplied repeatedly by other numbers.<p>
+ *
+ * When the same number is multiplied by many different numbers,
+ * a significant part of the work of each multiplication only
+ * depends on the same number. For example, with a transform-based
+ * multiplication, the number has to be transformed for each
+ * multiplication. This class keeps the number in the transformed form,
+ * so the work only needs to be done once. For example:<p>
+ *
+ * <pre>
+ * TransformedApfloat transformed = new TransformedApfloat(x, 1000000);
+ * for (int i = 0; i &lt; n; i++)
+ * {
+ *     z[i] = y[i].multiply(transformed);
+ * }
+ * </pre>
+ *
+ * The maximum precision of the other numbers that will be multiplied must
+ * be specified when the object is created. If a number has more digits
+ * than that, the multiplication is still done correctly, however
+ * without any benefit from the transformed data.<p>
+ *
+ * The transformed data can take a significant amount of memory, several
+ * times the size of the number itself. The objects of this class are
+ * thread-safe, so the same object can be used in multiple threads
+ * concurrently. The same {@link org.apfloat.spi.BuilderFactory} must
+ * be used for creating the object and for the multiplications.
+ *
+ * @see Apfloat#multiply(TransformedApfloat)
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class TransformedApfloat
+{
+    /**
+     * Constructs a transformed apfloat from the specified apfloat.
+     *
+     * @param x The number to prepare for multiplication.
+     * @param maxPrecision The maximum precision, in digits, of the other numbers that will be multiplied by <code>x</code>.
+     *
+     * @exception java.lang.IllegalArgumentException In case the maximum precision is invalid.
+     */
+
+    public TransformedApfloat(Apfloat x, long maxPrecision)
+        throws IllegalArgumentException, ApfloatRuntimeException
+    {
+        if (maxPrecision <= 0)
+        {
+            throw new IllegalArgumentException("Maximum precision " + maxPrecision + " is not positive");
+        }
+        else if (maxPrecision == Apfloat.INFINITE)
+        {
+            throw new IllegalArgumentException("Maximum precision can't be infinite");
+        }
+
+        this.value = x;
+        this.maxPrecision = maxPrecision;
+
+        // If the implementation can't prepare the data, normal multiplications are used
+        ApfloatImpl impl = x.getImpl(x.precision());
+        this.transformed = (impl instanceof TransformableApfloatImpl ? ((TransformableApfloatImpl) impl).createTransformedOperand(maxPrecision) : null);
+    }
+
+    /**
+     * Returns the number that this object represents.
+     *
+     * @return The number that was used to create this object.
+     */
+
+    public Apfloat getApfloat()
+    {
+        return this.value;
+    }
+
+    /**
+     * Returns the maximum precision of the other numbers that can be
+     * efficiently multiplied by this number.
+     *
+     * @return The maximum precision, in digits.
+     */
+
+    public long getMaxPrecision()
+    {
+        return this.maxPrecision;
+    }
+
+    /**
+     * Multiplies an apfloat by this number.
+     *
+     * @param x The other operand.
+     *
+     * @return <code>this * x</code>.
+     */
+
+    Apfloat multiply(Apfloat x)
+        throws ApfloatRuntimeException
+    {
+        long targetPrecision = Math.min(this.value.precision(),
+                                        x.precision());
+
+        ApfloatImpl thisImpl = this.value.getImpl(targetPrecision),
+                    xImpl = x.getImpl(targetPrecision),
+                    impl = (this.transformed != null && thisImpl instanceof TransformableApfloatImpl ?
+                            ((TransformableApfloatImpl) thisImpl).multiply(xImpl, this.transformed) :
+                            thisImpl.multiply(xImpl));
+
+        return new Apfloat(impl);
+    }
+
+    private Apfloat value;
+    private long maxPrecision;
+    private TransformedOperand transformed;
+}
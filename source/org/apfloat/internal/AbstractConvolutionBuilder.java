@@ -1,18 +1,22 @@
 package org.apfloat.internal;
 
 import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.ConvolutionBuilder;
 import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.DataStorage;
 import org.apfloat.spi.NTTBuilder;
 import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.TransformedOperand;
+import org.apfloat.spi.TransformedOperandBuilder;
 import org.apfloat.spi.Util;
 
 /**
  * Abstract base class for creating convolutions of suitable type for the specified length.<p>
  *
  * Based on a work estimate, depending on the operand sizes and implementation-dependent
- * factors, the O(n<sup>2</sup>) long multiplication, Karatsuba multiplication and
- * the NTT algorithms are chosen e.g. as follows:<p>
+ * factors, the O(n<sup>2</sup>) long multiplication, Karatsuba multiplication,
+ * Toom-Cook multiplication and the NTT algorithms are chosen e.g. as follows:<p>
  *
  * <table border="1">
  * <tr><th>size1</th><th>size2</th><th>Algorithm</th></tr>
@@ -32,14 +36,133 @@ import org.apfloat.spi.Util;
  * <tr><td>512</td><td>4294967296</td><td>NTT</td></tr>
  * </table>
  *
+ * The Toom-Cook 3-way and 4-way algorithms have a lower complexity than the Karatsuba
+ * algorithm but a larger overhead. They are typically used for sizes where the NTT is
+ * relatively expensive, e.g. for the floating-point element types, or when one operand
+ * is much longer than the other.<p>
+ *
+ * If the result is longer than the maximum transform length, the data is split
+ * to blocks and the NTT convolution is done separately for each pair of blocks.<p>
+ *
+ * If the data sets are short enough compared to the size of the moduli,
+ * the NTT convolution is done with only two moduli instead of three.<p>
+ *
+ * Operands that are convolved repeatedly can be prepared with
+ * {@link #createTransformedOperand(int,DataStorage,long)}. If a
+ * transform-based convolution would be used, the operand is
+ * kept in the transformed form, so only the transforms of the
+ * other data set and the inverse transforms need to be performed
+ * for each convolution.<p>
+ *
+ * The Karatsuba cutoff point and the cost factors of the work estimate
+ * can be overridden with the corresponding properties of the {@link ApfloatContext},
+ * e.g. {@link ApfloatContext#KARATSUBA_COST_FACTOR}, prefixed with the element
+ * type of the builder factory, e.g. <code>int.karatsubaCostFactor</code>.
+ * The properties can be measured for the current machine with the
+ * {@link ConvolutionCalibrator}.
+ *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public abstract class AbstractConvolutionBuilder
-    implements ConvolutionBuilder
+    implements ConvolutionBuilder, TransformedOperandBuilder
 {
+    // Transformed operand that doesn't transform anything, just performs a normal convolution each time
+    private class SimpleTransformedOperand
+        implements TransformedOperand
+    {
+        public SimpleTransformedOperand(int radix, DataStorage y, long maxSize)
+        {
+            this.radix = radix;
+            this.y = y;
+            this.maxSize = maxSize;
+        }
+
+        public DataStorage convolute(DataStorage x, long resultSize)
+            throws ApfloatRuntimeException
+        {
+            ConvolutionStrategy convolutionStrategy = createConvolution(this.radix, x.getSize(), this.y.getSize(), resultSize);
+            return convolutionStrategy.convolute(x, this.y, resultSize);
+        }
+
+        public long getSize()
+        {
+            return this.y.getSize();
+        }
+
+        public long getMaxSize()
+        {
+            return this.maxSize;
+        }
+
+        private int radix;
+        private DataStorage y;
+        private long maxSize;
+    }
+
+    // Transformed operand that keeps the NTTs of the data for each modulus
+    private class NTTTransformedOperand
+        implements TransformedOperand
+    {
+        public NTTTransformedOperand(int radix, DataStorage y, long maxSize, ThreeNTTConvolutionStrategy convolutionStrategy)
+            throws ApfloatRuntimeException
+        {
+            this.radix = radix;
+            this.y = y;
+            this.maxSize = maxSize;
+
+            // Only the type of the NTT strategy is stored, as the strategies are not thread-safe
+            NTTStrategy nttStrategy = convolutionStrategy.getNTTStrategy();
+            this.nttStrategyClass = nttStrategy.getClass();
+            this.length = nttStrategy.getTransformLength(y.getSize() + maxSize);
+            this.transformed = convolutionStrategy.transform(y, this.length);
+        }
+
+        public DataStorage convolute(DataStorage x, long resultSize)
+            throws ApfloatRuntimeException
+        {
+            assert (x.getSize() <= this.maxSize);
+
+            ConvolutionStrategy convolutionStrategy = createConvolution(this.radix, x.getSize(), this.y.getSize(), resultSize);
+            if (!(convolutionStrategy instanceof ThreeNTTConvolutionStrategy))
+            {
+                // The other data set is so short that a transform is not worth it
+                return convolutionStrategy.convolute(x, this.y, resultSize);
+            }
+
+            // A new NTT strategy and convolution strategy are needed for each convolution since the strategies are not thread-safe
+            NTTStrategy nttStrategy = ApfloatContext.getContext().getBuilderFactory().getNTTBuilder().createNTT(this.length);
+            if (nttStrategy.getClass() != this.nttStrategyClass)
+            {
+                // The transformed data is in the order of a different type of transform, e.g. the current context has different memory settings
+                return convolutionStrategy.convolute(x, this.y, resultSize);
+            }
+            ThreeNTTConvolutionStrategy nttConvolutionStrategy = (ThreeNTTConvolutionStrategy) (this.transformed.length == 2 ?
+                                                                                                createTwoNTTConvolutionStrategy(this.radix, nttStrategy) :
+                                                                                                createThreeNTTConvolutionStrategy(this.radix, nttStrategy));
+            return nttConvolutionStrategy.convolute(x, this.transformed, this.length, resultSize);
+        }
+
+        public long getSize()
+        {
+            return this.y.getSize();
+        }
+
+        public long getMaxSize()
+        {
+            return this.maxSize;
+        }
+
+        private int radix;
+        private DataStorage y;
+        private long maxSize;
+        private Class<?> nttStrategyClass;
+        private long length;
+        private DataStorage[] transformed;
+    }
+
     /**
      * Subclass constructor.
      */
@@ -58,39 +181,86 @@ public abstract class AbstractConvolutionBuilder
         {
             return createShortConvolutionStrategy(radix);
         }
-        else if (minSize <= getKaratsubaCutoffPoint())
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        String[] propertyNames = getPropertyNames(ctx);
+        int karatsubaCutoffPoint = getProperty(ctx, propertyNames[0], getKaratsubaCutoffPoint());
+
+        if (minSize <= karatsubaCutoffPoint)
         {
             return createMediumConvolutionStrategy(radix);
         }
         else
         {
+            boolean useTwoNTT = (minSize <= getTwoNTTMaxSize(radix));
+
             float mediumCost = (float) minSize * maxSize,
-                  karatsubaCost = getKaratsubaCostFactor() * (float) Math.pow((double) minSize, LOG2_3) * maxSize / minSize,
-                  nttCost = getNTTCostFactor() * totalSize * Util.log2down(totalSize);
+                  karatsubaCost = getProperty(ctx, propertyNames[1], getKaratsubaCostFactor()) * (float) Math.pow((double) minSize, LOG2_3) * maxSize / minSize,
+                  toomCook3Cost = getProperty(ctx, propertyNames[2], getToomCook3CostFactor()) * (float) Math.pow((double) minSize, LOG3_5) * maxSize / minSize,
+                  toomCook4Cost = getProperty(ctx, propertyNames[3], getToomCook4CostFactor()) * (float) Math.pow((double) minSize, LOG4_7) * maxSize / minSize,
+                  toomCookCost = Math.min(toomCook3Cost, toomCook4Cost),
+                  nttCost = getProperty(ctx, propertyNames[4], getNTTCostFactor()) * totalSize * Util.log2down(totalSize) * (useTwoNTT ? 2.0f / 3.0f : 1.0f),
+                  fftCost = getFFTCost(radix, size1, size2);
+
+            // The floating-point convolution is only used if it is cheaper and actually available
+            ConvolutionStrategy fftConvolutionStrategy = (fftCost < nttCost ? createFFTConvolutionStrategy(radix) : null);
+            float transformCost = (fftConvolutionStrategy == null ? nttCost : fftCost);
 
-            if (mediumCost <= Math.min(karatsubaCost, nttCost))
+            if (mediumCost <= Math.min(Math.min(karatsubaCost, toomCookCost), transformCost))
             {
                 return createMediumConvolutionStrategy(radix);
             }
-            else if (karatsubaCost <= nttCost)
+            else if (karatsubaCost <= Math.min(toomCookCost, transformCost))
             {
-                return createKaratsubaConvolutionStrategy(radix);
+                return createKaratsubaConvolutionStrategy(radix, karatsubaCutoffPoint);
+            }
+            else if (toomCookCost <= transformCost)
+            {
+                return (toomCook3Cost <= toomCook4Cost ? createToomCook3ConvolutionStrategy(radix, karatsubaCutoffPoint) : createToomCook4ConvolutionStrategy(radix, karatsubaCutoffPoint));
+            }
+            else if (fftConvolutionStrategy != null)
+            {
+                return fftConvolutionStrategy;
             }
             else
             {
-                ApfloatContext ctx = ApfloatContext.getContext();
                 NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+                long maxTransformLength = nttBuilder.createNTTSteps().getMaxTransformLength();
+
+                if (totalSize > maxTransformLength)
+                {
+                    // The result won't fit in one transform, so split the data to blocks
+                    return createBlockConvolutionStrategy(radix, maxTransformLength);
+                }
+
                 NTTStrategy nttStrategy = nttBuilder.createNTT(totalSize);
 
-                return createThreeNTTConvolutionStrategy(radix, nttStrategy);
+                return (useTwoNTT ? createTwoNTTConvolutionStrategy(radix, nttStrategy) : createThreeNTTConvolutionStrategy(radix, nttStrategy));
             }
         }
     }
 
+    public TransformedOperand createTransformedOperand(int radix, DataStorage y, long maxSize)
+        throws ApfloatRuntimeException
+    {
+        long size = y.getSize();
+        ConvolutionStrategy convolutionStrategy = createConvolution(radix, size, maxSize, size + maxSize);
+
+        if (convolutionStrategy instanceof ThreeNTTConvolutionStrategy)
+        {
+            return new NTTTransformedOperand(radix, y, maxSize, (ThreeNTTConvolutionStrategy) convolutionStrategy);
+        }
+        else
+        {
+            return new SimpleTransformedOperand(radix, y, maxSize);
+        }
+    }
+
     /**
-     * Get the Karatsuba convolution cutoff point.
+     * Get the default Karatsuba convolution cutoff point.
      * When either operand is shorter than this then the
      * medium-length convolution strategy should be used instead.
+     * It can be overridden with the {@link ApfloatContext#KARATSUBA_CUTOFF_POINT} property.
      *
      * @return The Karatsuba convolution cutoff point.
      *
@@ -100,9 +270,10 @@ public abstract class AbstractConvolutionBuilder
     protected abstract int getKaratsubaCutoffPoint();
 
     /**
-     * Get the Karatsuba convolution cost factor.
+     * Get the default Karatsuba convolution cost factor.
      * It is used in determining the most efficient
      * convolution strategy for the given data lengths.
+     * It can be overridden with the {@link ApfloatContext#KARATSUBA_COST_FACTOR} property.
      *
      * @return The Karatsuba convolution cost factor.
      *
@@ -112,9 +283,36 @@ public abstract class AbstractConvolutionBuilder
     protected abstract float getKaratsubaCostFactor();
 
     /**
-     * Get the NTT convolution cost factor.
+     * Get the default Toom-Cook 3-way convolution cost factor.
      * It is used in determining the most efficient
      * convolution strategy for the given data lengths.
+     * It can be overridden with the {@link ApfloatContext#TOOM_COOK_3_COST_FACTOR} property.
+     *
+     * @return The Toom-Cook 3-way convolution cost factor.
+     *
+     * @since 1.9.0
+     */
+
+    protected abstract float getToomCook3CostFactor();
+
+    /**
+     * Get the default Toom-Cook 4-way convolution cost factor.
+     * It is used in determining the most efficient
+     * convolution strategy for the given data lengths.
+     * It can be overridden with the {@link ApfloatContext#TOOM_COOK_4_COST_FACTOR} property.
+     *
+     * @return The Toom-Cook 4-way convolution cost factor.
+     *
+     * @since 1.9.0
+     */
+
+    protected abstract float getToomCook4CostFactor();
+
+    /**
+     * Get the default NTT convolution cost factor.
+     * It is used in determining the most efficient
+     * convolution strategy for the given data lengths.
+     * It can be overridden with the {@link ApfloatContext#NTT_COST_FACTOR} property.
      *
      * @return The NTT convolution cost factor.
      *
@@ -161,6 +359,88 @@ public abstract class AbstractConvolutionBuilder
 
     protected abstract ConvolutionStrategy createKaratsubaConvolutionStrategy(int radix);
 
+    /**
+     * Create a Karatsuba convolution strategy that uses the specified
+     * cutoff point in its recursion. The default implementation ignores
+     * the cutoff point and calls {@link #createKaratsubaConvolutionStrategy(int)}.
+     *
+     * @param radix The radix that will be used.
+     * @param cutoffPoint The Karatsuba convolution cutoff point.
+     *
+     * @return A new Karatsuba convolution strategy.
+     *
+     * @since 1.9.0
+     */
+
+    protected ConvolutionStrategy createKaratsubaConvolutionStrategy(int radix, int cutoffPoint)
+    {
+        return createKaratsubaConvolutionStrategy(radix);
+    }
+
+    /**
+     * Create a Toom-Cook 3-way convolution strategy.
+     *
+     * @param radix The radix that will be used.
+     * @param karatsubaCutoffPoint The Karatsuba convolution cutoff point used in the recursion.
+     *
+     * @return A new Toom-Cook 3-way convolution strategy.
+     *
+     * @since 1.9.0
+     */
+
+    protected abstract ConvolutionStrategy createToomCook3ConvolutionStrategy(int radix, int karatsubaCutoffPoint);
+
+    /**
+     * Create a Toom-Cook 4-way convolution strategy.
+     *
+     * @param radix The radix that will be used.
+     * @param karatsubaCutoffPoint The Karatsuba convolution cutoff point used in the recursion.
+     *
+     * @return A new Toom-Cook 4-way convolution strategy.
+     *
+     * @since 1.9.0
+     */
+
+    protected abstract ConvolutionStrategy createToomCook4ConvolutionStrategy(int radix, int karatsubaCutoffPoint);
+
+    /**
+     * Get the estimated cost of a floating-point Fast Fourier Transform
+     * convolution of data of the specified sizes, in the same units as the
+     * costs of the other convolution strategies. By default a floating-point
+     * convolution is not available.
+     *
+     * @param radix The radix that will be used.
+     * @param size1 Size of the first data set.
+     * @param size2 Size of the second data set.
+     *
+     * @return The cost of the FFT convolution, or <code>Float.POSITIVE_INFINITY</code> if it can't be used.
+     *
+     * @since 1.9.0
+     */
+
+    protected float getFFTCost(int radix, long size1, long size2)
+    {
+        return Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Create a floating-point Fast Fourier Transform convolution strategy.
+     * This is only called if {@link #getFFTCost(int,long,long)} returns a cost that
+     * is lower than the cost of the number-theoretic transform convolution.
+     * By default a floating-point convolution is not available.
+     *
+     * @param radix The radix to be used.
+     *
+     * @return A new FFT convolution strategy, or <code>null</code> if it is not available.
+     *
+     * @since 1.9.0
+     */
+
+    protected ConvolutionStrategy createFFTConvolutionStrategy(int radix)
+    {
+        return null;
+    }
+
     /**
      * Create a 3-NTT convolution strategy.
      *
@@ -174,5 +454,84 @@ public abstract class AbstractConvolutionBuilder
 
     protected abstract ConvolutionStrategy createThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy);
 
-    private static final double LOG2_3 = Math.log(3.0) / Math.log(2.0);
+    /**
+     * Create a block convolution strategy, for data that is too long
+     * for the maximum transform length.
+     *
+     * @param radix The radix that will be used.
+     * @param maxTransformLength The maximum transform length that is supported.
+     *
+     * @return A new block convolution strategy.
+     *
+     * @since 1.9.0
+     */
+
+    protected ConvolutionStrategy createBlockConvolutionStrategy(int radix, long maxTransformLength)
+    {
+        return new BlockConvolutionStrategy(radix, maxTransformLength);
+    }
+
+    /**
+     * Get the maximum size of the shorter data set for which a
+     * convolution can be calculated using only two moduli.
+     * The elements of the result of the convolution must be less than the
+     * product of the two first moduli, which depends on the base of the radix.
+     *
+     * @param radix The radix that will be used.
+     *
+     * @return The maximum size of the shorter data set for a 2-NTT convolution.
+     *
+     * @since 1.9.0
+     */
+
+    protected abstract long getTwoNTTMaxSize(int radix);
+
+    /**
+     * Create a 2-NTT convolution strategy.
+     *
+     * @param radix The radix that will be used.
+     * @param nttStrategy The underlying NTT strategy.
+     *
+     * @return A new 2-NTT convolution strategy.
+     *
+     * @since 1.9.0
+     */
+
+    protected abstract ConvolutionStrategy createTwoNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy);
+
+    // Names of the tuning properties for the element type of the builder factory, in the order cutoff point, Karatsuba, Toom-Cook 3-way, Toom-Cook 4-way and NTT
+    private String[] getPropertyNames(ApfloatContext ctx)
+    {
+        String[] propertyNames = this.propertyNames;
+        if (propertyNames == null)
+        {
+            String prefix = ctx.getBuilderFactory().getElementType().getName() + '.';
+            propertyNames = new String[] { prefix + ApfloatContext.KARATSUBA_CUTOFF_POINT,
+                                           prefix + ApfloatContext.KARATSUBA_COST_FACTOR,
+                                           prefix + ApfloatContext.TOOM_COOK_3_COST_FACTOR,
+                                           prefix + ApfloatContext.TOOM_COOK_4_COST_FACTOR,
+                                           prefix + ApfloatContext.NTT_COST_FACTOR };
+            this.propertyNames = propertyNames;
+        }
+        return propertyNames;
+    }
+
+    // The values are parsed by the context already when the properties are set
+    private static int getProperty(ApfloatContext ctx, String propertyName, int defaultValue)
+    {
+        Number value = ctx.getTuningProperty(propertyName);
+        return (value == null ? defaultValue : value.intValue());
+    }
+
+    private static float getProperty(ApfloatContext ctx, String propertyName, float defaultValue)
+    {
+        Number value = ctx.getTuningProperty(propertyName);
+        return (value == null ? defaultValue : value.floatValue());
+    }
+
+    private volatile String[] propertyNames;
+
+    private static final double LOG2_3 = Math.log(3.0) / Math.log(2.0),
+                                LOG3_5 = Math.log(5.0) / Math.log(3.0),
+                                LOG4_7 = Math.log(7.0) / Math.log(4.0);
 }
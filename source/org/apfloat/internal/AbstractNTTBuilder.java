@@ -2,6 +2,7 @@ package org.apfloat.internal;
 
 import org.apfloat.ApfloatContext;
 import org.apfloat.spi.BuilderFactory;
+import org.apfloat.spi.Factor5NTTStepStrategy;
 import org.apfloat.spi.NTTBuilder;
 import org.apfloat.spi.NTTStrategy;
 import org.apfloat.spi.Util;
@@ -11,7 +12,7 @@ import org.apfloat.spi.Util;
  * specified length, based on available memory configured in the {@link ApfloatContext}.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -34,15 +35,13 @@ public abstract class AbstractNTTBuilder
         long maxMemoryBlockSize = ctx.getMaxMemoryBlockSize() / builderFactory.getElementSize();
 
         NTTStrategy nttStrategy;
-        boolean useFactor3 = false;
 
-        size = Util.round23up(size);        // Round up to the nearest power of two or three times a power of two
-        long power2size = (size & -size);   // Power-of-two factor of the above
-        if (size != power2size)
-        {
-            // A factor of three will be used, so the power-of-two part is one third of the whole transform length
-            useFactor3 = true;
-        }
+        Factor5NTTStepStrategy factor5StepStrategy = createFactor5NTTSteps();
+        boolean isFactor5 = (factor5StepStrategy != null);
+
+        // Round up to the nearest power of two or three times a power of two, and if the moduli support it, also five or fifteen times a power of two
+        size = (isFactor5 ? Factor5NTTStrategy.getTransformLength(size, factor5StepStrategy.getMaxTransformLength()) : Util.round23up(size));
+        long power2size = (size & -size);   // Power-of-two factor of the above; if a factor of three or five will be used, the power-of-two part is a fraction of the whole transform length
 
         // Select transform for the power-of-two part
         if (power2size <= cacheSize / 2)
@@ -61,10 +60,14 @@ public abstract class AbstractNTTBuilder
             nttStrategy = createTwoPassFNTStrategy();
         }
 
-        if (useFactor3)
+        // Allow using a factor of three in any of the above selected transforms, also when
+        // the convolution uses a shorter transform than the specified size e.g. for a short product
+        nttStrategy = createFactor3NTTStrategy(nttStrategy);
+
+        // Allow using also a factor of five, if the moduli support it
+        if (isFactor5)
         {
-            // Allow using a factor of three in any of the above selected transforms
-            nttStrategy = createFactor3NTTStrategy(nttStrategy);
+            nttStrategy = createFactor5NTTStrategy(nttStrategy);
         }
 
         return nttStrategy;
@@ -103,4 +106,23 @@ public abstract class AbstractNTTBuilder
      */
 
     protected abstract NTTStrategy createFactor3NTTStrategy(NTTStrategy nttStrategy);
+
+    /**
+     * Create a factor-5 NTT strategy on top of another NTT strategy.
+     * This is only called if {@link #createFactor5NTTSteps()} does
+     * not return <code>null</code>.<p>
+     *
+     * The default implementation returns a {@link Factor5NTTStrategy}.
+     *
+     * @param nttStrategy The underlying factor-3 NTT strategy.
+     *
+     * @return A new factor-5 NTT strategy.
+     *
+     * @since 1.9.0
+     */
+
+    protected NTTStrategy createFactor5NTTStrategy(NTTStrategy nttStrategy)
+    {
+        return new Factor5NTTStrategy(nttStrategy);
+    }
 }
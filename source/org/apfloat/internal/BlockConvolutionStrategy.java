@@ -0,0 +1,163 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.AdditionStrategy;
+import org.apfloat.spi.BuilderFactory;
+import org.apfloat.spi.ConvolutionBuilder;
+import org.apfloat.spi.MiddleProductConvolutionStrategy;
+import org.apfloat.spi.DataStorageBuilder;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.TransformedOperand;
+import org.apfloat.spi.TransformedOperandBuilder;
+
+/**
+ * Convolution strategy for data sets that are too long to be convolved
+ * with one transform. The number of elements in the result of a
+ * transform-based convolution is limited by the maximum transform
+ * length that the moduli of the transform support.<p>
+ *
+ * The data sets are split to blocks that are short enough, so that the
+ * convolution of any two blocks fits in the maximum transform length.
+ * The convolution of each pair of blocks is calculated separately and the
+ * results are added together at the appropriate positions. Each block
+ * of the shorter data set is transformed only once, and then
+ * convolved with all the blocks of the longer data set.<p>
+ *
+ * If the shorter data set fits in one block, the work is roughly
+ * proportional to the work of the convolution with a long enough transform.
+ * If both data sets have to be split, the work grows quadratically
+ * in the number of blocks.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @see TransformedOperandBuilder#createTransformedOperand(int,DataStorage,long)
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class BlockConvolutionStrategy
+    implements MiddleProductConvolutionStrategy
+{
+    /**
+     * Creates a new convoluter that splits the data to blocks
+     * to fit in the specified maximum transform length.
+     *
+     * @param radix The radix to be used.
+     * @param maxTransformLength The maximum length of the convolution of any two blocks.
+     */
+
+    public BlockConvolutionStrategy(int radix, long maxTransformLength)
+    {
+        this.radix = radix;
+        this.maxTransformLength = maxTransformLength;
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        Class<?> elementType = builderFactory.getElementType();
+
+        return doConvolute(elementType, x, y, resultSize);
+    }
+
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        // No benefit from skipping the most significant part
+        return convolute(x, y, resultSize);
+    }
+
+    private <T> DataStorage doConvolute(Class<T> elementType, DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        DataStorage shortStorage, longStorage;
+
+        if (x.getSize() > y.getSize())
+        {
+            shortStorage = y;
+            longStorage = x;
+        }
+        else
+        {
+            shortStorage = x;
+            longStorage = y;
+        }
+
+        long shortSize = shortStorage.getSize(),
+             longSize = longStorage.getSize(),
+             size = shortSize + longSize,
+             shortBlocks = (shortSize + this.maxTransformLength / 2 - 1) / (this.maxTransformLength / 2),
+             shortBlockSize = (shortSize + shortBlocks - 1) / shortBlocks,
+             longBlockSize = this.maxTransformLength - shortBlockSize;
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        DataStorageBuilder dataStorageBuilder = builderFactory.getDataStorageBuilder();
+        ConvolutionBuilder convolutionBuilder = builderFactory.getConvolutionBuilder();
+        AdditionStrategy<T> additionStrategy = builderFactory.getAdditionBuilder(elementType).createAddition(this.radix);
+
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * builderFactory.getElementSize());
+        resultStorage.setSize(size);
+
+        // Clear the result data
+        DataStorage.Iterator dst = resultStorage.iterator(DataStorage.WRITE, size, 0);
+        additionStrategy.add(null, null, additionStrategy.zero(), dst, size);
+
+        // The blocks are processed starting from the least significant one
+        for (long shortOffset = 0; shortOffset < shortSize; shortOffset += shortBlockSize)
+        {
+            long shortLength = Math.min(shortBlockSize, shortSize - shortOffset);
+            DataStorage shortBlock = shortStorage.subsequence(shortSize - shortOffset - shortLength, shortLength);
+
+            TransformedOperand transformed = (convolutionBuilder instanceof TransformedOperandBuilder ?
+                                              ((TransformedOperandBuilder) convolutionBuilder).createTransformedOperand(this.radix, shortBlock, longBlockSize) :
+                                              null);
+
+            for (long longOffset = 0; longOffset < longSize; longOffset += longBlockSize)
+            {
+                long longLength = Math.min(longBlockSize, longSize - longOffset);
+                DataStorage longBlock = longStorage.subsequence(longSize - longOffset - longLength, longLength);
+
+                DataStorage blockResult = (transformed != null ?
+                                           transformed.convolute(longBlock, shortLength + longLength) :
+                                           convolutionBuilder.createConvolution(this.radix, shortLength, longLength, shortLength + longLength).convolute(shortBlock, longBlock, shortLength + longLength));
+
+                add(additionStrategy, resultStorage, blockResult, shortOffset + longOffset);
+            }
+        }
+
+        return (resultSize < size ? resultStorage.subsequence(0, resultSize) : resultStorage);
+    }
+
+    // Add the block result to the result data, at the specified offset from the least significant end
+    private static <T> void add(AdditionStrategy<T> additionStrategy, DataStorage resultStorage, DataStorage blockResult, long offset)
+        throws ApfloatRuntimeException
+    {
+        long size = resultStorage.getSize(),
+             blockSize = blockResult.getSize();
+
+        DataStorage.Iterator src = blockResult.iterator(DataStorage.READ, blockSize, 0),
+                             dst = resultStorage.iterator(DataStorage.READ_WRITE, size - offset, 0);
+
+        T zero = additionStrategy.zero(),
+          carry = additionStrategy.add(dst, src, zero, dst, blockSize);
+
+        // Propagate the carry only as far as needed
+        for (long i = size - offset - blockSize; i > 0 && !carry.equals(zero); i--)
+        {
+            carry = additionStrategy.add(dst, null, carry, dst, 1);
+        }
+
+        assert (carry.equals(zero));
+
+        dst.close();                                                    // Iterator likely was not iterated to end
+    }
+
+    private int radix;
+    private long maxTransformLength;
+}
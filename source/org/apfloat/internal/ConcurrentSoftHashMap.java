@@ -17,10 +17,13 @@ import java.util.concurrent.ConcurrentHashMap;
  * <code>putIfAbsent()</code>.<p>
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
+ *
+ * @deprecated The transform tables are cached in {@link TableCache}, which limits the total size of the tables.
  */
 
+@Deprecated
 class ConcurrentSoftHashMap<K, V>
     extends AbstractMap<K, V>
     implements ConcurrentMap<K, V>
@@ -0,0 +1,318 @@
+package org.apfloat.internal;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.BuilderFactory;
+import org.apfloat.spi.ConvolutionBuilder;
+import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.DataStorageBuilder;
+import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.Util;
+
+/**
+ * Measures the Karatsuba cutoff point and the convolution cost factors
+ * for the current machine.<p>
+ *
+ * The medium-length, Karatsuba, Toom-Cook and NTT convolution strategies
+ * of a builder factory are timed for a few data lengths. The Karatsuba
+ * cutoff point is the length below which the medium-length convolution is
+ * faster than the Karatsuba convolution. The cost factors are the times
+ * relative to the work estimates that {@link AbstractConvolutionBuilder}
+ * uses, with the time of the medium-length convolution as the unit.
+ * All the convolutions are measured using only one thread.<p>
+ *
+ * The results are returned as {@link ApfloatContext} properties, that can
+ * be set to a context with {@link ApfloatContext#setProperties(Properties)}.
+ * When run from the command line, the properties are printed in the format
+ * of the <code>apfloat.properties</code> file, for example:<p>
+ *
+ * <pre>
+ * java org.apfloat.internal.ConvolutionCalibrator org.apfloat.internal.LongBuilderFactory &gt;&gt; apfloat.properties
+ * </pre>
+ *
+ * If no builder factories are specified, all the built-in builder factories are calibrated.<p>
+ *
+ * The calibration takes a few seconds for each builder factory. Other load on
+ * the machine at the same time will distort the results.
+ *
+ * @see ApfloatContext#KARATSUBA_CUTOFF_POINT
+ * @see ApfloatContext#KARATSUBA_COST_FACTOR
+ * @see ApfloatContext#TOOM_COOK_3_COST_FACTOR
+ * @see ApfloatContext#TOOM_COOK_4_COST_FACTOR
+ * @see ApfloatContext#NTT_COST_FACTOR
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class ConvolutionCalibrator
+{
+    private ConvolutionCalibrator()
+    {
+    }
+
+    /**
+     * Command-line entry point.
+     *
+     * @param args Class names of the builder factories to calibrate.
+     *
+     * @exception Exception If a builder factory can't be created.
+     */
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        if (args.length == 0)
+        {
+            args = new String[] { IntBuilderFactory.class.getName(),
+                                  LongBuilderFactory.class.getName(),
+                                  FloatBuilderFactory.class.getName(),
+                                  DoubleBuilderFactory.class.getName() };
+        }
+
+        System.out.println();
+        System.out.println("# Convolution tuning measured by " + ConvolutionCalibrator.class.getName());
+        for (String className : args)
+        {
+            BuilderFactory builderFactory = (BuilderFactory) Class.forName(className).getDeclaredConstructor().newInstance();
+            Properties properties = calibrate(builderFactory);
+            String prefix = builderFactory.getElementType().getName() + '.';
+
+            System.out.println();
+            for (String propertyName : PROPERTY_NAMES)
+            {
+                System.out.println(prefix + propertyName + '=' + properties.getProperty(prefix + propertyName));
+            }
+        }
+    }
+
+    /**
+     * Measures the convolution tuning properties for a builder factory.
+     * The names of the properties are prefixed with the element type of
+     * the builder factory, e.g. <code>int.karatsubaCutoffPoint</code>.
+     *
+     * @param builderFactory The builder factory to calibrate.
+     *
+     * @return The tuning properties.
+     *
+     * @exception IllegalArgumentException If the convolution builder of the builder factory is not an {@link AbstractConvolutionBuilder}.
+     */
+
+    public static Properties calibrate(BuilderFactory builderFactory)
+        throws IllegalArgumentException, ApfloatRuntimeException
+    {
+        ConvolutionBuilder convolutionBuilder = builderFactory.getConvolutionBuilder();
+        if (!(convolutionBuilder instanceof AbstractConvolutionBuilder))
+        {
+            throw new IllegalArgumentException("Unsupported convolution builder: " + convolutionBuilder.getClass().getName());
+        }
+
+        // Run the measurements in a separate context, so that the data is always kept in memory;
+        // all strategies are run in one thread, like the medium-length convolution that is the unit of the cost factors
+        ApfloatContext ctx = (ApfloatContext) ApfloatContext.getContext().clone();
+        ctx.setBuilderFactory(builderFactory);
+        ctx.setMemoryThreshold(Long.MAX_VALUE);
+        ctx.setNumberOfProcessors(1);
+
+        final Calibration calibration = new Calibration((AbstractConvolutionBuilder) convolutionBuilder, ctx.getDefaultRadix());
+        final Properties[] properties = new Properties[1];
+        ApfloatContext.runWithContext(ctx, new Runnable()
+        {
+            public void run()
+            {
+                properties[0] = calibration.calibrate();
+            }
+        });
+
+        return properties[0];
+    }
+
+    // Measurements for one builder factory, must be run with the builder factory set to the context
+    private static class Calibration
+    {
+        public Calibration(AbstractConvolutionBuilder convolutionBuilder, int radix)
+        {
+            this.convolutionBuilder = convolutionBuilder;
+            this.radix = radix;
+            this.random = new Random(0);
+        }
+
+        public Properties calibrate()
+            throws ApfloatRuntimeException
+        {
+            ConvolutionStrategy mediumStrategy = this.convolutionBuilder.createMediumConvolutionStrategy(this.radix),
+                                karatsubaStrategy = this.convolutionBuilder.createKaratsubaConvolutionStrategy(this.radix),
+                                toomCook3Strategy = this.convolutionBuilder.createToomCook3ConvolutionStrategy(this.radix, this.convolutionBuilder.getKaratsubaCutoffPoint()),
+                                toomCook4Strategy = this.convolutionBuilder.createToomCook4ConvolutionStrategy(this.radix, this.convolutionBuilder.getKaratsubaCutoffPoint());
+
+            // Let the JIT compiler optimize the code before measuring anything
+            for (int i = 0; i < WARMUP_ROUNDS; i++)
+            {
+                time(mediumStrategy, 256);
+                time(karatsubaStrategy, 256);
+                time(toomCook3Strategy, 1024);
+                time(toomCook4Strategy, 1024);
+                time(createNTTStrategy(2048), 2048);
+            }
+
+            // The largest length where the medium-length convolution is still faster than the Karatsuba convolution;
+            // for short lengths the Karatsuba convolution may only call the medium-length convolution, so there the times are just noise
+            int cutoffPoint = CUTOFF_SIZES[0];
+            for (int size : CUTOFF_SIZES)
+            {
+                if (time(mediumStrategy, size) <= time(karatsubaStrategy, size))
+                {
+                    cutoffPoint = size;
+                }
+            }
+
+            // The cost factors are averaged geometrically over the measured lengths
+            double karatsubaCostFactor = 1.0,
+                   toomCook3CostFactor = 1.0,
+                   toomCook4CostFactor = 1.0,
+                   nttCostFactor = 1.0;
+            for (int size : KARATSUBA_SIZES)
+            {
+                karatsubaCostFactor *= time(karatsubaStrategy, size) / (unit(mediumStrategy) * Math.pow(size, LOG2_3));
+            }
+            for (int size : TOOM_COOK_SIZES)
+            {
+                toomCook3CostFactor *= time(toomCook3Strategy, size) / (unit(mediumStrategy) * Math.pow(size, LOG3_5));
+                toomCook4CostFactor *= time(toomCook4Strategy, size) / (unit(mediumStrategy) * Math.pow(size, LOG4_7));
+            }
+            for (int size : NTT_SIZES)
+            {
+                long totalSize = 2L * size;
+                nttCostFactor *= time(createNTTStrategy(size), size) / (unit(mediumStrategy) * totalSize * Util.log2down(totalSize));
+            }
+            karatsubaCostFactor = Math.pow(karatsubaCostFactor, 1.0 / KARATSUBA_SIZES.length);
+            toomCook3CostFactor = Math.pow(toomCook3CostFactor, 1.0 / TOOM_COOK_SIZES.length);
+            toomCook4CostFactor = Math.pow(toomCook4CostFactor, 1.0 / TOOM_COOK_SIZES.length);
+            nttCostFactor = Math.pow(nttCostFactor, 1.0 / NTT_SIZES.length);
+
+            ApfloatContext ctx = ApfloatContext.getContext();
+            String prefix = ctx.getBuilderFactory().getElementType().getName() + '.';
+            Properties properties = new Properties();
+            properties.setProperty(prefix + ApfloatContext.KARATSUBA_CUTOFF_POINT, String.valueOf(cutoffPoint));
+            properties.setProperty(prefix + ApfloatContext.KARATSUBA_COST_FACTOR, format(karatsubaCostFactor));
+            properties.setProperty(prefix + ApfloatContext.TOOM_COOK_3_COST_FACTOR, format(toomCook3CostFactor));
+            properties.setProperty(prefix + ApfloatContext.TOOM_COOK_4_COST_FACTOR, format(toomCook4CostFactor));
+            properties.setProperty(prefix + ApfloatContext.NTT_COST_FACTOR, format(nttCostFactor));
+
+            return properties;
+        }
+
+        // Time of one element multiplication in the medium-length convolution; measured again for each cost factor, so that changes in the speed of the machine affect both times alike
+        private double unit(ConvolutionStrategy mediumStrategy)
+            throws ApfloatRuntimeException
+        {
+            return time(mediumStrategy, MEDIUM_SIZE) / ((double) MEDIUM_SIZE * MEDIUM_SIZE);
+        }
+
+        // Always use three moduli, the cost estimate of two moduli is derived from it
+        private ConvolutionStrategy createNTTStrategy(int size)
+        {
+            ApfloatContext ctx = ApfloatContext.getContext();
+            NTTStrategy nttStrategy = ctx.getBuilderFactory().getNTTBuilder().createNTT(2L * size);
+            return this.convolutionBuilder.createThreeNTTConvolutionStrategy(this.radix, nttStrategy);
+        }
+
+        // Best average time in nanoseconds of convolving two data sets of the specified length
+        private double time(ConvolutionStrategy convolutionStrategy, int size)
+            throws ApfloatRuntimeException
+        {
+            DataStorage x = createDataStorage(size),
+                        y = createDataStorage(size);
+
+            double bestTime = Double.MAX_VALUE;
+            for (int i = 0; i < MEASUREMENT_ROUNDS; i++)
+            {
+                long count = 0,
+                     start = System.nanoTime(),
+                     elapsed;
+                do
+                {
+                    convolutionStrategy.convolute(x, y, 2L * size);
+                    count++;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < MEASUREMENT_TIME);
+
+                bestTime = Math.min(bestTime, (double) elapsed / count);
+            }
+
+            return bestTime;
+        }
+
+        // Random data, the digits are less than any base so this works for any radix
+        private DataStorage createDataStorage(int size)
+            throws ApfloatRuntimeException
+        {
+            ApfloatContext ctx = ApfloatContext.getContext();
+            BuilderFactory builderFactory = ctx.getBuilderFactory();
+            DataStorageBuilder dataStorageBuilder = builderFactory.getDataStorageBuilder();
+            Class<?> elementType = builderFactory.getElementType();
+
+            DataStorage dataStorage = dataStorageBuilder.createDataStorage((long) size * builderFactory.getElementSize());
+            dataStorage.setSize(size);
+
+            DataStorage.Iterator iterator = dataStorage.iterator(DataStorage.WRITE, 0, size);
+            for (int i = 0; i < size; i++)
+            {
+                int digit = 1 + this.random.nextInt(Character.MIN_RADIX - 1);
+                if (Integer.TYPE.equals(elementType))
+                {
+                    iterator.setInt(digit);
+                }
+                else if (Long.TYPE.equals(elementType))
+                {
+                    iterator.setLong(digit);
+                }
+                else if (Float.TYPE.equals(elementType))
+                {
+                    iterator.setFloat(digit);
+                }
+                else
+                {
+                    iterator.setDouble(digit);
+                }
+                iterator.next();
+            }
+
+            return dataStorage;
+        }
+
+        // Three significant digits, so that small cost factors are not rounded to zero
+        private static String format(double costFactor)
+        {
+            return new BigDecimal(costFactor).round(new MathContext(3)).stripTrailingZeros().toPlainString();
+        }
+
+        private AbstractConvolutionBuilder convolutionBuilder;
+        private int radix;
+        private Random random;
+    }
+
+    private static final String[] PROPERTY_NAMES = { ApfloatContext.KARATSUBA_CUTOFF_POINT,
+                                                     ApfloatContext.KARATSUBA_COST_FACTOR,
+                                                     ApfloatContext.TOOM_COOK_3_COST_FACTOR,
+                                                     ApfloatContext.TOOM_COOK_4_COST_FACTOR,
+                                                     ApfloatContext.NTT_COST_FACTOR };
+    private static final int[] CUTOFF_SIZES = { 8, 12, 16, 20, 24, 32, 40, 48, 64, 80, 96, 128, 160, 192, 256 },
+                               KARATSUBA_SIZES = { 256, 512, 1024 },
+                               TOOM_COOK_SIZES = { 1024, 2048, 4096 },
+                               NTT_SIZES = { 1024, 2048, 4096, 8192 };
+    private static final int MEDIUM_SIZE = 256,
+                             WARMUP_ROUNDS = 10,
+                             MEASUREMENT_ROUNDS = 5;
+    private static final long MEASUREMENT_TIME = 10000000L;     // Nanoseconds
+    private static final double LOG2_3 = Math.log(3.0) / Math.log(2.0),
+                                LOG3_5 = Math.log(5.0) / Math.log(3.0),
+                                LOG4_7 = Math.log(7.0) / Math.log(4.0);
+}
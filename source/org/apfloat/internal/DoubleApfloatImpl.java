@@ -19,6 +19,11 @@ import org.apfloat.spi.AdditionBuilder;
 import org.apfloat.spi.AdditionStrategy;
 import org.apfloat.spi.ConvolutionBuilder;
 import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.MiddleProductApfloatImpl;
+import org.apfloat.spi.MiddleProductConvolutionStrategy;
+import org.apfloat.spi.TransformableApfloatImpl;
+import org.apfloat.spi.TransformedOperand;
+import org.apfloat.spi.TransformedOperandBuilder;
 import org.apfloat.spi.Util;
 import static org.apfloat.spi.RadixConstants.*;
 import static org.apfloat.internal.DoubleRadixConstants.*;
@@ -35,13 +40,13 @@ import static org.apfloat.internal.DoubleRadixConstants.*;
  * This implementation doesn't necessarily store any extra digits for added
  * precision, so the last digit of any operation may be inaccurate.
  *
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class DoubleApfloatImpl
     extends DoubleBaseMath
-    implements ApfloatImpl
+    implements TransformableApfloatImpl, MiddleProductApfloatImpl
 {
     // Implementation notes:
     // - The dataStorage must never contain leading zeros or trailing zeros
@@ -1146,6 +1151,38 @@ public class DoubleApfloatImpl
 
     public ApfloatImpl multiply(ApfloatImpl x)
         throws ApfloatRuntimeException
+    {
+        return multiply(x, null);
+    }
+
+    public TransformedOperand createTransformedOperand(long maxPrecision)
+        throws ApfloatRuntimeException
+    {
+        if (this.sign == 0)
+        {
+            return null;
+        }
+
+        long maxSize = getBasePrecision(maxPrecision, 0);
+        if (maxSize == Apfloat.INFINITE)
+        {
+            throw new InfiniteExpansionException("Cannot prepare for multiplication by numbers with infinite precision");
+        }
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        ConvolutionBuilder convolutionBuilder = ctx.getBuilderFactory().getConvolutionBuilder();
+
+        if (!(convolutionBuilder instanceof TransformedOperandBuilder))
+        {
+            // The convolution builder can't prepare the data, so normal multiplications are used
+            return null;
+        }
+
+        return ((TransformedOperandBuilder) convolutionBuilder).createTransformedOperand(this.radix, this.dataStorage, maxSize);
+    }
+
+    public ApfloatImpl multiply(ApfloatImpl x, TransformedOperand transformed)
+        throws ApfloatRuntimeException
     {
         if (!(x instanceof DoubleApfloatImpl))
         {
@@ -1191,12 +1228,21 @@ public class DoubleApfloatImpl
                                        thisDataStorage :                                                // Enable auto-convolution
                                        that.dataStorage.subsequence(0, thatDataSize));
 
-        ApfloatContext ctx = ApfloatContext.getContext();
-        ConvolutionBuilder convolutionBuilder = ctx.getBuilderFactory().getConvolutionBuilder();
-        ConvolutionStrategy convolutionStrategy = convolutionBuilder.createConvolution(this.radix, thisDataSize, thatDataSize, size);
+        DataStorage dataStorage;
+        if (transformed != null && thisDataSize == transformed.getSize() && thatDataSize <= transformed.getMaxSize())
+        {
+            // This number's data is available in transformed form
+            dataStorage = transformed.convolute(thatDataStorage, size);
+        }
+        else
+        {
+            ApfloatContext ctx = ApfloatContext.getContext();
+            ConvolutionBuilder convolutionBuilder = ctx.getBuilderFactory().getConvolutionBuilder();
+            ConvolutionStrategy convolutionStrategy = convolutionBuilder.createConvolution(this.radix, thisDataSize, thatDataSize, size);
 
-        // Possibly sub-optimal: could look up trailing zeros of the subsequences
-        DataStorage dataStorage = convolutionStrategy.convolute(thisDataStorage, thatDataStorage, size);
+            // Possibly sub-optimal: could look up trailing zeros of the subsequences
+            dataStorage = convolutionStrategy.convolute(thisDataStorage, thatDataStorage, size);
+        }
 
         // Check if carry occurred up to and including most significant word
         int leadingZeros = (getMostSignificantWord(dataStorage) == 0 ? 1 : 0);
@@ -1222,6 +1268,144 @@ public class DoubleApfloatImpl
         return new DoubleApfloatImpl(sign, precision, exponent, dataStorage, this.radix);
     }
 
+    public ApfloatImpl multiplySubtractOne(ApfloatImpl x, long knownPrecision)
+        throws ApfloatRuntimeException
+    {
+        if (!(x instanceof DoubleApfloatImpl))
+        {
+            throw new ImplementationMismatchException("Wrong operand type: " + x.getClass().getName());
+        }
+
+        DoubleApfloatImpl that = (DoubleApfloatImpl) x;
+
+        if (this.radix != that.radix)
+        {
+            throw new RadixMismatchException("Cannot multiply numbers with different radixes: " + this.radix + " and " + that.radix);
+        }
+
+        long precision = Math.min(this.precision, that.precision),
+             exponent = this.exponent + that.exponent,
+             knownSize = knownPrecision / BASE_DIGITS[this.radix],     // Number of words after the radix point that are known to be zero or BASE - 1
+             skipSize = exponent - 2 + knownSize;                       // The last two known words are needed for getting the sign reliably
+
+        if (this.sign * that.sign <= 0 || precision == Apfloat.INFINITE || exponent < 1 || knownSize < 2)
+        {
+            return null;
+        }
+
+        long basePrecision = getBasePrecision(precision, 0),            // Round up
+             thisSize = getSize(),
+             thatSize = that.getSize(),
+             size = Math.min(basePrecision + 1, thisSize + thatSize),  // Reserve one extra word for carry
+             thisDataSize = Math.min(thisSize, basePrecision),
+             thatDataSize = Math.min(thatSize, basePrecision);
+
+        if (skipSize + 3 > size)
+        {
+            // Too few words left for the middle product to be useful
+            return null;
+        }
+
+        // Check with a low-precision estimate that the skipped most significant part of the product actually is one
+        double estimate = getLeadingValue() * that.getLeadingValue() * Math.pow(BASE[this.radix], exponent - 2);
+        if (!(Math.abs(estimate - 1) <= Math.max(2 * Math.pow(this.radix, -knownPrecision), 1e-9)))
+        {
+            return null;
+        }
+
+        DataStorage thisDataStorage = this.dataStorage.subsequence(0, thisDataSize),
+                    thatDataStorage = (this.dataStorage == that.dataStorage ?
+                                       thisDataStorage :                                                // Enable auto-convolution
+                                       that.dataStorage.subsequence(0, thatDataSize));
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        ConvolutionBuilder convolutionBuilder = ctx.getBuilderFactory().getConvolutionBuilder();
+        ConvolutionStrategy convolutionStrategy = convolutionBuilder.createConvolution(this.radix, thisDataSize, thatDataSize, size);
+
+        if (!(convolutionStrategy instanceof MiddleProductConvolutionStrategy))
+        {
+            // No benefit from skipping the most significant part
+            return null;
+        }
+
+        DataStorage dataStorage = ((MiddleProductConvolutionStrategy) convolutionStrategy).convoluteMiddle(thisDataStorage, thatDataStorage, skipSize, size);
+
+        size -= skipSize;
+        dataStorage = dataStorage.subsequence(skipSize, size);
+
+        // Both of the last known words must be zero or both BASE - 1, otherwise the skipped words may not be what was assumed
+        ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ, 0, 2);
+        double guardWord = arrayAccess.getDoubleData()[arrayAccess.getOffset()],
+               knownWord = arrayAccess.getDoubleData()[arrayAccess.getOffset() + 1];
+        arrayAccess.close();
+
+        int sign;
+
+        if (guardWord == 0 && knownWord == 0)
+        {
+            // The product is one or slightly more
+            sign = 1;
+        }
+        else if (guardWord == BASE[this.radix] - 1 && knownWord == BASE[this.radix] - 1)
+        {
+            // The product is slightly less than one, the difference is the complement of the fractional part
+            sign = -1;
+
+            AdditionBuilder<Double> additionBuilder = ctx.getBuilderFactory().getAdditionBuilder(Double.TYPE);
+            AdditionStrategy<Double> additionStrategy = additionBuilder.createAddition(this.radix);
+
+            DataStorage.Iterator src = dataStorage.iterator(DataStorage.READ, size, 0);
+
+            dataStorage = createDataStorage(size);
+            dataStorage.setSize(size);
+
+            DataStorage.Iterator dst = dataStorage.iterator(DataStorage.WRITE, size, 0);
+
+            additionStrategy.subtract(null, src, (double) 0, dst, size);
+        }
+        else
+        {
+            // The product is not as close to one as was specified
+            return null;
+        }
+
+        long leadingZeros = getLeadingZeros(dataStorage, 0);
+
+        if (leadingZeros == size)
+        {
+            // The product is exactly one, at least within the precision
+            return zero();
+        }
+
+        size -= leadingZeros;
+        dataStorage = dataStorage.subsequence(leadingZeros, size);
+        exponent = 2 - knownSize - leadingZeros;
+
+        if (exponent < -MAX_EXPONENT[this.radix])
+        {
+            // Underflow
+            return zero();
+        }
+
+        // The leading digits of the product are lost in the subtraction, like when subtracting one from the product
+        precision += (exponent - 1) * BASE_DIGITS[this.radix] + getInitialDigits(dataStorage) - (sign > 0 ? 1 : 0);
+
+        if (precision <= 0)
+        {
+            // All significant digits were lost
+            return zero();
+        }
+
+        size = Math.min(size, getBasePrecision(precision, getInitialDigits(dataStorage)));
+        size -= getTrailingZeros(dataStorage, size);
+
+        dataStorage = dataStorage.subsequence(0, size);
+
+        dataStorage.setReadOnly();
+
+        return new DoubleApfloatImpl(sign, precision, exponent, dataStorage, this.radix);
+    }
+
     public boolean isShort()
         throws ApfloatRuntimeException
     {
@@ -2277,6 +2461,26 @@ public class DoubleApfloatImpl
         }
     }
 
+    // Approximate value of the most significant words, where the most significant word has weight one
+    private double getLeadingValue()
+        throws ApfloatRuntimeException
+    {
+        int size = (int) Math.min(getSize(), 3);
+        double value = 0,
+               scale = 1;
+
+        ArrayAccess arrayAccess = this.dataStorage.getArray(DataStorage.READ, 0, size);
+        double[] data = arrayAccess.getDoubleData();
+        for (int i = 0; i < size; i++)
+        {
+            value += data[arrayAccess.getOffset() + i] * scale;
+            scale /= BASE[this.radix];
+        }
+        arrayAccess.close();
+
+        return value;
+    }
+
     // Effective size, in doubles
     private long getSize()
         throws ApfloatRuntimeException
@@ -4,7 +4,7 @@ package org.apfloat.internal;
  * Constants needed for various algorithms for the <code>double</code> type.
  *
  * @since 1.4
- * @version 1.4
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -16,9 +16,33 @@ public interface DoubleConstants
 
     public static final float KARATSUBA_COST_FACTOR = 4.3f;
 
+    /**
+     * Relative cost of Toom-Cook 3-way multiplication.
+     *
+     * @since 1.9.0
+     */
+
+    public static final float TOOM_COOK_3_COST_FACTOR = 8.5f;
+
+    /**
+     * Relative cost of Toom-Cook 4-way multiplication.
+     *
+     * @since 1.9.0
+     */
+
+    public static final float TOOM_COOK_4_COST_FACTOR = 12.6f;
+
     /**
      * Relative cost of NTT multiplication.
      */
 
     public static final float NTT_COST_FACTOR = 6.2f;
+
+    /**
+     * Relative cost of floating-point FFT multiplication.
+     *
+     * @since 1.9.0
+     */
+
+    public static final float FFT_COST_FACTOR = 0.55f;
 }
@@ -1,8 +1,13 @@
 package org.apfloat.internal;
 
+import java.math.BigInteger;
+
 import org.apfloat.spi.ConvolutionStrategy;
 import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.Util;
 import static org.apfloat.internal.DoubleConstants.*;
+import static org.apfloat.internal.DoubleModConstants.*;
+import static org.apfloat.internal.DoubleRadixConstants.*;
 
 /**
  * Creates convolutions of suitable type for the <code>double</code> type.<p>
@@ -10,9 +15,14 @@ import static org.apfloat.internal.DoubleConstants.*;
  * @see DoubleShortConvolutionStrategy
  * @see DoubleMediumConvolutionStrategy
  * @see DoubleKaratsubaConvolutionStrategy
+ * @see DoubleParallelKaratsubaConvolutionStrategy
+ * @see DoubleToomCook3ConvolutionStrategy
+ * @see DoubleToomCook4ConvolutionStrategy
+ * @see DoubleFFTConvolutionStrategy
  * @see ThreeNTTConvolutionStrategy
+ * @see TwoNTTConvolutionStrategy
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -37,6 +47,16 @@ public class DoubleConvolutionBuilder
         return KARATSUBA_COST_FACTOR;
     }
 
+    protected float getToomCook3CostFactor()
+    {
+        return TOOM_COOK_3_COST_FACTOR;
+    }
+
+    protected float getToomCook4CostFactor()
+    {
+        return TOOM_COOK_4_COST_FACTOR;
+    }
+
     protected float getNTTCostFactor()
     {
         return NTT_COST_FACTOR;
@@ -54,12 +74,62 @@ public class DoubleConvolutionBuilder
 
     protected ConvolutionStrategy createKaratsubaConvolutionStrategy(int radix)
     {
-        return new DoubleKaratsubaConvolutionStrategy(radix);
+        return new DoubleParallelKaratsubaConvolutionStrategy(radix);
+    }
+
+    protected ConvolutionStrategy createKaratsubaConvolutionStrategy(int radix, int cutoffPoint)
+    {
+        return new DoubleParallelKaratsubaConvolutionStrategy(radix, cutoffPoint);
+    }
+
+    protected ConvolutionStrategy createToomCook3ConvolutionStrategy(int radix, int karatsubaCutoffPoint)
+    {
+        return new DoubleToomCook3ConvolutionStrategy(radix, karatsubaCutoffPoint);
+    }
+
+    protected ConvolutionStrategy createToomCook4ConvolutionStrategy(int radix, int karatsubaCutoffPoint)
+    {
+        return new DoubleToomCook4ConvolutionStrategy(radix, karatsubaCutoffPoint);
     }
 
+    protected float getFFTCost(int radix, long size1, long size2)
+    {
+        long length = DoubleFFTConvolutionStrategy.getTransformLength(radix, size1, size2);
+        return (length == 0 ? Float.POSITIVE_INFINITY : FFT_COST_FACTOR * length * Util.log2down(length));
+    }
+
+    protected ConvolutionStrategy createFFTConvolutionStrategy(int radix)
+    {
+        return new DoubleFFTConvolutionStrategy(radix);
+    }
 
     protected ConvolutionStrategy createThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
     {
         return new ParallelThreeNTTConvolutionStrategy(radix, nttStrategy);
     }
+
+    protected long getTwoNTTMaxSize(int radix)
+    {
+        return TWO_NTT_MAX_SIZE[radix];
+    }
+
+    protected ConvolutionStrategy createTwoNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    {
+        return new TwoNTTConvolutionStrategy(radix, nttStrategy);
+    }
+
+    private static final long[] TWO_NTT_MAX_SIZE;
+
+    static
+    {
+        // The maximum convolution result element is size * (base - 1)^2, and it must be less than the product of the two moduli
+        BigInteger m01 = BigInteger.valueOf((long) MODULUS[0]).multiply(BigInteger.valueOf((long) MODULUS[1]));
+
+        TWO_NTT_MAX_SIZE = new long[BASE.length];
+        for (int radix = Character.MIN_RADIX; radix < BASE.length; radix++)
+        {
+            BigInteger maxElement = BigInteger.valueOf((long) BASE[radix] - 1).pow(2);
+            TWO_NTT_MAX_SIZE[radix] = m01.subtract(BigInteger.ONE).divide(maxElement).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+        }
+    }
 }
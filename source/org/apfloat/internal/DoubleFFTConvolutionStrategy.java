@@ -0,0 +1,459 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.MiddleProductConvolutionStrategy;
+import org.apfloat.spi.DataStorageBuilder;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.NTTBuilder;
+import org.apfloat.spi.Util;
+import static org.apfloat.internal.DoubleRadixConstants.*;
+
+/**
+ * Convolution using a floating-point complex Fast Fourier Transform.<p>
+ *
+ * The elements of the data are split to smaller pieces, so that the
+ * convolution can be calculated exactly with one transform of the
+ * pieces, instead of three Number Theoretic Transforms and the Chinese
+ * Remainder Theorem. The pieces are balanced, that is between
+ * -<i>b</i>/2 and <i>b</i>/2 where <i>b</i> is the base of the pieces,
+ * which reduces the magnitude of the convolution result.<p>
+ *
+ * The result elements of the floating-point convolution are rounded
+ * to the nearest integer. A piece size is only used if the rounding is
+ * guaranteed to give the correct result, using the error bound for the
+ * floating-point convolution by Colin Percival (<i>Rapid multiplication
+ * modulo the sum and difference of highly composite numbers</i>, 2003)
+ * with the Euclidean norms of the actual pieces. For larger transforms
+ * the pieces have to be smaller. If none of the piece sizes can be used,
+ * the convolution is done with Number Theoretic Transforms instead.<p>
+ *
+ * The transform length is a power of two that is at least the number of
+ * pieces in the result, so the data fits in a transform of the same length
+ * and the convolution does not wrap around.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @see ThreeNTTConvolutionStrategy
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class DoubleFFTConvolutionStrategy
+    implements MiddleProductConvolutionStrategy
+{
+    /**
+     * Maximum transform length for which the floating-point convolution is faster than
+     * the Number Theoretic Transform convolution. For longer transforms the data doesn't fit
+     * in the processor cache and the longer transform length needed for the pieces outweighs
+     * the benefit of doing only one transform.
+     */
+
+    public static final int MAX_TRANSFORM_LENGTH = 65536;
+
+    /**
+     * Creates a convolution strategy using the specified radix.
+     *
+     * @param radix The radix that will be used.
+     */
+
+    public DoubleFFTConvolutionStrategy(int radix)
+    {
+        this.radix = radix;
+        this.pieces = getPieces(radix);
+        this.pieceBase = new double[this.pieces.length];
+        for (int i = 0; i < this.pieces.length; i++)
+        {
+            this.pieceBase[i] = getPieceBase(radix, this.pieces[i]);
+        }
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        long size = x.getSize() + y.getSize();
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+
+        // Try the largest pieces first, as that gives the shortest transform
+        for (int i = 0; i < this.pieces.length; i++)
+        {
+            int pieces = this.pieces[i];
+            long length = getTransformLength(size * pieces + 1);
+
+            if (length > Integer.MAX_VALUE || (x == y ? 2 : 4) * length * 8 > ctx.getMaxMemoryBlockSize())
+            {
+                // Smaller pieces would need an even longer transform
+                break;
+            }
+
+            double maxNormProduct = getMaxNormProduct(Util.log2down(length)),
+                   b = this.pieceBase[i];
+
+            double[] xRe = new double[(int) length],
+                     xIm = new double[(int) length];
+            double xNorm = split(x, pieces, b, xRe);
+            double[] yRe, yIm;
+            double yNorm;
+            if (x == y)
+            {
+                yRe = xRe;
+                yIm = xIm;
+                yNorm = xNorm;
+            }
+            else
+            {
+                yRe = new double[(int) length];
+                yIm = new double[(int) length];
+                yNorm = split(y, pieces, b, yRe);
+            }
+
+            if (xNorm * yNorm >= maxNormProduct)
+            {
+                // The error bound is too large for this data, try smaller pieces
+                continue;
+            }
+
+            double[] wTable = getWTable((int) length);
+
+            transform(xRe, xIm, wTable);
+            if (x != y)
+            {
+                transform(yRe, yIm, wTable);
+            }
+            multiply(xRe, xIm, yRe, yIm);
+            inverseTransform(xRe, xIm, wTable);
+
+            return carry(xRe, size, pieces, b);
+        }
+
+        // The floating-point transform can't be used, so use Number Theoretic Transforms
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        ConvolutionStrategy convolutionStrategy = new ParallelThreeNTTConvolutionStrategy(this.radix, nttBuilder.createNTT(size));
+
+        return convolutionStrategy.convolute(x, y, resultSize);
+    }
+
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        // No benefit from skipping the most significant part
+        return convolute(x, y, resultSize);
+    }
+
+    /**
+     * Returns the transform length that is typically used for data of the
+     * specified sizes, that is for data where the pieces are uniformly
+     * distributed. Zero is returned if the floating-point transform can't
+     * be guaranteed to work for all data of these sizes, even with the
+     * smallest pieces, or if the transform length would be larger than
+     * {@link #MAX_TRANSFORM_LENGTH}.
+     *
+     * @param radix The radix that will be used.
+     * @param size1 Size of the first data set.
+     * @param size2 Size of the second data set.
+     *
+     * @return The transform length, or zero if the floating-point transform should not be used for data of these sizes.
+     */
+
+    static long getTransformLength(int radix, long size1, long size2)
+    {
+        int[] pieces = getPieces(radix);
+        if (pieces.length == 0)
+        {
+            return 0;
+        }
+
+        // Check that the smallest pieces work even in the worst case, when all pieces have the maximum magnitude
+        int smallest = pieces[pieces.length - 1];
+        long length = getTransformLength((size1 + size2) * smallest + 1);
+        double b = getPieceBase(radix, smallest);
+        if (length > MAX_TRANSFORM_LENGTH ||
+            getMaxNorm(size1, smallest, b) * getMaxNorm(size2, smallest, b) >= getMaxNormProduct(Util.log2down(length)))
+        {
+            return 0;
+        }
+
+        for (int i = 0; i < pieces.length; i++)
+        {
+            length = getTransformLength((size1 + size2) * pieces[i] + 1);
+            b = getPieceBase(radix, pieces[i]);
+            if (length <= MAX_TRANSFORM_LENGTH &&
+                getTypicalNorm(size1, pieces[i], b) * getTypicalNorm(size2, pieces[i], b) < getMaxNormProduct(Util.log2down(length)))
+            {
+                break;
+            }
+        }
+        return length;
+    }
+
+    // Split the data to balanced pieces, least significant first, and return the Euclidean norm of the pieces
+    private static double split(DataStorage dataStorage, int pieces, double b, double[] data)
+        throws ApfloatRuntimeException
+    {
+        long size = dataStorage.getSize();
+        DataStorage.Iterator src = dataStorage.iterator(DataStorage.READ, size, 0);
+
+        double halfB = b / 2,
+               carry = 0,
+               norm = 0;
+        int position = 0;
+        for (long i = 0; i < size; i++)
+        {
+            double element = src.getDouble();
+            for (int j = 0; j < pieces; j++)
+            {
+                double quotient = Math.floor(element / b),
+                       piece = element - quotient * b;
+                if (piece < 0)
+                {
+                    piece += b;
+                    quotient--;
+                }
+                else if (piece >= b)
+                {
+                    piece -= b;
+                    quotient++;
+                }
+                element = quotient;
+
+                piece += carry;
+                carry = (piece > halfB ? 1 : 0);
+                piece -= carry * b;
+
+                data[position++] = piece;
+                norm += piece * piece;
+            }
+            src.next();
+        }
+        data[position] = carry;
+        norm += carry;
+
+        return Math.sqrt(norm);
+    }
+
+    // Round the convolution result to integers, propagate the carries and combine the pieces to elements
+    private DataStorage carry(double[] data, long size, int pieces, double b)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * 8);
+        resultStorage.setSize(size);
+
+        DataStorage.Iterator dst = resultStorage.iterator(DataStorage.WRITE, size, 0);
+
+        double scale = 1.0 / data.length,                                   // Exact as the length is a power of two
+               carry = 0;
+        int position = 0;
+        for (long i = 0; i < size; i++)
+        {
+            double element = 0,
+                   factor = 1;
+            for (int j = 0; j < pieces; j++)
+            {
+                double value = Math.rint(data[position++] * scale) + carry,
+                       quotient = Math.floor(value / b),
+                       piece = value - quotient * b;
+                if (piece < 0)
+                {
+                    piece += b;
+                    quotient--;
+                }
+                else if (piece >= b)
+                {
+                    piece -= b;
+                    quotient++;
+                }
+                carry = quotient;
+
+                element += piece * factor;
+                factor *= b;
+            }
+            dst.setDouble(element);
+            dst.next();
+        }
+        dst.close();
+
+        assert (carry + Math.rint(data[position] * scale) == 0);
+
+        return resultStorage;
+    }
+
+    // Forward transform, decimation in frequency, the result is left in bit-reversed order
+    private static void transform(double[] re, double[] im, double[] wTable)
+    {
+        int length = re.length,
+            half = length >> 1;
+
+        for (int m = length, stride = 1; m >= 2; m >>= 1, stride <<= 1)
+        {
+            int span = m >> 1;
+            for (int i = 0; i < length; i += m)
+            {
+                for (int j = 0, k = 0; j < span; j++, k += stride)
+                {
+                    int i1 = i + j,
+                        i2 = i1 + span;
+                    double wr = wTable[k],
+                           wi = -wTable[half + k],                          // Forward transform uses the complex conjugate
+                           ar = re[i1],
+                           ai = im[i1],
+                           dr = ar - re[i2],
+                           di = ai - im[i2];
+                    re[i1] = ar + re[i2];
+                    im[i1] = ai + im[i2];
+                    re[i2] = dr * wr - di * wi;
+                    im[i2] = dr * wi + di * wr;
+                }
+            }
+        }
+    }
+
+    // Inverse transform without scaling, decimation in time, the data is in bit-reversed order and the result is in normal order
+    private static void inverseTransform(double[] re, double[] im, double[] wTable)
+    {
+        int length = re.length,
+            half = length >> 1;
+
+        for (int m = 2, stride = half; m <= length; m <<= 1, stride >>= 1)
+        {
+            int span = m >> 1;
+            for (int i = 0; i < length; i += m)
+            {
+                for (int j = 0, k = 0; j < span; j++, k += stride)
+                {
+                    int i1 = i + j,
+                        i2 = i1 + span;
+                    double wr = wTable[k],
+                           wi = wTable[half + k],
+                           tr = re[i2] * wr - im[i2] * wi,
+                           ti = re[i2] * wi + im[i2] * wr;
+                    re[i2] = re[i1] - tr;
+                    im[i2] = im[i1] - ti;
+                    re[i1] += tr;
+                    im[i1] += ti;
+                }
+            }
+        }
+    }
+
+    // Element-by-element complex multiplication, the result is stored in the first data set
+    private static void multiply(double[] xRe, double[] xIm, double[] yRe, double[] yIm)
+    {
+        for (int i = 0; i < xRe.length; i++)
+        {
+            double re = xRe[i] * yRe[i] - xIm[i] * yIm[i],
+                   im = xRe[i] * yIm[i] + xIm[i] * yRe[i];
+            xRe[i] = re;
+            xIm[i] = im;
+        }
+    }
+
+    // Table of cos(2 pi j / n) followed by sin(2 pi j / n) for 0 <= j < n / 2
+    private static double[] getWTable(int length)
+    {
+        double[] wTable = (double[]) TableCache.get("DoubleFFTWTable", 0, length);
+        // Do not synchronize, multiple threads may do this at the same time, but only one gets to put the value in the cache
+        if (wTable == null)
+        {
+            int half = length >> 1,
+                quarter = length >> 2;
+            wTable = new double[length];
+
+            // Only calculate the first octant, for accuracy the angle should be as small as possible
+            double angle = 2 * Math.PI / length;
+            for (int j = 0; j <= length >> 3; j++)
+            {
+                double c = Math.cos(j * angle),
+                       s = Math.sin(j * angle);
+                wTable[j] = c;
+                wTable[half + j] = s;
+                wTable[quarter - j] = s;
+                wTable[half + quarter - j] = c;
+                if (j > 0)
+                {
+                    wTable[quarter + j] = -s;
+                    wTable[half + quarter + j] = c;
+                    wTable[half - j] = -c;
+                    wTable[length - j] = s;
+                }
+            }
+
+            // Check if another thread already put the wTable in the cache; if so then use it
+            double[] value = (double[]) TableCache.putIfAbsent("DoubleFFTWTable", 0, length, wTable);
+            if (value != null)
+            {
+                // Another thread did put the value in the cache so use it
+                wTable = value;
+            }
+        }
+        return wTable;
+    }
+
+    // Numbers of pieces per element that are possible for the radix, from the largest pieces to the smallest
+    private static int[] getPieces(int radix)
+    {
+        int digits = BASE_DIGITS[radix],
+            count = 0;
+        int[] pieces = new int[digits];
+        for (int i = 2; i <= digits; i++)
+        {
+            if (digits % i == 0)
+            {
+                pieces[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(pieces, 0, result, 0, count);
+        return result;
+    }
+
+    private static double getPieceBase(int radix, int pieces)
+    {
+        double b = 1;
+        for (int i = 0; i < BASE_DIGITS[radix] / pieces; i++)
+        {
+            b *= radix;
+        }
+        return b;
+    }
+
+    // Upper bound for the Euclidean norm of the balanced pieces of data of the specified size
+    private static double getMaxNorm(long size, int pieces, double b)
+    {
+        return Math.sqrt(size * pieces + 1.0) * (b / 2);
+    }
+
+    // Euclidean norm of the balanced pieces of data of the specified size, when the pieces are uniformly distributed
+    private static double getTypicalNorm(long size, int pieces, double b)
+    {
+        return Math.sqrt((size * pieces + 1.0) / 12) * b;
+    }
+
+    private static long getTransformLength(long size)
+    {
+        return Math.max(8, Util.round2up(size));
+    }
+
+    // The maximum product of the Euclidean norms of the data, so that the error of the convolution of length 2^n is less than 1/2
+    private static double getMaxNormProduct(int n)
+    {
+        // Percival's bound: the error is at most |x| |y| ((1 + e)^3n (1 + e sqrt(5))^(3n + 1) (1 + beta)^3n - 1)
+        double errorFactor = Math.expm1(3 * n * Math.log1p(EPSILON) + (3 * n + 1) * Math.log1p(EPSILON * Math.sqrt(5)) + 3 * n * Math.log1p(BETA));
+        return 0.5 / errorFactor;
+    }
+
+    // Unit roundoff of double
+    private static final double EPSILON = Math.ulp(1.0) / 2;
+
+    // Maximum error of the values in the table of the powers of the root of unity: error of the angle at most pi/4 * 2 EPSILON, plus one ulp for each of cos and sin, times sqrt(2)
+    private static final double BETA = 6 * EPSILON;
+
+    private int radix;
+    private int[] pieces;
+    private double[] pieceBase;
+}
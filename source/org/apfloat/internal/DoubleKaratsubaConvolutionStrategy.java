@@ -14,10 +14,17 @@ import org.apfloat.spi.DataStorage;
  * applied. The Karatsuba algorithm is faster than the basic O(n<sup>2</sup>)
  * multiplication algorithm for medium size numbers larger than some certain
  * size. For very large numbers, the transform-based convolution algorithms
- * are faster.
+ * are faster.<p>
+ *
+ * If only the most significant part of the result is needed, a short product
+ * is calculated using Mulders' algorithm: the most significant parts of the
+ * operands are multiplied using the full Karatsuba algorithm, and the cross
+ * products of the most and least significant parts are again calculated
+ * as short products recursively. The product of the least significant parts
+ * is omitted entirely.
  *
  * @since 1.4
- * @version 1.4
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -41,19 +48,40 @@ public class DoubleKaratsubaConvolutionStrategy
      */
 
     public DoubleKaratsubaConvolutionStrategy(int radix)
+    {
+        this(radix, CUTOFF_POINT);
+    }
+
+    /**
+     * Creates a convolution strategy using the specified radix and cut-off point.
+     *
+     * @param radix The radix that will be used.
+     * @param cutoffPoint The cut-off point for Karatsuba / basic convolution, used instead of {@link #CUTOFF_POINT}.
+     *
+     * @since 1.9.0
+     */
+
+    public DoubleKaratsubaConvolutionStrategy(int radix, int cutoffPoint)
     {
         super(radix);
+        this.cutoffPoint = cutoffPoint;
     }
 
     public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
         throws ApfloatRuntimeException
     {
-        if (Math.min(x.getSize(), y.getSize()) <= CUTOFF_POINT)
+        if (Math.min(x.getSize(), y.getSize()) <= this.cutoffPoint)
         {
             // The numbers are too short for Karatsuba to have any advantage, fall back to O(n^2) algorithm
             return super.convolute(x, y, resultSize);
         }
 
+        if (resultSize + 2 < x.getSize() + y.getSize())
+        {
+            // Only the most significant part of the result is needed
+            return shortConvolute(x, y, resultSize);
+        }
+
         DataStorage shortStorage, longStorage;
 
         if (x.getSize() > y.getSize())
@@ -130,9 +158,10 @@ public class DoubleKaratsubaConvolutionStrategy
             DataStorage b = add(y1, y2);
 
             // Calculate sub-convolutions recursively
-            DataStorage c = convolute(a, b, a.getSize() + b.getSize());
-            a = convolute(x1, y1, x1size + y1size);
-            b = convolute(x2, y2, 2 * halfSize);
+            DataStorage[] results = convolute(new DataStorage[] { a, x1, x2 }, new DataStorage[] { b, y1, y2 });
+            DataStorage c = results[0];
+            a = results[1];
+            b = results[2];
 
             // Calculate c = c - a - b
             subtract(c, a);
@@ -177,6 +206,104 @@ public class DoubleKaratsubaConvolutionStrategy
         return resultStorage;
     }
 
+    /**
+     * Convolutes pairs of data sets. The convolutions are independent
+     * of each other, so they can be calculated in any order, or in parallel.
+     * This implementation calculates them one at a time in the current thread.
+     *
+     * @param x The first data set of each pair.
+     * @param y The second data set of each pair.
+     *
+     * @return The full convolution of each pair of data sets.
+     *
+     * @since 1.9.0
+     */
+
+    protected DataStorage[] convolute(DataStorage[] x, DataStorage[] y)
+        throws ApfloatRuntimeException
+    {
+        DataStorage[] results = new DataStorage[x.length];
+
+        for (int i = 0; i < x.length; i++)
+        {
+            results[i] = convolute(x[i], y[i], x[i].getSize() + y[i].getSize());
+        }
+
+        return results;
+    }
+
+    // Calculate only the most significant part of the result, using Mulders' short product algorithm
+    private DataStorage shortConvolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        long size = resultSize + 2,                                     // Some extra precision, like in the carry-CRT
+             xSize = Math.min(x.getSize(), size),                       // The rest of the data only affects the omitted part of the result
+             ySize = Math.min(y.getSize(), size),
+             splitSize = Math.max(size + 1 >> 1, size * 7 / 10),        // At least half, so that the product of the least significant parts is not needed
+             shortSize = size - splitSize;
+
+        boolean isSquare = (x == y);
+        x = x.subsequence(0, xSize);
+        y = (isSquare ? x : y.subsequence(0, ySize));
+
+        if (xSize + ySize <= size || (xSize <= splitSize && ySize <= splitSize))
+        {
+            // The short product would not save any work
+            return convolute(x, y, xSize + ySize);
+        }
+
+        long x1size = Math.min(xSize, splitSize),
+             y1size = Math.min(ySize, splitSize);
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * 8);
+        resultStorage.setSize(size);
+
+        DataStorage.Iterator dst = resultStorage.iterator(DataStorage.WRITE, size, 0);
+        baseAdd(null, null, 0, dst, size);                              // Clear the result data
+
+        // Full product of the most significant parts
+        DataStorage x1 = x.subsequence(0, x1size),
+                    y1 = (isSquare ? x1 : y.subsequence(0, y1size));
+        add(resultStorage, convolute(x1, y1, x1size + y1size), 0);
+
+        // Short products of the most significant part of one operand and the least significant part of the other
+        if (ySize > splitSize)
+        {
+            DataStorage a = convolute(x.subsequence(0, Math.min(xSize, shortSize)), y.subsequence(splitSize, ySize - splitSize), shortSize);
+            add(resultStorage, a, splitSize);
+            if (isSquare)
+            {
+                // Both cross products are the same
+                add(resultStorage, a, splitSize);
+            }
+        }
+        if (xSize > splitSize && !isSquare)
+        {
+            DataStorage b = convolute(x.subsequence(splitSize, xSize - splitSize), y.subsequence(0, Math.min(ySize, shortSize)), shortSize);
+            add(resultStorage, b, splitSize);
+        }
+
+        return resultStorage;
+    }
+
+    // Add the most significant part of x to the result data, starting from the specified offset
+    private void add(DataStorage resultStorage, DataStorage x, long offset)
+    {
+        long size = Math.min(resultStorage.getSize() - offset, x.getSize());
+
+        DataStorage.Iterator src1 = resultStorage.iterator(DataStorage.READ_WRITE, offset + size, 0),
+                             src2 = x.iterator(DataStorage.READ, size, 0),
+                             dst = src1;
+
+        double carry = 0;
+        carry = baseAdd(src1, src2, carry, dst, size);
+        carry = baseAdd(src1, null, carry, dst, offset);
+
+        assert (carry == 0);
+    }
+
     // Return x1 + x2
     private DataStorage add(DataStorage x1, DataStorage x2)
     {
@@ -238,5 +365,7 @@ public class DoubleKaratsubaConvolutionStrategy
         return data == 0;
     }
 
+    private int cutoffPoint;
+
     private static final long serialVersionUID = 3605808557478224821L;
 }
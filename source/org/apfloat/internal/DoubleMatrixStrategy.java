@@ -8,54 +8,30 @@ import org.apfloat.spi.Util;
 
 /**
  * Optimized matrix transposition methods for the <code>double</code> type.
- * The matrix transposition algorithm isn't parallelized.<p>
+ * If the matrix doesn't fit in the processor L2 cache, the matrix transposition
+ * and the permutation of the rows are done in parallel using multiple threads,
+ * if the number of processors is greater than one in {@link ApfloatContext#getNumberOfProcessors()}.<p>
  *
- * While the matrix transposition algorithm could easily be parallelized,
- * on an SMP machine it does not make any sense. If the matrix doesn't fit
- * in any processor specific cache then the memory (or higher level
- * shared cache) bandwidth becomes a bottleneck in the algorithm. Matrix
- * transposition is in principle a very simple algorithm - it doesn't do
- * anything else than move data from one place to another. If shared memory
- * is the bottleneck, then the algorithm isn't any faster if the data is being
- * moved around by one thread or by multiple threads in parallel.<p>
+ * Matrix transposition doesn't do anything else than move data from one place
+ * to another, so if the matrix doesn't fit in any processor specific cache,
+ * the algorithm is bound by the memory bandwidth. However on a machine with many
+ * processor cores, one thread typically can't use all of the available memory
+ * bandwidth, so moving the data with multiple threads is still faster.<p>
  *
- * If the data fits in a processor specific cache, then the algorithm could
- * theoretically be made faster with parallelization. To make the parallelization
- * effective however, the data would have to be set up in some kind of a NUMA
- * way. For example, each processor core would hold an equal section of
- * the data in the processor cache. Then the algorithm could be made faster
- * as each processor core could quickly transpose blocks of data that are in the
- * processor cache, and then exchange blocks with other processor cores via the
- * slower higher level shared cache or main memory.<p>
- *
- * This approach doesn't work well in practice however, at least not in a Java
- * program. The reason is that there are no guarantees where the data is when
- * the algorithm starts (in which processor core caches), and further there are
- * no guarantees of any processor affinity for the threads that are executing
- * in parallel. Different processor cores could be executing the transposition
- * of different sections of the data at any moment, depending on how the
- * operating system (and the JVM) schedule thread execution. And more often
- * than not, the operating system isn't smart enough to apply any such processor
- * affinity for the threads.<p>
- *
- * An additional problem for any NUMA based attempt is that the data array would
- * have to be aligned on a cache line (e.g. 64 or 128 bytes), to prevent
- * cache contention at the edges of each data section. But a JVM makes no such
- * guarantees about memory alignment. And since pointers do not exist in Java,
- * manually aligning memory addresses isn't possible.<p>
- *
- * Considering all of the above, the parallel algorithm doesn't in practice work
- * any faster than the single-thread algorithm, as the algorithm is bound by the
- * memory bandwidth (or shared cache bandwidth). In some cases parallelization
- * can even make the execution slower due to increased cache contention.
+ * The transposition is done in b x b blocks that fit in the processor L1 cache.
+ * For parallelization, the matrix is split to rows of blocks: each row of blocks
+ * is transposed with the corresponding column of blocks, independently of the other
+ * rows of blocks. The permutation of the rows of the matrix is the same for every
+ * column, so for parallelization the matrix is split to stripes of columns, and
+ * the rows are moved in each stripe independently.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class DoubleMatrixStrategy
-    implements MatrixStrategy
+    implements MatrixStrategy, Parallelizable
 {
     /**
      * Default constructor.
@@ -290,7 +266,7 @@ public class DoubleMatrixStrategy
     }
 
     // Transpose a square n1 x n1 block of n1 x n2 matrix in b x b blocks
-    private static void transposeSquare(double[] data, int offset, int n1, int n2)
+    private static void transposeSquare(final double[] data, final int offset, final int n1, final int n2)
     {
         ApfloatContext ctx = ApfloatContext.getContext();
         int cacheBurstBlockSize = Util.round2down(ctx.getCacheBurst() / 8),   // Cache burst in doubles
@@ -324,29 +300,56 @@ public class DoubleMatrixStrategy
         {
             // Whole matrix doesn't fit in L2 cache
             // This algorithm works fastest if L1 cache size is set correctly
+            // The rows of blocks are independent so they are transposed in parallel
 
-            int b = cacheBlockSize;
-
-            double[] tmp1 = new double[b * b],
-                      tmp2 = new double[b * b];
+            final int b = cacheBlockSize;
 
-            for (int i = 0, position1 = offset; i < n1; i += b, position1 += b * n2)
+            ParallelRunnable parallelRunnable = new ParallelRunnable(n1)
             {
-                moveBlock(data, position1 + i, n2, tmp1, 0, b, b);
-                transposeBlock(tmp1, 0, b, b);
-                moveBlock(tmp1, 0, b, data, position1 + i, n2, b);
+                public Runnable getRunnable(final int startRow, final int rows)
+                {
+                    return new Runnable()
+                    {
+                        public void run()
+                        {
+                            transposeSquare(data, offset, n1, n2, b, startRow, startRow + rows);
+                        }
+                    };
+                }
 
-                for (int j = i + b, position2 = offset + j * n2 + i; j < n1; j += b, position2 += b * n2)
+                protected long getPreferredBatchSize()
                 {
-                    moveBlock(data, position1 + j, n2, tmp1, 0, b, b);
-                    transposeBlock(tmp1, 0, b, b);
+                    // One row of blocks, the actual batch size can be bigger but it is a multiple of this as both are powers of two
+                    return b;
+                }
+            };
+
+            ParallelRunner.runParallel(parallelRunnable);
+        }
+    }
 
-                    moveBlock(data, position2, n2, tmp2, 0, b, b);
-                    transposeBlock(tmp2, 0, b, b);
+    // Transpose the rows startRow...endRow of a square n1 x n1 block of n1 x n2 matrix in b x b blocks, with the corresponding columns
+    private static void transposeSquare(double[] data, int offset, int n1, int n2, int b, int startRow, int endRow)
+    {
+        double[] tmp1 = new double[b * b],
+              tmp2 = new double[b * b];
 
-                    moveBlock(tmp2, 0, b, data, position1 + j, n2, b);
-                    moveBlock(tmp1, 0, b, data, position2, n2, b);
-                }
+        for (int i = startRow, position1 = offset + startRow * n2; i < endRow; i += b, position1 += b * n2)
+        {
+            moveBlock(data, position1 + i, n2, tmp1, 0, b, b);
+            transposeBlock(tmp1, 0, b, b);
+            moveBlock(tmp1, 0, b, data, position1 + i, n2, b);
+
+            for (int j = i + b, position2 = offset + j * n2 + i; j < n1; j += b, position2 += b * n2)
+            {
+                moveBlock(data, position1 + j, n2, tmp1, 0, b, b);
+                transposeBlock(tmp1, 0, b, b);
+
+                moveBlock(data, position2, n2, tmp2, 0, b, b);
+                transposeBlock(tmp2, 0, b, b);
+
+                moveBlock(tmp2, 0, b, data, position1 + j, n2, b);
+                moveBlock(tmp1, 0, b, data, position2, n2, b);
             }
         }
     }
@@ -361,38 +364,35 @@ public class DoubleMatrixStrategy
 
         int twicen1 = 2 * n1;
         int halfn2 = n2 / 2;
-        double[] tmp = new double[halfn2];
+        int[] rows = new int[twicen1],
+              ends = new int[twicen1];
         boolean[] isRowDone = new boolean[twicen1];
+        int count = 0,
+            cycles = 0;
 
+        // Find the cycles of the permutation
         int j = 1;
         do
         {
-            int o = j,
-                m = j;
-
-            System.arraycopy(data, offset + halfn2 * m, tmp, 0, halfn2);
-
-            isRowDone[m] = true;
-
-            m = (m < n1 ? 2 * m : 2 * (m - n1) + 1);
+            int m = j;
 
-            while (m != j)
+            do
             {
                 isRowDone[m] = true;
+                rows[count++] = m;
 
-                System.arraycopy(data, offset + halfn2 * m, data, offset + halfn2 * o, halfn2);
-
-                o = m;
                 m = (m < n1 ? 2 * m : 2 * (m - n1) + 1);
-            }
+            } while (m != j);
 
-            System.arraycopy(tmp, 0, data, offset + halfn2 * o, halfn2);
+            ends[cycles++] = count;
 
             while (isRowDone[j])
             {
                 j++;
             }
         } while (j < twicen1 - 1);
+
+        permuteRows(data, offset, twicen1, halfn2, rows, ends, cycles);
     }
 
     // Permute the rows of matrix to correct order, to make the n1 x n2 matrix twice as wide (n1/2 x 2*n2)
@@ -404,37 +404,92 @@ public class DoubleMatrixStrategy
         }
 
         int halfn1 = n1 / 2;
-        double[] tmp = new double[n2];
+        int[] rows = new int[n1],
+              ends = new int[n1];
         boolean[] isRowDone = new boolean[n1];
+        int count = 0,
+            cycles = 0;
 
+        // Find the cycles of the permutation
         int j = 1;
         do
         {
-            int o = j,
-                m = j;
-
-            System.arraycopy(data, offset + n2 * m, tmp, 0, n2);
+            int m = j;
 
-            isRowDone[m] = true;
-
-            m = ((m & 1) != 0 ? m / 2 + halfn1 : m / 2);
-
-            while (m != j)
+            do
             {
                 isRowDone[m] = true;
+                rows[count++] = m;
 
-                System.arraycopy(data, offset + n2 * m, data, offset + n2 * o, n2);
-
-                o = m;
                 m = ((m & 1) != 0 ? m / 2 + halfn1 : m / 2);
-            }
+            } while (m != j);
 
-            System.arraycopy(tmp, 0, data, offset + n2 * o, n2);
+            ends[cycles++] = count;
 
             while (isRowDone[j])
             {
                 j++;
             }
         } while (j < n1 - 1);
+
+        permuteRows(data, offset, n1, n2, rows, ends, cycles);
+    }
+
+    // Move the rows in each cycle of the permutation, each row gets the data of the next row in the cycle
+    // The permutation is the same for all columns so if the matrix doesn't fit in L2 cache, stripes of columns are permuted in parallel
+    private static void permuteRows(final double[] data, final int offset, int rowCount, final int rowLength, final int[] rows, final int[] ends, final int cycles)
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        int cacheTreshold = Util.round2down(ctx.getCacheL2Size() / 8);   // Size of matrix that fits in L2 cache
+        final int numberOfProcessors = ctx.getNumberOfProcessors();
+
+        if (numberOfProcessors > 1 && rowCount * rowLength > cacheTreshold)
+        {
+            ParallelRunnable parallelRunnable = new ParallelRunnable(rowLength)
+            {
+                public Runnable getRunnable(final int startColumn, final int columns)
+                {
+                    return new Runnable()
+                    {
+                        public void run()
+                        {
+                            moveRows(data, offset + startColumn, rowLength, columns, rows, ends, cycles);
+                        }
+                    };
+                }
+
+                protected long getPreferredBatchSize()
+                {
+                    // Wide stripes, since each stripe goes through all the rows of the matrix
+                    return rowLength / numberOfProcessors / 4;
+                }
+            };
+
+            ParallelRunner.runParallel(parallelRunnable);
+        }
+        else
+        {
+            moveRows(data, offset, rowLength, rowLength, rows, ends, cycles);
+        }
+    }
+
+    // Move the specified columns of the rows in each cycle of the permutation
+    private static void moveRows(double[] data, int offset, int rowLength, int columns, int[] rows, int[] ends, int cycles)
+    {
+        double[] tmp = new double[columns];
+
+        for (int i = 0, start = 0; i < cycles; start = ends[i++])
+        {
+            int end = ends[i];
+
+            System.arraycopy(data, offset + rowLength * rows[start], tmp, 0, columns);
+
+            for (int k = start; k < end - 1; k++)
+            {
+                System.arraycopy(data, offset + rowLength * rows[k + 1], data, offset + rowLength * rows[k], columns);
+            }
+
+            System.arraycopy(tmp, 0, data, offset + rowLength * rows[end - 1], columns);
+        }
     }
 }
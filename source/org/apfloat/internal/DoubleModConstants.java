@@ -3,7 +3,7 @@ package org.apfloat.internal;
 /**
  * Constants needed for various modular arithmetic operations for the <code>double</code> type.
  *
- * @version 1.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -11,22 +11,22 @@ public interface DoubleModConstants
 {
     /**
      * Moduli to be used in number theoretic transforms.
-     * Allows transform lengths upto 3*2<sup>43</sup>.
+     * Allows transform lengths upto 15*2<sup>38</sup>, including transform lengths with a factor of five.
      */
 
-    public static final double MODULUS[] = { 1952732650930177.0, 1899956092796929.0, 1636073302130689.0 };
+    public static final double MODULUS[] = { 1958505086976001.0, 1814194185830401.0, 1682252790497281.0 };
 
     /**
      * Primitive roots for the corresponding moduli.
      */
 
-    public static final double PRIMITIVE_ROOT[] = { 5.0, 7.0, 17.0 };
+    public static final double PRIMITIVE_ROOT[] = { 13.0, 13.0, 11.0 };
 
     /**
      * Maximum transform length for the moduli.
      */
 
-    public static final long MAX_TRANSFORM_LENGTH = 26388279066624L;
+    public static final long MAX_TRANSFORM_LENGTH = 4123168604160L;
 
     /**
      * Maximum bits in a power-of-two base that fits in a <code>double</code>.
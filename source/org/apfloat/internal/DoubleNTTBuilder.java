@@ -3,6 +3,7 @@ package org.apfloat.internal;
 import org.apfloat.spi.NTTStrategy;
 import org.apfloat.spi.NTTStepStrategy;
 import org.apfloat.spi.Factor3NTTStepStrategy;
+import org.apfloat.spi.Factor5NTTStepStrategy;
 import org.apfloat.spi.NTTConvolutionStepStrategy;
 
 /**
@@ -13,8 +14,9 @@ import org.apfloat.spi.NTTConvolutionStepStrategy;
  * @see SixStepFNTStrategy
  * @see TwoPassFNTStrategy
  * @see Factor3NTTStrategy
+ * @see Factor5NTTStrategy
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -44,6 +46,11 @@ public class DoubleNTTBuilder
         return new DoubleFactor3NTTStepStrategy();
     }
 
+    public Factor5NTTStepStrategy createFactor5NTTSteps()
+    {
+        return new DoubleFactor5NTTStepStrategy();
+    }
+
     protected NTTStrategy createSimpleFNTStrategy()
     {
         return new DoubleTableFNTStrategy();
@@ -12,7 +12,7 @@ import static org.apfloat.internal.DoubleModConstants.*;
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -59,11 +59,67 @@ public class DoubleNTTStepStrategy
         private int[] permutationTable;
     }
 
+    // Runnable for convoluting the rows in parallel
+    private class ConvoluteRowsRunnable
+        implements Runnable
+    {
+        public ConvoluteRowsRunnable(int length, ArrayAccess arrayAccess, ArrayAccess source, double[] wTable, double[] inverseWTable)
+        {
+            this.length = length;               // Transform length
+            this.arrayAccess = arrayAccess;
+            this.source = source;
+            this.wTable = wTable;
+            this.inverseWTable = inverseWTable;
+        }
+
+        public void run()
+        {
+            int maxI = this.arrayAccess.getLength();
+
+            for (int i = 0; i < maxI; i += this.length)
+            {
+                ArrayAccess arrayAccess = this.arrayAccess.subsequence(i, this.length);
+
+                tableFNT(arrayAccess, this.wTable, null);
+
+                double[] data = arrayAccess.getDoubleData();
+                int offset = arrayAccess.getOffset();
+
+                if (this.source == null)
+                {
+                    for (int j = offset; j < offset + this.length; j++)
+                    {
+                        double value = data[j];
+                        data[j] = modMultiply(value, value);
+                    }
+                }
+                else
+                {
+                    double[] src = this.source.getDoubleData();
+                    int srcOffset = this.source.getOffset() + i - offset;
+
+                    for (int j = offset; j < offset + this.length; j++)
+                    {
+                        data[j] = modMultiply(data[j], src[srcOffset + j]);
+                    }
+                }
+
+                inverseTableFNT(arrayAccess, this.inverseWTable, null);
+            }
+        }
+
+        private int length;
+        private ArrayAccess arrayAccess;
+        private ArrayAccess source;
+        private double[] wTable;
+        private double[] inverseWTable;
+    }
+
     // Runnable for multiplying elements in the matrix
     private class MultiplyRunnable
         implements Runnable
     {
-        public MultiplyRunnable(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, double w, double scaleFactor)
+        public MultiplyRunnable(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, double w, double scaleFactor, boolean scrambled, int rowShift)
         {
             this.arrayAccess = arrayAccess;
             this.startRow = startRow;
@@ -72,6 +128,8 @@ public class DoubleNTTStepStrategy
             this.columns = columns;
             this.w = w;
             this.scaleFactor = scaleFactor;
+            this.scrambled = scrambled;
+            this.rowShift = rowShift;
         }
 
         public void run()
@@ -84,6 +142,14 @@ public class DoubleNTTStepStrategy
 
             for (int i = 0; i < this.rows; i++)
             {
+                if (this.scrambled)
+                {
+                    // The rows are in bit-reversed order, so get the power from the actual row index
+                    int row = Integer.reverse(this.startRow + i) >>> this.rowShift;
+                    rowFactor = modPow(this.w, (double) row);
+                    rowStartFactor = modMultiply(this.scaleFactor, modPow(rowFactor, (double) this.startColumn));
+                }
+
                 double factor = rowStartFactor;
 
                 for (int j = 0; j < this.columns; j++, position++)
@@ -104,6 +170,8 @@ public class DoubleNTTStepStrategy
         private int columns;
         private double w;
         private double scaleFactor;
+        private boolean scrambled;
+        private int rowShift;
     }
 
     /**
@@ -117,7 +185,13 @@ public class DoubleNTTStepStrategy
     public void multiplyElements(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
         throws ApfloatRuntimeException
     {
-        ParallelRunnable parallelRunnable = createMultiplyElementsParallelRunnable(arrayAccess, startRow, startColumn, rows, columns, length, totalTransformLength, isInverse, modulus);
+        multiplyElements(arrayAccess, startRow, startColumn, rows, columns, length, totalTransformLength, isInverse, false, modulus);
+    }
+
+    public void multiplyElements(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, long length, long totalTransformLength, boolean isInverse, boolean scrambled, int modulus)
+        throws ApfloatRuntimeException
+    {
+        ParallelRunnable parallelRunnable = createMultiplyElementsParallelRunnable(arrayAccess, startRow, startColumn, rows, columns, length, totalTransformLength, isInverse, scrambled, modulus);
 
         ParallelRunner.runParallel(parallelRunnable);
     }
@@ -130,6 +204,14 @@ public class DoubleNTTStepStrategy
         ParallelRunner.runParallel(parallelRunnable);
     }
 
+    public void convoluteRows(ArrayAccess arrayAccess, ArrayAccess source, int length, int count, int modulus)
+        throws ApfloatRuntimeException
+    {
+        ParallelRunnable parallelRunnable = createConvoluteRowsParallelRunnable(arrayAccess, source, length, count, modulus);
+
+        ParallelRunner.runParallel(parallelRunnable);
+    }
+
     public long getMaxTransformLength()
     {
         return MAX_TRANSFORM_LENGTH;
@@ -151,7 +233,33 @@ public class DoubleNTTStepStrategy
      * @return An object suitable for multiplying the elements of the matrix in parallel.
      */
 
-    protected ParallelRunnable createMultiplyElementsParallelRunnable(final ArrayAccess arrayAccess, final int startRow, final int startColumn, final int rows, final int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
+    protected ParallelRunnable createMultiplyElementsParallelRunnable(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
+        throws ApfloatRuntimeException
+    {
+        return createMultiplyElementsParallelRunnable(arrayAccess, startRow, startColumn, rows, columns, length, totalTransformLength, isInverse, false, modulus);
+    }
+
+    /**
+     * Create a ParallelRunnable object for multiplying the elements of the matrix,
+     * where the rows of the matrix can be in scrambled order.
+     *
+     * @param arrayAccess The memory array to multiply.
+     * @param startRow Which row in the whole matrix the starting row in the <code>arrayAccess</code> is.
+     * @param startColumn Which column in the whole matrix the starting column in the <code>arrayAccess</code> is.
+     * @param rows The number of rows in the <code>arrayAccess</code> to multiply.
+     * @param columns The number of columns in the matrix (= n<sub>2</sub>).
+     * @param length The length of data in the matrix being transformed.
+     * @param totalTransformLength The total transform length, for the scaling factor. Used only for the inverse case.
+     * @param isInverse If the multiplication is done for the inverse transform or not.
+     * @param scrambled If the rows of the whole matrix are in bit-reversed order.
+     * @param modulus Index of the modulus.
+     *
+     * @return An object suitable for multiplying the elements of the matrix in parallel.
+     *
+     * @since 1.9.0
+     */
+
+    protected ParallelRunnable createMultiplyElementsParallelRunnable(final ArrayAccess arrayAccess, final int startRow, final int startColumn, final int rows, final int columns, long length, long totalTransformLength, boolean isInverse, final boolean scrambled, int modulus)
         throws ApfloatRuntimeException
     {
         setModulus(MODULUS[modulus]);
@@ -162,12 +270,14 @@ public class DoubleNTTStepStrategy
                                      modDivide((double) 1, (double) totalTransformLength) :
                                      (double) 1);
 
+        final int rowShift = Integer.numberOfLeadingZeros((int) (length / columns)) + 1;   // For reversing the bits of a row index
+
         ParallelRunnable parallelRunnable = new ParallelRunnable(rows)
         {
             public Runnable getRunnable(int strideStartRow, int strideRows)
             {
                 ArrayAccess subArrayAccess = arrayAccess.subsequence(strideStartRow * columns, strideRows * columns);
-                return new MultiplyRunnable(subArrayAccess, startRow + strideStartRow, startColumn, strideRows, columns, w, scaleFactor);
+                return new MultiplyRunnable(subArrayAccess, startRow + strideStartRow, startColumn, strideRows, columns, w, scaleFactor, scrambled, rowShift);
             }
         };
 
@@ -194,7 +304,7 @@ public class DoubleNTTStepStrategy
         final double[] wTable = (isInverse ?
                                   DoubleWTables.getInverseWTable(modulus, length) :
                                   DoubleWTables.getWTable(modulus, length));
-        final int[] permutationTable = (permute ? Scramble.createScrambleTable(length) : null);
+        final int[] permutationTable = (permute ? Scramble.getScrambleTable(length) : null);
 
         ParallelRunnable parallelRunnable = new ParallelRunnable(count)
         {
@@ -207,4 +317,38 @@ public class DoubleNTTStepStrategy
 
         return parallelRunnable;
     }
+
+    /**
+     * Create a ParallelRunnable object for convoluting the rows of the matrix.
+     *
+     * @param arrayAccess The memory array to split to rows and to convolute.
+     * @param source The transformed data to multiply with, or <code>null</code> if the elements should be squared instead.
+     * @param length Length of one transform (one row).
+     * @param count Number of rows.
+     * @param modulus Index of the modulus.
+     *
+     * @return An object suitable for convoluting the rows of the matrix in parallel.
+     *
+     * @since 1.9.0
+     */
+
+    protected ParallelRunnable createConvoluteRowsParallelRunnable(final ArrayAccess arrayAccess, final ArrayAccess source, final int length, int count, int modulus)
+        throws ApfloatRuntimeException
+    {
+        setModulus(MODULUS[modulus]);
+        final double[] wTable = DoubleWTables.getWTable(modulus, length),
+                       inverseWTable = DoubleWTables.getInverseWTable(modulus, length);
+
+        ParallelRunnable parallelRunnable = new ParallelRunnable(count)
+        {
+            public Runnable getRunnable(int startIndex, int strideCount)
+            {
+                ArrayAccess subArrayAccess = arrayAccess.subsequence(startIndex * length, strideCount * length),
+                            subSource = (source == null ? null : source.subsequence(startIndex * length, strideCount * length));
+                return new ConvoluteRowsRunnable(length, subArrayAccess, subSource, wTable, inverseWTable);
+            }
+        };
+
+        return parallelRunnable;
+    }
 }
@@ -7,10 +7,15 @@ import org.apfloat.spi.ArrayAccess;
  * Fast Number Theoretic Transform that uses lookup tables
  * for powers of n:th root of unity and permutation indexes.<p>
  *
+ * The transforms use radix-4 steps, so the data is processed in
+ * about half as many passes as with radix-2 steps. If the transform
+ * length is an odd power of two, one radix-2 step is also done, where
+ * no multiplications are needed.<p>
+ *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -51,39 +56,81 @@ public class DoubleTableFNT
             return;
         }
 
+        // Radix-4 steps, each combining two radix-2 steps into one pass over the data
+
         r = 1;
         mmax = nn >> 1;
-        while (mmax > 0)
+        while (mmax > 1)
         {
             istep = mmax << 1;
 
+            int quarter = mmax >> 1;
+            double w4 = wTable[nn >> 2];                                    // Fourth root of unity
+
             // Optimize first step when wr = 1
 
             for (int i = offset; i < offset + nn; i += istep)
             {
-                int j = i + mmax;
-                double a = data[i];
-                double b = data[j];
-                data[i] = modAdd(a, b);
-                data[j] = modSubtract(a, b);
+                int i1 = i + quarter,
+                    i2 = i1 + quarter,
+                    i3 = i2 + quarter;
+                double a0 = data[i],
+                       a1 = data[i1],
+                       a2 = data[i2],
+                       a3 = data[i3],
+                       b0 = modAdd(a0, a2),
+                       b1 = modAdd(a1, a3),
+                       b2 = modSubtract(a0, a2),
+                       b3 = modMultiply(w4, modSubtract(a1, a3));
+                data[i] = modAdd(b0, b1);
+                data[i1] = modSubtract(b0, b1);
+                data[i2] = modAdd(b2, b3);
+                data[i3] = modSubtract(b2, b3);
             }
 
-            int t = r;
+            int t1 = r,
+                t2 = r << 1,
+                t3 = t1 + t2;
 
-            for (int m = 1; m < mmax; m++)
+            for (int m = 1; m < quarter; m++)
             {
                 for (int i = offset + m; i < offset + nn; i += istep)
                 {
-                    int j = i + mmax;
-                    double a = data[i];
-                    double b = data[j];
-                    data[i] = modAdd(a, b);
-                    data[j] = modMultiply(wTable[t], modSubtract(a, b));
+                    int i1 = i + quarter,
+                        i2 = i1 + quarter,
+                        i3 = i2 + quarter;
+                    double a0 = data[i],
+                           a1 = data[i1],
+                           a2 = data[i2],
+                           a3 = data[i3],
+                           b0 = modAdd(a0, a2),
+                           b1 = modAdd(a1, a3),
+                           b2 = modSubtract(a0, a2),
+                           b3 = modMultiply(w4, modSubtract(a1, a3));
+                    data[i] = modAdd(b0, b1);
+                    data[i1] = modMultiply(wTable[t2], modSubtract(b0, b1));
+                    data[i2] = modMultiply(wTable[t1], modAdd(b2, b3));
+                    data[i3] = modMultiply(wTable[t3], modSubtract(b2, b3));
                 }
-                t += r;
+                t1 += r;
+                t2 += r << 1;
+                t3 += r * 3;
+            }
+            r <<= 2;
+            mmax >>= 2;
+        }
+
+        if (mmax == 1)
+        {
+            // Last radix-2 step when the transform length is an odd power of two, wr = 1
+
+            for (int i = offset; i < offset + nn; i += 2)
+            {
+                double a = data[i];
+                double b = data[i + 1];
+                data[i] = modAdd(a, b);
+                data[i + 1] = modSubtract(a, b);
             }
-            r <<= 1;
-            mmax >>= 1;
         }
 
         if (permutationTable != null)
@@ -125,33 +172,78 @@ public class DoubleTableFNT
 
         r = nn;
         mmax = 1;
+
+        if ((Integer.numberOfTrailingZeros(nn) & 1) != 0)
+        {
+            // First radix-2 step when the transform length is an odd power of two, w = 1
+
+            for (int i = offset; i < offset + nn; i += 2)
+            {
+                double wTemp = data[i + 1];
+                data[i + 1] = modSubtract(data[i], wTemp);
+                data[i] = modAdd(data[i], wTemp);
+            }
+            r = nn >> 1;
+            mmax = 2;
+        }
+
+        // Radix-4 steps, each combining two radix-2 steps into one pass over the data
+
         while (nn > mmax)
         {
-            istep = mmax << 1;
-            r >>= 1;
+            istep = mmax << 2;
+            r >>= 2;
+
+            double w4 = wTable[nn >> 2];                                    // Fourth root of unity
 
             // Optimize first step when w = 1
 
             for (int i = offset; i < offset + nn; i += istep)
             {
-                int j = i + mmax;
-                double wTemp = data[j];
-                data[j] = modSubtract(data[i], wTemp);
-                data[i] = modAdd(data[i], wTemp);
+                int i1 = i + mmax,
+                    i2 = i1 + mmax,
+                    i3 = i2 + mmax;
+                double a0 = data[i],
+                       a1 = data[i1],
+                       a2 = data[i2],
+                       a3 = data[i3],
+                       b0 = modAdd(a0, a1),
+                       b1 = modSubtract(a0, a1),
+                       b2 = modAdd(a2, a3),
+                       b3 = modMultiply(w4, modSubtract(a2, a3));
+                data[i] = modAdd(b0, b2);
+                data[i1] = modAdd(b1, b3);
+                data[i2] = modSubtract(b0, b2);
+                data[i3] = modSubtract(b1, b3);
             }
 
-            int t = r;
+            int t1 = r,
+                t2 = r << 1,
+                t3 = t1 + t2;
 
             for (int m = 1; m < mmax; m++)
             {
                 for (int i = offset + m; i < offset + nn; i += istep)
                 {
-                    int j = i + mmax;
-                    double wTemp = modMultiply(wTable[t], data[j]);
-                    data[j] = modSubtract(data[i], wTemp);
-                    data[i] = modAdd(data[i], wTemp);
+                    int i1 = i + mmax,
+                        i2 = i1 + mmax,
+                        i3 = i2 + mmax;
+                    double a0 = data[i],
+                           a1 = modMultiply(wTable[t2], data[i1]),
+                           a2 = modMultiply(wTable[t1], data[i2]),
+                           a3 = modMultiply(wTable[t3], data[i3]),
+                           b0 = modAdd(a0, a1),
+                           b1 = modSubtract(a0, a1),
+                           b2 = modAdd(a2, a3),
+                           b3 = modMultiply(w4, modSubtract(a2, a3));
+                    data[i] = modAdd(b0, b2);
+                    data[i1] = modAdd(b1, b3);
+                    data[i2] = modSubtract(b0, b2);
+                    data[i3] = modSubtract(b1, b3);
                 }
-                t += r;
+                t1 += r;
+                t2 += r << 1;
+                t3 += r * 3;
             }
             mmax = istep;
         }
@@ -0,0 +1,357 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorageBuilder;
+import org.apfloat.spi.DataStorage;
+
+/**
+ * Convolution strategy using the Toom-Cook 3-way algorithm.
+ * The complexity of the algorithm is O(n<sup>log(5)/log(3)</sup>) as
+ * the operands are split to three parts and multiplied using five
+ * multiplications of the parts. This splitting is done recursively
+ * until some cut-off point where the Karatsuba algorithm is applied.
+ * The Toom-Cook algorithm has more overhead than the Karatsuba algorithm
+ * but it is faster for numbers that are larger than some certain size.<p>
+ *
+ * The operands are considered as polynomials of which the parts are
+ * the coefficients. The polynomials are evaluated at the points
+ * 0, 1, 2, ... and infinity and the values are multiplied. The
+ * coefficients of the product polynomial are then interpolated
+ * from the products. Only non-negative evaluation points are used,
+ * so that all the intermediate values in the evaluation and interpolation
+ * are non-negative and no signed arithmetic is needed.<p>
+ *
+ * Short products and operands of very different sizes are handled with
+ * the Karatsuba algorithm, which again uses this algorithm recursively
+ * for the sub-products when they are large enough.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class DoubleToomCook3ConvolutionStrategy
+    extends DoubleKaratsubaConvolutionStrategy
+{
+    /**
+     * Cut-off point for Toom-Cook 3-way / Karatsuba convolution.<p>
+     *
+     * Convolutions where the shorter number is at most this long
+     * are calculated using the Karatsuba algorithm
+     * i.e. <code>super.convolute()</code>.
+     */
+
+    public static final int CUTOFF_POINT = 150;
+
+    /**
+     * Creates a convolution strategy using the specified radix.
+     *
+     * @param radix The radix that will be used.
+     */
+
+    public DoubleToomCook3ConvolutionStrategy(int radix)
+    {
+        super(radix);
+    }
+
+    /**
+     * Creates a convolution strategy using the specified radix and Karatsuba cut-off point.
+     *
+     * @param radix The radix that will be used.
+     * @param karatsubaCutoffPoint The cut-off point for Karatsuba / basic convolution, used instead of {@link DoubleKaratsubaConvolutionStrategy#CUTOFF_POINT}.
+     *
+     * @since 1.9.0
+     */
+
+    public DoubleToomCook3ConvolutionStrategy(int radix, int karatsubaCutoffPoint)
+    {
+        super(radix, karatsubaCutoffPoint);
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        if (!isToomCookConvolution(x, y, resultSize, 3, CUTOFF_POINT))
+        {
+            return super.convolute(x, y, resultSize);
+        }
+
+        return toomCookConvolute(x, y, 3);
+    }
+
+    /**
+     * Checks if the Toom-Cook algorithm can be used for the convolution.
+     * The numbers must be long enough, the full product must be needed,
+     * and the shorter number must have a non-empty part for every coefficient
+     * when split to parts of the size determined by the longer number.
+     *
+     * @param x First data set.
+     * @param y Second data set.
+     * @param resultSize Number of elements needed in the result data.
+     * @param parts The number of parts that the operands are split to.
+     * @param cutoffPoint The shortest size of the shorter number for which the algorithm should be used.
+     *
+     * @return If the Toom-Cook algorithm should be used.
+     */
+
+    protected boolean isToomCookConvolution(DataStorage x, DataStorage y, long resultSize, int parts, int cutoffPoint)
+    {
+        long shortSize = Math.min(x.getSize(), y.getSize()),
+             longSize = Math.max(x.getSize(), y.getSize()),
+             partSize = (longSize + parts - 1) / parts;
+
+        return (shortSize > cutoffPoint && resultSize + 2 >= shortSize + longSize && shortSize > (parts - 1) * partSize);
+    }
+
+    /**
+     * Convolutes the data sets using the Toom-Cook algorithm.
+     * The sub-products are calculated recursively with {@link #convolute(DataStorage,DataStorage,long)}.
+     *
+     * @param x First data set.
+     * @param y Second data set.
+     * @param parts The number of parts that the operands are split to.
+     *
+     * @return The full convolved data.
+     */
+
+    protected DataStorage toomCookConvolute(DataStorage x, DataStorage y, int parts)
+        throws ApfloatRuntimeException
+    {
+        boolean isSquare = (x == y);
+
+        DataStorage shortStorage, longStorage;
+
+        if (x.getSize() > y.getSize())
+        {
+            shortStorage = y;
+            longStorage = x;
+        }
+        else
+        {
+            shortStorage = x;
+            longStorage = y;
+        }
+
+        int points = 2 * parts - 1,                     // Evaluation points 0, 1, ..., points - 2, and infinity
+            values = points - 2;                        // Number of points other than zero and infinity
+
+        long shortSize = shortStorage.getSize(),
+             longSize = longStorage.getSize(),
+             size = shortSize + longSize,
+             partSize = (longSize + parts - 1) / parts,
+             valueSize = 2 * partSize + 2;              // Enough for the products of the evaluated parts and for all the interpolated values
+
+        DataStorage[] longParts = split(longStorage, parts, partSize),
+                      shortParts = (isSquare ? longParts : split(shortStorage, parts, partSize));
+
+        // Products of the evaluated parts; the coefficients of the product at zero and infinity are the products of the lowest and highest parts
+        DataStorage c0 = extend(convolute(longParts[0], shortParts[0], 2 * partSize), valueSize),
+                    cInfinity = extend(convolute(longParts[parts - 1], shortParts[parts - 1], longParts[parts - 1].getSize() + shortParts[parts - 1].getSize()), valueSize);
+
+        DataStorage[] v = new DataStorage[values];
+        for (int i = 0; i < values; i++)
+        {
+            int point = i + 1;
+            DataStorage a = evaluate(longParts, point, partSize + 1),
+                        b = (isSquare ? a : evaluate(shortParts, point, partSize + 1));
+            v[i] = extend(convolute(a, b, 2 * partSize + 2), valueSize);
+        }
+
+        // Subtract the known lowest and highest coefficients and divide by the point, to get the values of a polynomial of which the coefficients are all the unknown coefficients
+        for (int i = 0; i < values; i++)
+        {
+            int point = i + 1;
+            double power = (double) 1;
+            for (int j = 0; j < points - 1; j++)
+            {
+                power *= point;
+            }
+            subtract(v[i], c0, (double) 1);
+            subtract(v[i], cInfinity, power);
+            v[i] = divide(v[i], (double) point);
+        }
+
+        // Divided differences; all the intermediate polynomials have non-negative coefficients so all the values are non-negative
+        for (int j = 1; j < values; j++)
+        {
+            for (int i = j; i < values; i++)
+            {
+                subtract(v[i], v[j - 1], (double) 1);
+                v[i] = divide(v[i], (double) (i + 1 - j));
+            }
+        }
+
+        // Convert the Newton form of the polynomial to the coefficients
+        for (int j = values - 2; j >= 0; j--)
+        {
+            for (int i = j; i < values - 1; i++)
+            {
+                subtract(v[i], v[i + 1], (double) (j + 1));
+            }
+        }
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * 8);
+        resultStorage.setSize(size);
+
+        DataStorage.Iterator dst = resultStorage.iterator(DataStorage.WRITE, size, 0);
+        baseAdd(null, null, 0, dst, size);                              // Clear the result data
+
+        // Add the coefficients together at the appropriate positions
+        add(resultStorage, c0, 0);
+        for (int i = 0; i < values; i++)
+        {
+            add(resultStorage, v[i], (i + 1) * partSize);
+        }
+        add(resultStorage, cInfinity, (points - 1) * partSize);
+
+        return resultStorage;
+    }
+
+    // Split the data to parts, the least significant part first
+    private static DataStorage[] split(DataStorage x, int parts, long partSize)
+    {
+        long size = x.getSize();
+
+        DataStorage[] xParts = new DataStorage[parts];
+        for (int i = 0; i < parts - 1; i++)
+        {
+            xParts[i] = x.subsequence(size - (i + 1) * partSize, partSize);
+        }
+        xParts[parts - 1] = x.subsequence(0, size - (parts - 1) * partSize);
+
+        return xParts;
+    }
+
+    // Evaluate the polynomial with the parts as coefficients at the specified point
+    private DataStorage evaluate(DataStorage[] xParts, int point, long size)
+    {
+        DataStorage resultStorage = extend(xParts[0], size);
+
+        double power = (double) 1;
+        for (int i = 1; i < xParts.length; i++)
+        {
+            power *= point;
+
+            long partSize = xParts[i].getSize();
+
+            DataStorage.Iterator src1 = xParts[i].iterator(DataStorage.READ, partSize, 0),
+                                 src2 = resultStorage.iterator(DataStorage.READ_WRITE, size, 0),
+                                 dst = src2;
+
+            double carry = baseMultiplyAdd(src1, src2, power, 0, dst, partSize);
+            carry = baseAdd(src2, null, carry, dst, size - partSize);
+
+            assert (carry == 0);
+        }
+
+        return resultStorage;
+    }
+
+    // Return x with the specified size, padded with zeros at the most significant end
+    private DataStorage extend(DataStorage x, long size)
+    {
+        long xSize = x.getSize();
+
+        assert (xSize <= size);
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * 8);
+        resultStorage.setSize(size);
+
+        DataStorage.Iterator src = x.iterator(DataStorage.READ, xSize, 0),
+                             dst = resultStorage.iterator(DataStorage.WRITE, size, 0);
+
+        baseAdd(src, null, 0, dst, xSize);
+        baseAdd(null, null, 0, dst, size - xSize);
+
+        return resultStorage;
+    }
+
+    // x1 -= x2 * factor, where x1 and x2 have the same size and the result is known to be non-negative
+    private void subtract(DataStorage x1, DataStorage x2, double factor)
+    {
+        long size = x1.getSize();
+
+        assert (x2.getSize() == size);
+
+        if (factor != 1)
+        {
+            ApfloatContext ctx = ApfloatContext.getContext();
+            DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
+            DataStorage tmpStorage = dataStorageBuilder.createDataStorage(size * 8);
+            tmpStorage.setSize(size);
+
+            DataStorage.Iterator src = x2.iterator(DataStorage.READ, size, 0),
+                                 dst = tmpStorage.iterator(DataStorage.WRITE, size, 0);
+
+            double carry = baseMultiplyAdd(src, null, factor, 0, dst, size);
+
+            assert (carry == 0);
+
+            x2 = tmpStorage;
+        }
+
+        DataStorage.Iterator src1 = x1.iterator(DataStorage.READ_WRITE, size, 0),
+                             src2 = x2.iterator(DataStorage.READ, size, 0),
+                             dst = src1;
+
+        double carry = baseSubtract(src1, src2, 0, dst, size);
+
+        assert (carry == 0);
+    }
+
+    // Return x / divisor, where the division is known to be exact
+    private DataStorage divide(DataStorage x, double divisor)
+    {
+        if (divisor == 1)
+        {
+            return x;
+        }
+
+        long size = x.getSize();
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        DataStorageBuilder dataStorageBuilder = ctx.getBuilderFactory().getDataStorageBuilder();
+        DataStorage resultStorage = dataStorageBuilder.createDataStorage(size * 8);
+        resultStorage.setSize(size);
+
+        DataStorage.Iterator src = x.iterator(DataStorage.READ, 0, size),
+                             dst = resultStorage.iterator(DataStorage.WRITE, 0, size);
+
+        double remainder = baseDivide(src, divisor, 0, dst, size);
+
+        assert (remainder == 0);
+
+        return resultStorage;
+    }
+
+    // Add x to the result data, starting from the specified offset from the least significant end
+    private void add(DataStorage resultStorage, DataStorage x, long offset)
+    {
+        long resultSize = resultStorage.getSize(),
+             size = Math.min(resultSize - offset, x.getSize());
+
+        DataStorage.Iterator src1 = resultStorage.iterator(DataStorage.READ_WRITE, resultSize - offset, 0),
+                             src2 = x.iterator(DataStorage.READ, x.getSize(), 0),
+                             dst = src1;
+
+        double carry = baseAdd(src1, src2, 0, dst, size);
+
+        // Propagate the carry only as far as needed
+        for (long i = resultSize - offset - size; i > 0 && carry != 0; i--)
+        {
+            carry = baseAdd(src1, null, carry, dst, 1);
+        }
+
+        assert (carry == 0);
+
+        src1.close();                                                   // Iterator likely was not iterated to end
+        src2.close();
+    }
+
+    private static final long serialVersionUID = 8785356068037452444L;
+}
@@ -0,0 +1,70 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+
+/**
+ * Convolution strategy using the Toom-Cook 4-way algorithm.
+ * The complexity of the algorithm is O(n<sup>log(7)/log(4)</sup>) as
+ * the operands are split to four parts and multiplied using seven
+ * multiplications of the parts. This splitting is done recursively
+ * until some cut-off point where the Toom-Cook 3-way algorithm is applied.
+ *
+ * @see DoubleToomCook3ConvolutionStrategy
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class DoubleToomCook4ConvolutionStrategy
+    extends DoubleToomCook3ConvolutionStrategy
+{
+    /**
+     * Cut-off point for Toom-Cook 4-way / 3-way convolution.<p>
+     *
+     * Convolutions where the shorter number is at most this long
+     * are calculated using the Toom-Cook 3-way algorithm
+     * i.e. <code>super.convolute()</code>.
+     */
+
+    public static final int CUTOFF_POINT = 400;
+
+    /**
+     * Creates a convolution strategy using the specified radix.
+     *
+     * @param radix The radix that will be used.
+     */
+
+    public DoubleToomCook4ConvolutionStrategy(int radix)
+    {
+        super(radix);
+    }
+
+    /**
+     * Creates a convolution strategy using the specified radix and Karatsuba cut-off point.
+     *
+     * @param radix The radix that will be used.
+     * @param karatsubaCutoffPoint The cut-off point for Karatsuba / basic convolution, used instead of {@link DoubleKaratsubaConvolutionStrategy#CUTOFF_POINT}.
+     *
+     * @since 1.9.0
+     */
+
+    public DoubleToomCook4ConvolutionStrategy(int radix, int karatsubaCutoffPoint)
+    {
+        super(radix, karatsubaCutoffPoint);
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        if (!isToomCookConvolution(x, y, resultSize, 4, CUTOFF_POINT))
+        {
+            return super.convolute(x, y, resultSize);
+        }
+
+        return toomCookConvolute(x, y, 4);
+    }
+
+    private static final long serialVersionUID = -3881023613069443411L;
+}
@@ -1,17 +1,14 @@
 package org.apfloat.internal;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.ConcurrentMap;
-
 import org.apfloat.internal.DoubleModMath;
 import static org.apfloat.internal.DoubleModConstants.*;
 
 /**
  * Helper class for generating and caching tables of powers of the n:th root of unity.
+ * The tables are stored in the shared {@link TableCache}.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -51,10 +48,30 @@ public class DoubleWTables
         return getWTable(modulus, length, true);
     }
 
+    /**
+     * Precompute the tables for transforms of the specified length for all moduli,
+     * so that they are not calculated later during the transforms. The length is
+     * the length of the table transforms, e.g. the length of the rows in the
+     * six-step transform.
+     *
+     * @param length The length of the tables, i.e. n.
+     *
+     * @since 1.9.0
+     */
+
+    public static void precomputeTables(int length)
+    {
+        for (int modulus = 0; modulus < MODULUS.length; modulus++)
+        {
+            getWTable(modulus, length, false);
+            getWTable(modulus, length, true);
+        }
+    }
+
     private static double[] getWTable(int modulus, int length, boolean isInverse)
     {
-        List<Integer> key = Arrays.asList(isInverse ? 1 : 0, modulus, length);
-        double[] wTable = DoubleWTables.cache.get(key);
+        String name = (isInverse ? "DoubleInverseWTable" : "DoubleWTable");
+        double[] wTable = (double[]) TableCache.get(name, modulus, length);
         // Do not synchronize, multiple threads may do this at the same time, but only one gets to put the value in the cache
         if (wTable == null)
         {
@@ -64,7 +81,7 @@ public class DoubleWTables
                          instance.getForwardNthRoot(PRIMITIVE_ROOT[modulus], length));  // Forward n:th root
             wTable = instance.createWTable(w, length);
             // Check if another thread already put the wTable in the cache; if so then use it
-            double[] value = DoubleWTables.cache.putIfAbsent(key, wTable);
+            double[] value = (double[]) TableCache.putIfAbsent(name, modulus, length, wTable);
             if (value != null)
             {
                 // Another thread did put the value in the cache so use it
@@ -80,7 +97,4 @@ public class DoubleWTables
         instance.setModulus(MODULUS[modulus]);
         return instance;
     }
-
-    // With inverses, three moduli and lengths being powers of two, the theoretical maximum map size is 2 * 3 * 30 = 180 entries
-    private static ConcurrentMap<List<Integer>, double[]> cache = new ConcurrentSoftHashMap<List<Integer>, double[]>();
 }
@@ -3,6 +3,8 @@ package org.apfloat.internal;
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.FusedNTTStrategy;
+import org.apfloat.spi.NTTConvolutionStepStrategy;
 import org.apfloat.spi.Factor3NTTStepStrategy;
 import org.apfloat.spi.DataStorage;
 import org.apfloat.spi.Util;
@@ -10,17 +12,21 @@ import org.apfloat.spi.Util;
 /**
  * A transform that implements a 3-point transform on
  * top of another Number Theoretic Transform that does
- * transforms of length 2<sup>n</sup>.
+ * transforms of length 2<sup>n</sup>.<p>
+ *
+ * In a convolution the element-by-element multiplication can be done separately
+ * for each of the three parts, between the row transforms, so if the underlying
+ * transform is a {@link FusedNTTStrategy} it can convolute each part in one operation.
  *
  * @see Factor3NTTStepStrategy
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class Factor3NTTStrategy
-    implements NTTStrategy, Parallelizable
+    implements FusedNTTStrategy, Parallelizable
 {
     /**
      * Creates a new factor-3 transform strategy on top of an existing transform.
@@ -107,6 +113,44 @@ public class Factor3NTTStrategy
         }
     }
 
+    public void convoluteInPlace(DataStorage dataStorage, DataStorage transformedSource, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize(),
+             power2length = (length & -length);
+
+        if (Math.max(length, totalTransformLength) > this.stepStrategy.getMaxTransformLength())
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + Math.max(length, totalTransformLength) + " > " + this.stepStrategy.getMaxTransformLength());
+        }
+
+        if (length == power2length)
+        {
+            // Transform length is a power of two
+            convoluteInPlace(this.factor2Strategy, dataStorage, transformedSource, modulus, totalTransformLength);
+        }
+        else
+        {
+            // Transform length is three times a power of two
+            assert (length == 3 * power2length);
+
+            DataStorage dataStorage0 = dataStorage.subsequence(0, power2length),
+                        dataStorage1 = dataStorage.subsequence(power2length, power2length),
+                        dataStorage2 = dataStorage.subsequence(2 * power2length, power2length);
+
+            // Transform the columns
+            this.stepStrategy.transformColumns(dataStorage0, dataStorage1, dataStorage2, 0, power2length, power2length, length, false, modulus);
+
+            // Convolute the rows, each with the corresponding part of the transformed source data
+            convoluteInPlace(this.factor2Strategy, dataStorage0, subsequence(transformedSource, 0, power2length), modulus, totalTransformLength);
+            convoluteInPlace(this.factor2Strategy, dataStorage1, subsequence(transformedSource, power2length, power2length), modulus, totalTransformLength);
+            convoluteInPlace(this.factor2Strategy, dataStorage2, subsequence(transformedSource, 2 * power2length, power2length), modulus, totalTransformLength);
+
+            // Transform the columns
+            this.stepStrategy.transformColumns(dataStorage0, dataStorage1, dataStorage2, 0, power2length, power2length, length, true, modulus);
+        }
+    }
+
     public long getTransformLength(long size)
     {
         // Calculates the needed transform length, that is
@@ -114,6 +158,58 @@ public class Factor3NTTStrategy
         return Util.round23up(size);
     }
 
+    /**
+     * Convolute the data using the specified transform. If the transform can't
+     * do the convolution in one operation, the data is transformed, multiplied
+     * and inverse transformed in separate steps.
+     *
+     * @param nttStrategy The transform to use.
+     * @param dataStorage The data to be convoluted.
+     * @param transformedSource The transformed data to multiply with, or <code>null</code> if the data should be squared.
+     * @param modulus Index of the modulus.
+     * @param totalTransformLength Total transform length.
+     */
+
+    static void convoluteInPlace(NTTStrategy nttStrategy, DataStorage dataStorage, DataStorage transformedSource, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException
+    {
+        if (nttStrategy instanceof FusedNTTStrategy)
+        {
+            ((FusedNTTStrategy) nttStrategy).convoluteInPlace(dataStorage, transformedSource, modulus, totalTransformLength);
+        }
+        else
+        {
+            ApfloatContext ctx = ApfloatContext.getContext();
+            NTTConvolutionStepStrategy stepStrategy = ctx.getBuilderFactory().getNTTBuilder().createNTTConvolutionSteps();
+
+            nttStrategy.transform(dataStorage, modulus);
+            if (transformedSource == null)
+            {
+                stepStrategy.squareInPlace(dataStorage, modulus);
+            }
+            else
+            {
+                stepStrategy.multiplyInPlace(dataStorage, transformedSource, modulus);
+            }
+            nttStrategy.inverseTransform(dataStorage, modulus, totalTransformLength);
+        }
+    }
+
+    /**
+     * Get a subsequence of a data storage that can be <code>null</code>.
+     *
+     * @param dataStorage The data storage, or <code>null</code>.
+     * @param offset The subsequence starting position.
+     * @param length The subsequence length.
+     *
+     * @return The subsequence, or <code>null</code> if the data storage was <code>null</code>.
+     */
+
+    static DataStorage subsequence(DataStorage dataStorage, long offset, long length)
+    {
+        return (dataStorage == null ? null : dataStorage.subsequence(offset, length));
+    }
+
     private NTTStrategy factor2Strategy;
     private Factor3NTTStepStrategy stepStrategy;
 }
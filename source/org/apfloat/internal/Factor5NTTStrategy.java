@@ -0,0 +1,185 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.FusedNTTStrategy;
+import org.apfloat.spi.Factor5NTTStepStrategy;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.Util;
+
+/**
+ * A transform that implements a 5-point transform on
+ * top of another Number Theoretic Transform that does
+ * transforms of length 2<sup>n</sup> or 3*2<sup>n</sup>.<p>
+ *
+ * Together with the factor-3 transform this allows transform
+ * lengths 2<sup>n</sup>, 3*2<sup>n</sup>, 5*2<sup>n</sup> and 15*2<sup>n</sup>,
+ * so the transform length is at most 25% longer than needed,
+ * instead of 50% with only the factor-3 transform.
+ *
+ * @see Factor5NTTStepStrategy
+ * @see Factor3NTTStrategy
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class Factor5NTTStrategy
+    implements FusedNTTStrategy, Parallelizable
+{
+    /**
+     * Creates a new factor-5 transform strategy on top of an existing transform.
+     * The underlying transform needs to be capable of only doing transforms of
+     * length 2<sup>n</sup> and 3*2<sup>n</sup>.
+     *
+     * @param factor3Strategy The underlying transformation strategy, that can be capable of only doing radix-2 and factor-3 transforms.
+     */
+
+    public Factor5NTTStrategy(NTTStrategy factor3Strategy)
+    {
+        this.factor3Strategy = factor3Strategy;
+        ApfloatContext ctx = ApfloatContext.getContext();
+        this.stepStrategy = ctx.getBuilderFactory().getNTTBuilder().createFactor5NTTSteps();
+    }
+
+    public void transform(DataStorage dataStorage, int modulus)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize(),
+             factor3length = length / 5;
+
+        if (length > this.stepStrategy.getMaxTransformLength())
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + length + " > " + this.stepStrategy.getMaxTransformLength());
+        }
+
+        if (length != 5 * factor3length)
+        {
+            // Transform length is a power of two or three times a power of two
+            this.factor3Strategy.transform(dataStorage, modulus);
+        }
+        else
+        {
+            // Transform length is five times a power of two or fifteen times a power of two
+            DataStorage dataStorage0 = dataStorage.subsequence(0, factor3length),
+                        dataStorage1 = dataStorage.subsequence(factor3length, factor3length),
+                        dataStorage2 = dataStorage.subsequence(2 * factor3length, factor3length),
+                        dataStorage3 = dataStorage.subsequence(3 * factor3length, factor3length),
+                        dataStorage4 = dataStorage.subsequence(4 * factor3length, factor3length);
+
+            // Transform the columns
+            this.stepStrategy.transformColumns(dataStorage0, dataStorage1, dataStorage2, dataStorage3, dataStorage4, 0, factor3length, factor3length, length, false, modulus);
+
+            // Transform the rows
+            this.factor3Strategy.transform(dataStorage0, modulus);
+            this.factor3Strategy.transform(dataStorage1, modulus);
+            this.factor3Strategy.transform(dataStorage2, modulus);
+            this.factor3Strategy.transform(dataStorage3, modulus);
+            this.factor3Strategy.transform(dataStorage4, modulus);
+        }
+    }
+
+    public void inverseTransform(DataStorage dataStorage, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize(),
+             factor3length = length / 5;
+
+        if (Math.max(length, totalTransformLength) > this.stepStrategy.getMaxTransformLength())
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + Math.max(length, totalTransformLength) + " > " + this.stepStrategy.getMaxTransformLength());
+        }
+
+        if (length != 5 * factor3length)
+        {
+            // Transform length is a power of two or three times a power of two
+            this.factor3Strategy.inverseTransform(dataStorage, modulus, totalTransformLength);
+        }
+        else
+        {
+            // Transform length is five times a power of two or fifteen times a power of two
+            DataStorage dataStorage0 = dataStorage.subsequence(0, factor3length),
+                        dataStorage1 = dataStorage.subsequence(factor3length, factor3length),
+                        dataStorage2 = dataStorage.subsequence(2 * factor3length, factor3length),
+                        dataStorage3 = dataStorage.subsequence(3 * factor3length, factor3length),
+                        dataStorage4 = dataStorage.subsequence(4 * factor3length, factor3length);
+
+            // Transform the rows
+            this.factor3Strategy.inverseTransform(dataStorage0, modulus, totalTransformLength);
+            this.factor3Strategy.inverseTransform(dataStorage1, modulus, totalTransformLength);
+            this.factor3Strategy.inverseTransform(dataStorage2, modulus, totalTransformLength);
+            this.factor3Strategy.inverseTransform(dataStorage3, modulus, totalTransformLength);
+            this.factor3Strategy.inverseTransform(dataStorage4, modulus, totalTransformLength);
+
+            // Transform the columns
+            this.stepStrategy.transformColumns(dataStorage0, dataStorage1, dataStorage2, dataStorage3, dataStorage4, 0, factor3length, factor3length, length, true, modulus);
+        }
+    }
+
+    public void convoluteInPlace(DataStorage dataStorage, DataStorage transformedSource, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize(),
+             factor3length = length / 5;
+
+        if (Math.max(length, totalTransformLength) > this.stepStrategy.getMaxTransformLength())
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + Math.max(length, totalTransformLength) + " > " + this.stepStrategy.getMaxTransformLength());
+        }
+
+        if (length != 5 * factor3length)
+        {
+            // Transform length is a power of two or three times a power of two
+            Factor3NTTStrategy.convoluteInPlace(this.factor3Strategy, dataStorage, transformedSource, modulus, totalTransformLength);
+        }
+        else
+        {
+            // Transform length is five times a power of two or fifteen times a power of two
+            DataStorage dataStorage0 = dataStorage.subsequence(0, factor3length),
+                        dataStorage1 = dataStorage.subsequence(factor3length, factor3length),
+                        dataStorage2 = dataStorage.subsequence(2 * factor3length, factor3length),
+                        dataStorage3 = dataStorage.subsequence(3 * factor3length, factor3length),
+                        dataStorage4 = dataStorage.subsequence(4 * factor3length, factor3length);
+
+            // Transform the columns
+            this.stepStrategy.transformColumns(dataStorage0, dataStorage1, dataStorage2, dataStorage3, dataStorage4, 0, factor3length, factor3length, length, false, modulus);
+
+            // Convolute the rows, each with the corresponding part of the transformed source data
+            Factor3NTTStrategy.convoluteInPlace(this.factor3Strategy, dataStorage0, Factor3NTTStrategy.subsequence(transformedSource, 0, factor3length), modulus, totalTransformLength);
+            Factor3NTTStrategy.convoluteInPlace(this.factor3Strategy, dataStorage1, Factor3NTTStrategy.subsequence(transformedSource, factor3length, factor3length), modulus, totalTransformLength);
+            Factor3NTTStrategy.convoluteInPlace(this.factor3Strategy, dataStorage2, Factor3NTTStrategy.subsequence(transformedSource, 2 * factor3length, factor3length), modulus, totalTransformLength);
+            Factor3NTTStrategy.convoluteInPlace(this.factor3Strategy, dataStorage3, Factor3NTTStrategy.subsequence(transformedSource, 3 * factor3length, factor3length), modulus, totalTransformLength);
+            Factor3NTTStrategy.convoluteInPlace(this.factor3Strategy, dataStorage4, Factor3NTTStrategy.subsequence(transformedSource, 4 * factor3length, factor3length), modulus, totalTransformLength);
+
+            // Transform the columns
+            this.stepStrategy.transformColumns(dataStorage0, dataStorage1, dataStorage2, dataStorage3, dataStorage4, 0, factor3length, factor3length, length, true, modulus);
+        }
+    }
+
+    public long getTransformLength(long size)
+    {
+        return getTransformLength(size, this.stepStrategy.getMaxTransformLength());
+    }
+
+    /**
+     * Calculates the needed transform length, that is a power of two,
+     * or three, five or fifteen times a power of two. The power-of-two factor
+     * must not be greater than the power-of-two factor of the maximum
+     * transform length, as the moduli don't support larger powers of two.
+     *
+     * @param size The minimum transform length.
+     * @param maxTransformLength The maximum transform length that the moduli support.
+     *
+     * @return The transform length.
+     */
+
+    static long getTransformLength(long size, long maxTransformLength)
+    {
+        return Util.round235up(size, maxTransformLength & -maxTransformLength);
+    }
+
+    private NTTStrategy factor3Strategy;
+    private Factor5NTTStepStrategy stepStrategy;
+}
@@ -8,14 +8,14 @@ import org.apfloat.spi.DataStorage;
 import static org.apfloat.internal.FloatModConstants.*;
 
 /**
- * Class for performing the final steps of a three-modulus
+ * Class for performing the final steps of a three-modulus (or two-modulus)
  * Number Theoretic Transform based convolution. Works for the
  * <code>float</code> type.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -49,7 +49,7 @@ public class FloatCarryCRTStepStrategy
 
         DataStorage.Iterator src0 = resultMod0.iterator(DataStorage.READ, subStart, subEnd),
                              src1 = resultMod1.iterator(DataStorage.READ, subStart, subEnd),
-                             src2 = resultMod2.iterator(DataStorage.READ, subStart, subEnd),
+                             src2 = (resultMod2 == null ? null : resultMod2.iterator(DataStorage.READ, subStart, subEnd)),
                              dst = dataStorage.iterator(DataStorage.WRITE, subResultStart, subResultEnd);
 
         float[] carryResult = new float[3],
@@ -59,25 +59,43 @@ public class FloatCarryCRTStepStrategy
         // Preliminary carry-CRT calculation (happens in parallel in multiple blocks)
         for (long i = 0; i < length; i++)
         {
-            float y0 = MATH_MOD_0.modMultiply(T0, src0.getFloat()),
-                    y1 = MATH_MOD_1.modMultiply(T1, src1.getFloat()),
-                    y2 = MATH_MOD_2.modMultiply(T2, src2.getFloat());
-
-            multiply(M12, y0, sum);
-            multiply(M02, y1, tmp);
-
-            if (add(tmp, sum) != 0 ||
-                compare(sum, M012) >= 0)
+            if (src2 == null)
             {
-                subtract(M012, sum);
+                // Only two moduli are used
+                float y0 = MATH_MOD_0.modMultiply(T0_01, src0.getFloat()),
+                      y1 = MATH_MOD_1.modMultiply(T1_01, src1.getFloat());
+
+                multiply(M1, y0, sum);
+                multiply(M0, y1, tmp);
+
+                if (add(tmp, sum) != 0 ||
+                    compare(sum, M01_3) >= 0)
+                {
+                    subtract(M01_3, sum);
+                }
             }
-
-            multiply(M01, y2, tmp);
-
-            if (add(tmp, sum) != 0 ||
-                compare(sum, M012) >= 0)
+            else
             {
-                subtract(M012, sum);
+                float y0 = MATH_MOD_0.modMultiply(T0, src0.getFloat()),
+                        y1 = MATH_MOD_1.modMultiply(T1, src1.getFloat()),
+                        y2 = MATH_MOD_2.modMultiply(T2, src2.getFloat());
+
+                multiply(M12, y0, sum);
+                multiply(M02, y1, tmp);
+
+                if (add(tmp, sum) != 0 ||
+                    compare(sum, M012) >= 0)
+                {
+                    subtract(M012, sum);
+                }
+
+                multiply(M01, y2, tmp);
+
+                if (add(tmp, sum) != 0 ||
+                    compare(sum, M012) >= 0)
+                {
+                    subtract(M012, sum);
+                }
             }
 
             add(sum, carryResult);
@@ -94,7 +112,10 @@ public class FloatCarryCRTStepStrategy
 
             src0.next();
             src1.next();
-            src2.next();
+            if (src2 != null)
+            {
+                src2.next();
+            }
         }
 
         // Calculate the last words (in base math)
@@ -119,6 +140,12 @@ public class FloatCarryCRTStepStrategy
         return results;
     }
 
+    public float[] crt(DataStorage resultMod0, DataStorage resultMod1, DataStorage dataStorage, long size, long resultSize, long offset, long length)
+        throws ApfloatRuntimeException
+    {
+        return crt(resultMod0, resultMod1, null, dataStorage, size, resultSize, offset, length);
+    }
+
     public float[] carry(DataStorage dataStorage, long size, long resultSize, long offset, long length, float[] results, float[] previousResults)
         throws ApfloatRuntimeException
     {
@@ -235,10 +262,15 @@ public class FloatCarryCRTStepStrategy
     private static final FloatModMath MATH_MOD_0,
                                         MATH_MOD_1,
                                         MATH_MOD_2;
-    private static final float T0,
+    private static final float T0_01,
+                                 T1_01,
+                                 T0,
                                  T1,
                                  T2;
-    private static final float[] M01,
+    private static final float[] M0,
+                                   M1,
+                                   M01_3,
+                                   M01,
                                    M02,
                                    M12,
                                    M012;
@@ -263,19 +295,37 @@ public class FloatCarryCRTStepStrategy
                    m02 = m0.multiply(m2),
                    m12 = m1.multiply(m2);
 
+        T0_01 = m1.modInverse(m0).floatValue();
+        T1_01 = m0.modInverse(m1).floatValue();
+
         T0 = m12.modInverse(m0).floatValue();
         T1 = m02.modInverse(m1).floatValue();
         T2 = m01.modInverse(m2).floatValue();
 
+        M0 = new float[2];
+        M1 = new float[2];
+        M01_3 = new float[3];
         M01 = new float[2];
         M02 = new float[2];
         M12 = new float[2];
         M012 = new float[3];
 
-        BigInteger[] qr = m01.divideAndRemainder(base);
+        BigInteger[] qr = m0.divideAndRemainder(base);
+        M0[0] = qr[0].floatValue();
+        M0[1] = qr[1].floatValue();
+
+        qr = m1.divideAndRemainder(base);
+        M1[0] = qr[0].floatValue();
+        M1[1] = qr[1].floatValue();
+
+        qr = m01.divideAndRemainder(base);
         M01[0] = qr[0].floatValue();
         M01[1] = qr[1].floatValue();
 
+        M01_3[0] = 0;
+        M01_3[1] = M01[0];
+        M01_3[2] = M01[1];
+
         qr = m02.divideAndRemainder(base);
         M02[0] = qr[0].floatValue();
         M02[1] = qr[1].floatValue();
@@ -4,7 +4,7 @@ package org.apfloat.internal;
  * Constants needed for various algorithms for the <code>float</code> type.
  *
  * @since 1.4
- * @version 1.4
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -16,6 +16,22 @@ public interface FloatConstants
 
     public static final float KARATSUBA_COST_FACTOR = 6.1f;
 
+    /**
+     * Relative cost of Toom-Cook 3-way multiplication.
+     *
+     * @since 1.9.0
+     */
+
+    public static final float TOOM_COOK_3_COST_FACTOR = 13.0f;
+
+    /**
+     * Relative cost of Toom-Cook 4-way multiplication.
+     *
+     * @since 1.9.0
+     */
+
+    public static final float TOOM_COOK_4_COST_FACTOR = 17.6f;
+
     /**
      * Relative cost of NTT multiplication.
      */
@@ -2,7 +2,7 @@ package org.apfloat.internal;
 
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
-import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.MiddleProductConvolutionStrategy;
 import org.apfloat.spi.DataStorageBuilder;
 import org.apfloat.spi.DataStorage;
 
@@ -10,13 +10,13 @@ import org.apfloat.spi.DataStorage;
  * Medium-length convolution strategy.
  * Performs a simple O(n<sup>2</sup>) multiplication when the size of one operand is relatively short.
  *
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class FloatMediumConvolutionStrategy
     extends FloatBaseMath
-    implements ConvolutionStrategy
+    implements MiddleProductConvolutionStrategy
 {
     // Implementation notes:
     // - Assumes that the operands have been already truncated to match resultSize (the resultSize argument is ignored)
@@ -121,5 +121,12 @@ public class FloatMediumConvolutionStrategy
         return resultStorage;
     }
 
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        // No benefit from skipping the most significant part
+        return convolute(x, y, resultSize);
+    }
+
     private static final long serialVersionUID = -6697305140738370764L;
 }
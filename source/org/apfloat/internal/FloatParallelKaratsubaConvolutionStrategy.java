@@ -0,0 +1,97 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+
+/**
+ * Convolution strategy using the Karatsuba algorithm, using multiple threads in parallel.<p>
+ *
+ * The three sub-convolutions of each level of the recursion are calculated in
+ * parallel, if the number of processors is greater than one in
+ * {@link ApfloatContext#getNumberOfProcessors()} and the data is long enough
+ * that the overhead of dispatching the work to other threads is insignificant.
+ * The recursion is then also parallelized further in the other threads.
+ *
+ * @see ParallelRunner#runParallel(Runnable[])
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class FloatParallelKaratsubaConvolutionStrategy
+    extends FloatKaratsubaConvolutionStrategy
+{
+    /**
+     * Cut-off point for parallel / single-thread convolution.<p>
+     *
+     * Sub-convolutions where the shorter data set is at most this long
+     * are calculated in the current thread.
+     */
+
+    public static final int PARALLEL_CUTOFF_POINT = 150;
+
+    /**
+     * Creates a convolution strategy using the specified radix.
+     *
+     * @param radix The radix that will be used.
+     */
+
+    public FloatParallelKaratsubaConvolutionStrategy(int radix)
+    {
+        super(radix);
+    }
+
+    /**
+     * Creates a convolution strategy using the specified radix and Karatsuba cut-off point.
+     *
+     * @param radix The radix that will be used.
+     * @param cutoffPoint The cut-off point for Karatsuba / basic convolution, used instead of {@link FloatKaratsubaConvolutionStrategy#CUTOFF_POINT}.
+     *
+     * @since 1.9.0
+     */
+
+    public FloatParallelKaratsubaConvolutionStrategy(int radix, int cutoffPoint)
+    {
+        super(radix, cutoffPoint);
+    }
+
+    protected DataStorage[] convolute(final DataStorage[] x, final DataStorage[] y)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+
+        long minSize = Long.MAX_VALUE;
+        for (int i = 0; i < x.length; i++)
+        {
+            minSize = Math.min(minSize, Math.min(x[i].getSize(), y[i].getSize()));
+        }
+
+        if (ctx.getNumberOfProcessors() <= 1 || minSize <= PARALLEL_CUTOFF_POINT)
+        {
+            return super.convolute(x, y);
+        }
+
+        final DataStorage[] results = new DataStorage[x.length];
+
+        Runnable[] runnables = new Runnable[x.length];
+        for (int i = 0; i < x.length; i++)
+        {
+            final int index = i;
+            runnables[i] = new Runnable()
+            {
+                public void run()
+                {
+                    results[index] = convolute(x[index], y[index], x[index].getSize() + y[index].getSize());
+                }
+            };
+        }
+
+        ParallelRunner.runParallel(runnables);
+
+        return results;
+    }
+
+    private static final long serialVersionUID = -3626606606854918714L;
+}
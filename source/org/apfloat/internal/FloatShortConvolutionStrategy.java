@@ -2,7 +2,7 @@ package org.apfloat.internal;
 
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
-import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.MiddleProductConvolutionStrategy;
 import org.apfloat.spi.DataStorageBuilder;
 import org.apfloat.spi.DataStorage;
 import org.apfloat.spi.ArrayAccess;
@@ -11,13 +11,13 @@ import org.apfloat.spi.ArrayAccess;
  * Short convolution strategy.
  * Performs a simple multiplication when the size of one operand is 1.
  *
- * @version 1.1
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class FloatShortConvolutionStrategy
     extends FloatBaseMath
-    implements ConvolutionStrategy
+    implements MiddleProductConvolutionStrategy
 {
     // Implementation notes:
     // - Assumes that the operands have been already truncated to match resultSize (the resultSize argument is ignored)
@@ -73,5 +73,12 @@ public class FloatShortConvolutionStrategy
         return resultStorage;
     }
 
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        // No benefit from skipping the most significant part
+        return convolute(x, y, resultSize);
+    }
+
     private static final long serialVersionUID = 3839614758362699756L;
 }
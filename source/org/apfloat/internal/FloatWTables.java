@@ -1,17 +1,14 @@
 package org.apfloat.internal;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.ConcurrentMap;
-
 import org.apfloat.internal.FloatModMath;
 import static org.apfloat.internal.FloatModConstants.*;
 
 /**
  * Helper class for generating and caching tables of powers of the n:th root of unity.
+ * The tables are stored in the shared {@link TableCache}.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -51,10 +48,30 @@ public class FloatWTables
         return getWTable(modulus, length, true);
     }
 
+    /**
+     * Precompute the tables for transforms of the specified length for all moduli,
+     * so that they are not calculated later during the transforms. The length is
+     * the length of the table transforms, e.g. the length of the rows in the
+     * six-step transform.
+     *
+     * @param length The length of the tables, i.e. n.
+     *
+     * @since 1.9.0
+     */
+
+    public static void precomputeTables(int length)
+    {
+        for (int modulus = 0; modulus < MODULUS.length; modulus++)
+        {
+            getWTable(modulus, length, false);
+            getWTable(modulus, length, true);
+        }
+    }
+
     private static float[] getWTable(int modulus, int length, boolean isInverse)
     {
-        List<Integer> key = Arrays.asList(isInverse ? 1 : 0, modulus, length);
-        float[] wTable = FloatWTables.cache.get(key);
+        String name = (isInverse ? "FloatInverseWTable" : "FloatWTable");
+        float[] wTable = (float[]) TableCache.get(name, modulus, length);
         // Do not synchronize, multiple threads may do this at the same time, but only one gets to put the value in the cache
         if (wTable == null)
         {
@@ -64,7 +81,7 @@ public class FloatWTables
                          instance.getForwardNthRoot(PRIMITIVE_ROOT[modulus], length));  // Forward n:th root
             wTable = instance.createWTable(w, length);
             // Check if another thread already put the wTable in the cache; if so then use it
-            float[] value = FloatWTables.cache.putIfAbsent(key, wTable);
+            float[] value = (float[]) TableCache.putIfAbsent(name, modulus, length, wTable);
             if (value != null)
             {
                 // Another thread did put the value in the cache so use it
@@ -80,7 +97,4 @@ public class FloatWTables
         instance.setModulus(MODULUS[modulus]);
         return instance;
     }
-
-    // With inverses, three moduli and lengths being powers of two, the theoretical maximum map size is 2 * 3 * 30 = 180 entries
-    private static ConcurrentMap<List<Integer>, float[]> cache = new ConcurrentSoftHashMap<List<Integer>, float[]>();
 }
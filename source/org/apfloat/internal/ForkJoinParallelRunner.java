@@ -0,0 +1,165 @@
+package org.apfloat.internal;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatInterruptedException;
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * Fork-join implementation of running parallel tasks.<p>
+ *
+ * The batches of a <code>ParallelRunnable</code> are split recursively to tasks,
+ * idle threads steal the tasks from the busy ones and threads waiting for other
+ * tasks to complete execute tasks or are compensated for by the pool, instead of
+ * yielding the CPU in a loop.<p>
+ *
+ * This class requires Java 7 or later. It is only loaded dynamically by the
+ * {@link ParallelRunner}.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+class ForkJoinParallelRunner
+    implements ForkJoinSupport
+{
+    /**
+     * Default constructor.
+     */
+
+    public ForkJoinParallelRunner()
+    {
+    }
+
+    public boolean isForkJoinPool(ExecutorService executorService)
+    {
+        return executorService instanceof ForkJoinPool;
+    }
+
+    public void runParallel(ExecutorService executorService, ApfloatContext ctx, ParallelRunnable parallelRunnable)
+        throws ApfloatRuntimeException
+    {
+        invoke((ForkJoinPool) executorService, new BatchTask(ctx, parallelRunnable, 0, parallelRunnable.getLength()));
+    }
+
+    public void runParallel(ExecutorService executorService, Runnable[] runnables)
+        throws ApfloatRuntimeException
+    {
+        ForkJoinTask<?>[] forkJoinTasks = new ForkJoinTask<?>[runnables.length];
+        for (int i = 0; i < runnables.length; i++)
+        {
+            forkJoinTasks[i] = ForkJoinTask.adapt(runnables[i]);
+        }
+        invoke((ForkJoinPool) executorService, new InvokeAllTask(forkJoinTasks));
+    }
+
+    public void wait(final Future<?> future)
+        throws ApfloatRuntimeException
+    {
+        ForkJoinPool.ManagedBlocker blocker = new ForkJoinPool.ManagedBlocker()
+        {
+            public boolean isReleasable()
+            {
+                return future.isDone();
+            }
+
+            public boolean block()
+                throws InterruptedException
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException ee)
+                {
+                    // Only waiting for completion here, the caller gets the result
+                }
+                return true;
+            }
+        };
+        try
+        {
+            ForkJoinPool.managedBlock(blocker);
+        }
+        catch (InterruptedException ie)
+        {
+            throw new ApfloatInterruptedException("Waiting for task to complete was interrupted", ie);
+        }
+    }
+
+    // Fork-join task that runs a range of the batches of a ParallelRunnable, splitting it in halves along the batch boundaries
+    private static class BatchTask
+        extends RecursiveAction
+    {
+        public BatchTask(ApfloatContext ctx, ParallelRunnable parallelRunnable, long startValue, long length)
+        {
+            this.ctx = ctx;
+            this.parallelRunnable = parallelRunnable;
+            this.startValue = startValue;
+            this.length = length;
+        }
+
+        protected void compute()
+        {
+            long batchSize = this.parallelRunnable.getBatchSize(),
+                 batches = (this.length + batchSize - 1) / batchSize;
+            if (batches <= 1)
+            {
+                this.parallelRunnable.checkCancelled();
+                ApfloatContext.runWithContext(this.ctx, this.parallelRunnable.getRunnable(this.startValue, this.length));
+            }
+            else
+            {
+                long length = batches / 2 * batchSize;
+                invokeAll(new BatchTask(this.ctx, this.parallelRunnable, this.startValue, length),
+                          new BatchTask(this.ctx, this.parallelRunnable, this.startValue + length, this.length - length));
+            }
+        }
+
+        private static final long serialVersionUID = 1945166326564035466L;
+
+        private transient ApfloatContext ctx;
+        private transient ParallelRunnable parallelRunnable;
+        private long startValue;
+        private long length;
+    }
+
+    // Fork-join task that runs independent tasks and waits for all of them to complete
+    private static class InvokeAllTask
+        extends RecursiveAction
+    {
+        public InvokeAllTask(ForkJoinTask<?>[] forkJoinTasks)
+        {
+            this.forkJoinTasks = forkJoinTasks;
+        }
+
+        protected void compute()
+        {
+            invokeAll(this.forkJoinTasks);
+        }
+
+        private static final long serialVersionUID = -3150483291578745223L;
+
+        private transient ForkJoinTask<?>[] forkJoinTasks;
+    }
+
+    // Run the task in the pool; if the current thread is a worker of the pool it runs the task itself, otherwise it waits
+    private static void invoke(ForkJoinPool forkJoinPool, ForkJoinTask<?> task)
+    {
+        if (ForkJoinTask.getPool() == forkJoinPool)
+        {
+            task.invoke();
+        }
+        else
+        {
+            forkJoinPool.invoke(task);
+        }
+    }
+}
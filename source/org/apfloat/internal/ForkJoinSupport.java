@@ -0,0 +1,63 @@
+package org.apfloat.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * Interface for running parallel tasks in a fork-join pool.<p>
+ *
+ * The fork-join classes are only available in Java 7 and later, so the
+ * {@link ParallelRunner} only accesses them through this interface. The
+ * implementation is loaded dynamically, if the runtime environment supports it.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+interface ForkJoinSupport
+{
+    /**
+     * Test if an executor service is a fork-join pool.
+     *
+     * @param executorService The executor service.
+     *
+     * @return If the executor service is a fork-join pool.
+     */
+
+    public boolean isForkJoinPool(ExecutorService executorService);
+
+    /**
+     * Run a ParallelRunnable object as fork-join tasks.
+     *
+     * @param executorService The fork-join pool.
+     * @param ctx The ApfloatContext that the tasks are run with.
+     * @param parallelRunnable The ParallelRunnable to be run.
+     */
+
+    public void runParallel(ExecutorService executorService, ApfloatContext ctx, ParallelRunnable parallelRunnable)
+        throws ApfloatRuntimeException;
+
+    /**
+     * Run independent tasks as fork-join tasks.
+     *
+     * @param executorService The fork-join pool.
+     * @param runnables The tasks to be run.
+     */
+
+    public void runParallel(ExecutorService executorService, Runnable[] runnables)
+        throws ApfloatRuntimeException;
+
+    /**
+     * Wait for a <code>Future</code> to be completed as a managed blocker,
+     * so that the pool can activate a spare thread in the meanwhile.
+     *
+     * @param future The Future to wait for.
+     */
+
+    public void wait(Future<?> future)
+        throws ApfloatRuntimeException;
+}
@@ -1,8 +1,12 @@
 package org.apfloat.internal;
 
+import java.math.BigInteger;
+
 import org.apfloat.spi.ConvolutionStrategy;
 import org.apfloat.spi.NTTStrategy;
 import static org.apfloat.internal.IntConstants.*;
+import static org.apfloat.internal.IntModConstants.*;
+import static org.apfloat.internal.IntRadixConstants.*;
 
 /**
  * Creates convolutions of suitable type for the <code>int</code> type.<p>
@@ -10,9 +14,13 @@ import static org.apfloat.internal.IntConstants.*;
  * @see IntShortConvolutionStrategy
  * @see IntMediumConvolutionStrategy
  * @see IntKaratsubaConvolutionStrategy
+ * @see IntParallelKaratsubaConvolutionStrategy
+ * @see IntToomCook3ConvolutionStrategy
+ * @see IntToomCook4ConvolutionStrategy
  * @see ThreeNTTConvolutionStrategy
+ * @see TwoNTTConvolutionStrategy
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -37,6 +45,16 @@ public class IntConvolutionBuilder
         return KARATSUBA_COST_FACTOR;
     }
 
+    protected float getToomCook3CostFactor()
+    {
+        return TOOM_COOK_3_COST_FACTOR;
+    }
+
+    protected float getToomCook4CostFactor()
+    {
+        return TOOM_COOK_4_COST_FACTOR;
+    }
+
     protected float getNTTCostFactor()
     {
         return NTT_COST_FACTOR;
@@ -54,7 +72,22 @@ public class IntConvolutionBuilder
 
     protected ConvolutionStrategy createKaratsubaConvolutionStrategy(int radix)
     {
-        return new IntKaratsubaConvolutionStrategy(radix);
+        return new IntParallelKaratsubaConvolutionStrategy(radix);
+    }
+
+    protected ConvolutionStrategy createKaratsubaConvolutionStrategy(int radix, int cutoffPoint)
+    {
+        return new IntParallelKaratsubaConvolutionStrategy(radix, cutoffPoint);
+    }
+
+    protected ConvolutionStrategy createToomCook3ConvolutionStrategy(int radix, int karatsubaCutoffPoint)
+    {
+        return new IntToomCook3ConvolutionStrategy(radix, karatsubaCutoffPoint);
+    }
+
+    protected ConvolutionStrategy createToomCook4ConvolutionStrategy(int radix, int karatsubaCutoffPoint)
+    {
+        return new IntToomCook4ConvolutionStrategy(radix, karatsubaCutoffPoint);
     }
 
 
@@ -62,4 +95,29 @@ public class IntConvolutionBuilder
     {
         return new ParallelThreeNTTConvolutionStrategy(radix, nttStrategy);
     }
+
+    protected long getTwoNTTMaxSize(int radix)
+    {
+        return TWO_NTT_MAX_SIZE[radix];
+    }
+
+    protected ConvolutionStrategy createTwoNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    {
+        return new TwoNTTConvolutionStrategy(radix, nttStrategy);
+    }
+
+    private static final long[] TWO_NTT_MAX_SIZE;
+
+    static
+    {
+        // The maximum convolution result element is size * (base - 1)^2, and it must be less than the product of the two moduli
+        BigInteger m01 = BigInteger.valueOf((long) MODULUS[0]).multiply(BigInteger.valueOf((long) MODULUS[1]));
+
+        TWO_NTT_MAX_SIZE = new long[BASE.length];
+        for (int radix = Character.MIN_RADIX; radix < BASE.length; radix++)
+        {
+            BigInteger maxElement = BigInteger.valueOf((long) BASE[radix] - 1).pow(2);
+            TWO_NTT_MAX_SIZE[radix] = m01.subtract(BigInteger.ONE).divide(maxElement).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+        }
+    }
 }
@@ -46,9 +46,18 @@ package org.apfloat.internal;
  * <code>1.0 / (modulus + 0.5)</code>. Since the modulus is assumed to be
  * prime, and a <code>double</code> has more bits for precision than an
  * <code>int</code>, the approximate result of <code>a * b / modulus</code>
- * will always be either correct or one too small (but never one too big).
+ * will always be either correct or one too small (but never one too big).<p>
  *
- * @version 1.0.2
+ * In the Number Theoretic Transform one of the operands of the multiplication
+ * is usually a power of the root of unity, and the powers are stored in a table.
+ * Then the quotient <code>floor(w * 2<sup>32</sup> / modulus)</code> can be
+ * precomputed for each power <code>w</code>, and the approximate division becomes
+ * just a multiplication of the other operand by the precomputed quotient using
+ * 64-bit integer arithmetic (Shoup's algorithm). The remainder is then
+ * either correct or one modulus too big, and no floating-point
+ * conversions are needed at all.
+ *
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -79,6 +88,42 @@ public class IntElementaryModMath
         return (r2 < 0 ? r1 : r2);
     }
 
+    /**
+     * Get the precomputed quotient of a constant multiplier, for modular
+     * multiplication with {@link #modMultiply(int,int,int)}.
+     *
+     * @param b The constant multiplier.
+     *
+     * @return <code>floor(b * 2<sup>32</sup> / modulus)</code>, as an unsigned value.
+     *
+     * @since 1.9.0
+     */
+
+    public final int getMultiplierQuotient(int b)
+    {
+        return (int) (((long) b << 32) / this.modulus);
+    }
+
+    /**
+     * Modular multiplication by a constant using Shoup's algorithm.
+     *
+     * @param a First operand.
+     * @param b Second operand, the constant multiplier.
+     * @param bQuotient The precomputed quotient of <code>b</code>, as returned by {@link #getMultiplierQuotient(int)}.
+     *
+     * @return <code>a * b % modulus</code>
+     *
+     * @since 1.9.0
+     */
+
+    public final int modMultiply(int a, int b, int bQuotient)
+    {
+        long q = ((long) a * (bQuotient & 0xFFFFFFFFL)) >>> 32,
+             r = (long) a * b - q * this.modulus;
+
+        return (int) (r >= this.modulus ? r - this.modulus : r);
+    }
+
     /**
      * Modular addition.
      *
@@ -3,6 +3,7 @@ package org.apfloat.internal;
 import org.apfloat.spi.NTTStrategy;
 import org.apfloat.spi.NTTStepStrategy;
 import org.apfloat.spi.Factor3NTTStepStrategy;
+import org.apfloat.spi.Factor5NTTStepStrategy;
 import org.apfloat.spi.NTTConvolutionStepStrategy;
 
 /**
@@ -14,7 +15,7 @@ import org.apfloat.spi.NTTConvolutionStepStrategy;
  * @see TwoPassFNTStrategy
  * @see Factor3NTTStrategy
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -44,6 +45,12 @@ public class IntNTTBuilder
         return new IntFactor3NTTStepStrategy();
     }
 
+    public Factor5NTTStepStrategy createFactor5NTTSteps()
+    {
+        // The moduli don't support factor-5 transforms
+        return null;
+    }
+
     protected NTTStrategy createSimpleFNTStrategy()
     {
         return new IntTableFNTStrategy();
@@ -13,7 +13,7 @@ import static org.apfloat.internal.IntModConstants.*;
  *
  * All access to this class must be externally synchronized.
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -45,10 +45,11 @@ public class IntTableFNTStrategy
 
         setModulus(MODULUS[modulus]);                                       // Modulus
         int[] wTable = IntWTables.getWTable(modulus, (int) length);
+        int[] wQuotientTable = IntWTables.getWQuotientTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        tableFNT(arrayAccess, wTable, null);
+        tableFNT(arrayAccess, wTable, wQuotientTable, null);
 
         arrayAccess.close();
     }
@@ -69,10 +70,11 @@ public class IntTableFNTStrategy
 
         setModulus(MODULUS[modulus]);                                       // Modulus
         int[] wTable = IntWTables.getInverseWTable(modulus, (int) length);
+        int[] wQuotientTable = IntWTables.getInverseWQuotientTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        inverseTableFNT(arrayAccess, wTable, null);
+        inverseTableFNT(arrayAccess, wTable, wQuotientTable, null);
 
         divideElements(arrayAccess, (int) totalTransformLength);
 
@@ -8,14 +8,14 @@ import org.apfloat.spi.DataStorage;
 import static org.apfloat.internal.LongModConstants.*;
 
 /**
- * Class for performing the final steps of a three-modulus
+ * Class for performing the final steps of a three-modulus (or two-modulus)
  * Number Theoretic Transform based convolution. Works for the
  * <code>long</code> type.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -49,7 +49,7 @@ public class LongCarryCRTStepStrategy
 
         DataStorage.Iterator src0 = resultMod0.iterator(DataStorage.READ, subStart, subEnd),
                              src1 = resultMod1.iterator(DataStorage.READ, subStart, subEnd),
-                             src2 = resultMod2.iterator(DataStorage.READ, subStart, subEnd),
+                             src2 = (resultMod2 == null ? null : resultMod2.iterator(DataStorage.READ, subStart, subEnd)),
                              dst = dataStorage.iterator(DataStorage.WRITE, subResultStart, subResultEnd);
 
         long[] carryResult = new long[3],
@@ -59,25 +59,43 @@ public class LongCarryCRTStepStrategy
         // Preliminary carry-CRT calculation (happens in parallel in multiple blocks)
         for (long i = 0; i < length; i++)
         {
-            long y0 = MATH_MOD_0.modMultiply(T0, src0.getLong()),
-                    y1 = MATH_MOD_1.modMultiply(T1, src1.getLong()),
-                    y2 = MATH_MOD_2.modMultiply(T2, src2.getLong());
-
-            multiply(M12, y0, sum);
-            multiply(M02, y1, tmp);
-
-            if (add(tmp, sum) != 0 ||
-                compare(sum, M012) >= 0)
+            if (src2 == null)
             {
-                subtract(M012, sum);
+                // Only two moduli are used
+                long y0 = MATH_MOD_0.modMultiply(T0_01, src0.getLong()),
+                     y1 = MATH_MOD_1.modMultiply(T1_01, src1.getLong());
+
+                multiply(M1, y0, sum);
+                multiply(M0, y1, tmp);
+
+                if (add(tmp, sum) != 0 ||
+                    compare(sum, M01_3) >= 0)
+                {
+                    subtract(M01_3, sum);
+                }
             }
-
-            multiply(M01, y2, tmp);
-
-            if (add(tmp, sum) != 0 ||
-                compare(sum, M012) >= 0)
+            else
             {
-                subtract(M012, sum);
+                long y0 = MATH_MOD_0.modMultiply(T0, src0.getLong()),
+                        y1 = MATH_MOD_1.modMultiply(T1, src1.getLong()),
+                        y2 = MATH_MOD_2.modMultiply(T2, src2.getLong());
+
+                multiply(M12, y0, sum);
+                multiply(M02, y1, tmp);
+
+                if (add(tmp, sum) != 0 ||
+                    compare(sum, M012) >= 0)
+                {
+                    subtract(M012, sum);
+                }
+
+                multiply(M01, y2, tmp);
+
+                if (add(tmp, sum) != 0 ||
+                    compare(sum, M012) >= 0)
+                {
+                    subtract(M012, sum);
+                }
             }
 
             add(sum, carryResult);
@@ -94,7 +112,10 @@ public class LongCarryCRTStepStrategy
 
             src0.next();
             src1.next();
-            src2.next();
+            if (src2 != null)
+            {
+                src2.next();
+            }
         }
 
         // Calculate the last words (in base math)
@@ -119,6 +140,12 @@ public class LongCarryCRTStepStrategy
         return results;
     }
 
+    public long[] crt(DataStorage resultMod0, DataStorage resultMod1, DataStorage dataStorage, long size, long resultSize, long offset, long length)
+        throws ApfloatRuntimeException
+    {
+        return crt(resultMod0, resultMod1, null, dataStorage, size, resultSize, offset, length);
+    }
+
     public long[] carry(DataStorage dataStorage, long size, long resultSize, long offset, long length, long[] results, long[] previousResults)
         throws ApfloatRuntimeException
     {
@@ -235,10 +262,15 @@ public class LongCarryCRTStepStrategy
     private static final LongModMath MATH_MOD_0,
                                         MATH_MOD_1,
                                         MATH_MOD_2;
-    private static final long T0,
+    private static final long T0_01,
+                                 T1_01,
+                                 T0,
                                  T1,
                                  T2;
-    private static final long[] M01,
+    private static final long[] M0,
+                                   M1,
+                                   M01_3,
+                                   M01,
                                    M02,
                                    M12,
                                    M012;
@@ -263,19 +295,37 @@ public class LongCarryCRTStepStrategy
                    m02 = m0.multiply(m2),
                    m12 = m1.multiply(m2);
 
+        T0_01 = m1.modInverse(m0).longValue();
+        T1_01 = m0.modInverse(m1).longValue();
+
         T0 = m12.modInverse(m0).longValue();
         T1 = m02.modInverse(m1).longValue();
         T2 = m01.modInverse(m2).longValue();
 
+        M0 = new long[2];
+        M1 = new long[2];
+        M01_3 = new long[3];
         M01 = new long[2];
         M02 = new long[2];
         M12 = new long[2];
         M012 = new long[3];
 
-        BigInteger[] qr = m01.divideAndRemainder(base);
+        BigInteger[] qr = m0.divideAndRemainder(base);
+        M0[0] = qr[0].longValue();
+        M0[1] = qr[1].longValue();
+
+        qr = m1.divideAndRemainder(base);
+        M1[0] = qr[0].longValue();
+        M1[1] = qr[1].longValue();
+
+        qr = m01.divideAndRemainder(base);
         M01[0] = qr[0].longValue();
         M01[1] = qr[1].longValue();
 
+        M01_3[0] = 0;
+        M01_3[1] = M01[0];
+        M01_3[2] = M01[1];
+
         qr = m02.divideAndRemainder(base);
         M02[0] = qr[0].longValue();
         M02[1] = qr[1].longValue();
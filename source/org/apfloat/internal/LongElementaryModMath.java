@@ -50,9 +50,20 @@ package org.apfloat.internal;
  * must then be done once more to reduce the remainder since the original multiplication operands
  * are only 57-bit numbers. The second reduction reduces the results to the correct value &#177;modulus.
  * It is then easy to detect the case when the approximate division was off by one (and the
- * remainder is <code>&#177;modulus</code> off) as the final step of the algorithm.
+ * remainder is <code>&#177;modulus</code> off) as the final step of the algorithm.<p>
  *
- * @version 1.0
+ * In the Number Theoretic Transform one of the operands of the multiplication
+ * is usually a power of the root of unity, and the powers are stored in a table.
+ * Then the quotient <code>floor(w * 2<sup>64</sup> / modulus)</code> can be
+ * precomputed for each power <code>w</code>, and the approximate division becomes
+ * just the high 64 bits of the product of the other operand and the precomputed
+ * quotient (Shoup's algorithm). The remainder is then either correct or one
+ * modulus too big, so only one reduction is needed and no floating-point
+ * conversions at all. As there is no operation for getting the high bits of a
+ * 64-bit multiplication, the high bits are calculated from 32-bit halves
+ * of the operands, using only 64-bit integer arithmetic.
+ *
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -86,6 +97,53 @@ public class LongElementaryModMath
         return r;
     }
 
+    /**
+     * Get the precomputed quotient of a constant multiplier, for modular
+     * multiplication with {@link #modMultiply(long,long,long)}.
+     *
+     * @param b The constant multiplier.
+     *
+     * @return <code>floor(b * 2<sup>64</sup> / modulus)</code>, as an unsigned value.
+     *
+     * @since 1.9.0
+     */
+
+    public final long getMultiplierQuotient(long b)
+    {
+        // Long division a few bits at a time, so that the remainder never overflows
+        long q = 0,
+             r = b;
+
+        for (int i = 0; i < 64; i += 4)
+        {
+            r <<= 4;
+            q = (q << 4) + r / this.modulus;
+            r %= this.modulus;
+        }
+
+        return q;
+    }
+
+    /**
+     * Modular multiplication by a constant using Shoup's algorithm.
+     *
+     * @param a First operand.
+     * @param b Second operand, the constant multiplier.
+     * @param bQuotient The precomputed quotient of <code>b</code>, as returned by {@link #getMultiplierQuotient(long)}.
+     *
+     * @return <code>a * b % modulus</code>
+     *
+     * @since 1.9.0
+     */
+
+    public final long modMultiply(long a, long b, long bQuotient)
+    {
+        long q = multiplyHigh(a, bQuotient),
+             r = a * b - q * this.modulus;
+
+        return (r >= this.modulus ? r - this.modulus : r);
+    }
+
     /**
      * Modular addition.
      *
@@ -141,6 +199,19 @@ public class LongElementaryModMath
         this.modulus = modulus;
     }
 
+    // High 64 bits of the 128-bit product of two unsigned 64-bit numbers
+    private static long multiplyHigh(long a, long b)
+    {
+        long a0 = a & 0xFFFFFFFFL,
+             a1 = a >>> 32,
+             b0 = b & 0xFFFFFFFFL,
+             b1 = b >>> 32,
+             t = a1 * b0 + ((a0 * b0) >>> 32),
+             u = (t & 0xFFFFFFFFL) + a0 * b1;
+
+        return a1 * b1 + (t >>> 32) + (u >>> 32);
+    }
+
     private long modulus;
     private double inverseModulus;
 }
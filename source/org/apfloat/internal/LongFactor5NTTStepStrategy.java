@@ -0,0 +1,239 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.Factor5NTTStepStrategy;
+import org.apfloat.spi.DataStorage;
+import static org.apfloat.internal.LongModConstants.*;
+
+/**
+ * Steps for the factor-5 NTT.<p>
+ *
+ * The 5-point transforms use the Winograd algorithm with five multiplications.
+ * The transform is done using a parallel algorithm, if the data fits in memory.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class LongFactor5NTTStepStrategy
+    extends LongModMath
+    implements Factor5NTTStepStrategy, Parallelizable
+{
+    // Runnable for transforming the columns in a factor-5 transform
+    private class ColumnTransformRunnable
+        implements Runnable
+    {
+        public ColumnTransformRunnable(DataStorage dataStorage0, DataStorage dataStorage1, DataStorage dataStorage2, DataStorage dataStorage3, DataStorage dataStorage4, long startColumn, long columns, long w, long ww, long www, long wwww, long k0, long k1, long s1, long s21, long s12, boolean isInverse)
+        {
+            this.dataStorage0 = dataStorage0;
+            this.dataStorage1 = dataStorage1;
+            this.dataStorage2 = dataStorage2;
+            this.dataStorage3 = dataStorage3;
+            this.dataStorage4 = dataStorage4;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.w = w;
+            this.ww = ww;
+            this.www = www;
+            this.wwww = wwww;
+            this.k0 = k0;
+            this.k1 = k1;
+            this.s1 = s1;
+            this.s21 = s21;
+            this.s12 = s12;
+            this.isInverse = isInverse;
+        }
+
+        public void run()
+        {
+            long tmp1 = modPow(this.w, this.startColumn),
+                    tmp2 = modPow(this.ww, this.startColumn),
+                    tmp3 = modPow(this.www, this.startColumn),
+                    tmp4 = modPow(this.wwww, this.startColumn);
+
+            DataStorage.Iterator iterator0 = this.dataStorage0.iterator(DataStorage.READ_WRITE, this.startColumn, this.startColumn + this.columns),
+                                 iterator1 = this.dataStorage1.iterator(DataStorage.READ_WRITE, this.startColumn, this.startColumn + this.columns),
+                                 iterator2 = this.dataStorage2.iterator(DataStorage.READ_WRITE, this.startColumn, this.startColumn + this.columns),
+                                 iterator3 = this.dataStorage3.iterator(DataStorage.READ_WRITE, this.startColumn, this.startColumn + this.columns),
+                                 iterator4 = this.dataStorage4.iterator(DataStorage.READ_WRITE, this.startColumn, this.startColumn + this.columns);
+
+            for (long i = 0; i < this.columns; i++)
+            {
+                // 5-point WFTA on the corresponding array elements
+
+                long x0 = iterator0.getLong(),
+                        x1 = iterator1.getLong(),
+                        x2 = iterator2.getLong(),
+                        x3 = iterator3.getLong(),
+                        x4 = iterator4.getLong(),
+                        a1, a2, b1, b2, t, m;
+
+                if (this.isInverse)
+                {
+                    // Multiply before transform
+                    x1 = modMultiply(x1, tmp1);
+                    x2 = modMultiply(x2, tmp2);
+                    x3 = modMultiply(x3, tmp3);
+                    x4 = modMultiply(x4, tmp4);
+                }
+
+                // Transform columns
+                a1 = modAdd(x1, x4);
+                b1 = modSubtract(x1, x4);
+                a2 = modAdd(x2, x3);
+                b2 = modSubtract(x2, x3);
+                t = modAdd(a1, a2);
+                a1 = modSubtract(a1, a2);
+                m = modAdd(b1, b2);
+                x0 = modAdd(x0, t);
+                t = modMultiply(t, this.k0);
+                a1 = modMultiply(a1, this.k1);
+                m = modMultiply(m, this.s1);
+                b1 = modMultiply(b1, this.s12);
+                b2 = modMultiply(b2, this.s21);
+                t = modAdd(t, x0);
+                b1 = modSubtract(b1, m);
+                b2 = modAdd(b2, m);
+                a2 = modSubtract(t, a1);
+                a1 = modAdd(t, a1);
+                x1 = modAdd(a1, b2);
+                x4 = modSubtract(a1, b2);
+                x2 = modAdd(a2, b1);
+                x3 = modSubtract(a2, b1);
+
+                if (!this.isInverse)
+                {
+                    // Multiply after transform
+                    x1 = modMultiply(x1, tmp1);
+                    x2 = modMultiply(x2, tmp2);
+                    x3 = modMultiply(x3, tmp3);
+                    x4 = modMultiply(x4, tmp4);
+                }
+
+                iterator0.setLong(x0);
+                iterator1.setLong(x1);
+                iterator2.setLong(x2);
+                iterator3.setLong(x3);
+                iterator4.setLong(x4);
+
+                iterator0.next();
+                iterator1.next();
+                iterator2.next();
+                iterator3.next();
+                iterator4.next();
+
+                tmp1 = modMultiply(tmp1, this.w);
+                tmp2 = modMultiply(tmp2, this.ww);
+                tmp3 = modMultiply(tmp3, this.www);
+                tmp4 = modMultiply(tmp4, this.wwww);
+            }
+        }
+
+        private DataStorage dataStorage0;
+        private DataStorage dataStorage1;
+        private DataStorage dataStorage2;
+        private DataStorage dataStorage3;
+        private DataStorage dataStorage4;
+        private long startColumn;
+        private long columns;
+        private long w;
+        private long ww;
+        private long www;
+        private long wwww;
+        private long k0;
+        private long k1;
+        private long s1;
+        private long s21;
+        private long s12;
+        private boolean isInverse;
+    }
+
+    /**
+     * Default constructor.
+     */
+
+    public LongFactor5NTTStepStrategy()
+    {
+    }
+
+    public void transformColumns(DataStorage dataStorage0, DataStorage dataStorage1, DataStorage dataStorage2, DataStorage dataStorage3, DataStorage dataStorage4, long startColumn, long columns, long factor3length, long length, boolean isInverse, int modulus)
+        throws ApfloatRuntimeException
+    {
+        // Transform length is five times a power of two, or fifteen times a power of two
+        assert (length == 5 * factor3length);
+
+        ParallelRunnable parallelRunnable = createColumnTransformParallelRunnable(dataStorage0, dataStorage1, dataStorage2, dataStorage3, dataStorage4, startColumn, columns, factor3length, length, isInverse, modulus);
+
+        if (columns <= Integer.MAX_VALUE &&                                     // Only if the size fits in an integer, but with memory arrays it should
+            dataStorage0.isCached() &&                                          // Only if the data storage supports efficient parallel random access
+            dataStorage1.isCached() &&
+            dataStorage2.isCached() &&
+            dataStorage3.isCached() &&
+            dataStorage4.isCached())
+        {
+            ParallelRunner.runParallel(parallelRunnable);
+        }
+        else
+        {
+            parallelRunnable.run();                                             // Just run in current thread without parallelization
+        }
+    }
+
+    public long getMaxTransformLength()
+    {
+        return MAX_TRANSFORM_LENGTH;
+    }
+
+    /**
+     * Create a ParallelRunnable object for transforming the columns of the matrix
+     * using a 5-point NTT transform.
+     *
+     * @param dataStorage0 The data of the first column.
+     * @param dataStorage1 The data of the second column.
+     * @param dataStorage2 The data of the third column.
+     * @param dataStorage3 The data of the fourth column.
+     * @param dataStorage4 The data of the fifth column.
+     * @param startColumn The starting element index in the data storages to transform.
+     * @param columns How many columns to transform.
+     * @param factor3length Length of the column transform.
+     * @param length Length of total transform (five times the length of one column).
+     * @param isInverse <code>true</code> if an inverse transform is performed, <code>false</code> if a forward transform is performed.
+     * @param modulus Index of the modulus.
+     *
+     * @return A suitable object for performing the 5-point transforms in parallel.
+     */
+
+    protected ParallelRunnable createColumnTransformParallelRunnable(final DataStorage dataStorage0, final DataStorage dataStorage1, final DataStorage dataStorage2, final DataStorage dataStorage3, final DataStorage dataStorage4, final long startColumn, final long columns, long factor3length, long length, final boolean isInverse, int modulus)
+    {
+        setModulus(MODULUS[modulus]);                                             // Modulus
+        final long w = (isInverse ?
+                           getInverseNthRoot(PRIMITIVE_ROOT[modulus], length) :
+                           getForwardNthRoot(PRIMITIVE_ROOT[modulus], length)),   // Forward/inverse n:th root
+                      ww = modMultiply(w, w),
+                      www = modMultiply(ww, w),
+                      wwww = modMultiply(www, w),
+                      w5 = modPow(w, factor3length),                // Forward/inverse 5th root
+                      w5w5 = modMultiply(w5, w5),
+                      half = modDivide((long) 1, (long) 2),
+                      c1 = modMultiply(modAdd(w5, modMultiply(w5w5, w5w5)), half),               // (w5 + w5^4) / 2
+                      c2 = modMultiply(modAdd(w5w5, modMultiply(w5w5, w5)), half),               // (w5^2 + w5^3) / 2
+                      s1 = modMultiply(modSubtract(w5, modMultiply(w5w5, w5w5)), half),          // (w5 - w5^4) / 2
+                      s2 = modMultiply(modSubtract(w5w5, modMultiply(w5w5, w5)), half),          // (w5^2 - w5^3) / 2
+                      k0 = negate(modDivide((long) 5, (long) 4)),                         // (c1 + c2) / 2 - 1
+                      k1 = modMultiply(modSubtract(c1, c2), half),                              // (c1 - c2) / 2
+                      s21 = modSubtract(s2, s1),
+                      s12 = modAdd(s1, s2);
+
+        ParallelRunnable parallelRunnable = new ParallelRunnable(columns)
+        {
+            public Runnable getRunnable(long strideStartColumn, long strideColumns)
+            {
+                return new ColumnTransformRunnable(dataStorage0, dataStorage1, dataStorage2, dataStorage3, dataStorage4, startColumn + strideStartColumn, strideColumns, w, ww, www, wwww, k0, k1, s1, s21, s12, isInverse);
+            }
+        };
+        return parallelRunnable;
+    }
+}
@@ -3,7 +3,7 @@ package org.apfloat.internal;
 /**
  * Constants needed for various modular arithmetic operations for the <code>long</code> type.
  *
- * @version 1.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -11,22 +11,22 @@ public interface LongModConstants
 {
     /**
      * Moduli to be used in number theoretic transforms.
-     * Allows transform lengths upto 3*2<sup>47</sup>.
+     * Allows transform lengths upto 15*2<sup>46</sup>, including transform lengths with a factor of five.
      */
 
-    public static final long MODULUS[] = { 136796838681378817L, 127508164449927169L, 119063915148607489L };
+    public static final long MODULUS[] = { 129830333007790081L, 119275021381140481L, 112941834405150721L };
 
     /**
      * Primitive roots for the corresponding moduli.
      */
 
-    public static final long PRIMITIVE_ROOT[] = { 5, 14, 26 };
+    public static final long PRIMITIVE_ROOT[] = { 23, 11, 7 };
 
     /**
      * Maximum transform length for the moduli.
      */
 
-    public static final long MAX_TRANSFORM_LENGTH = 422212465065984L;
+    public static final long MAX_TRANSFORM_LENGTH = 1055531162664960L;
 
     /**
      * Maximum bits in a power-of-two base that fits in a <code>long</code>.
@@ -3,7 +3,7 @@ package org.apfloat.internal;
 /**
  * Modulo arithmetic functions for <code>long</code> data.
  *
- * @version 1.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -41,6 +41,30 @@ public class LongModMath
         return wTable;
     }
 
+    /**
+     * Create a table of the precomputed quotients of a table of powers of n:th root of unity.
+     *
+     * @param wTable Table of powers of n:th root of unity modulo the current modulus.
+     *
+     * @return Table of <code>table[i]=getMultiplierQuotient(wTable[i])</code>.
+     *
+     * @see #getMultiplierQuotient(long)
+     *
+     * @since 1.9.0
+     */
+
+    public final long[] createWQuotientTable(long[] wTable)
+    {
+        long[] wQuotientTable = new long[wTable.length];
+
+        for (int i = 0; i < wTable.length; i++)
+        {
+            wQuotientTable[i] = getMultiplierQuotient(wTable[i]);
+        }
+
+        return wQuotientTable;
+    }
+
     /**
      * Get forward n:th root of unity. This is <code>w</code>.<p>
      *
@@ -2,6 +2,7 @@ package org.apfloat.internal;
 
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.NTTConvolutionStepStrategy;
+import org.apfloat.spi.ArrayAccess;
 import org.apfloat.spi.DataStorage;
 import static org.apfloat.internal.LongModConstants.*;
 
@@ -11,12 +12,15 @@ import static org.apfloat.internal.LongModConstants.*;
  * and element-by-element squaring of the transformed elements.<p>
  *
  * The in-place multiplication and squaring of the data elements is done
- * using a parallel algorithm, if the data fits in memory.<p>
+ * using a parallel algorithm, if the data fits in memory. Data that is
+ * in memory is processed directly in the underlying arrays, with tight loops
+ * that the JVM can unroll and optimize well, instead of through the data
+ * storage iterators.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -38,6 +42,19 @@ public class LongNTTConvolutionStepStrategy
 
         public void run()
         {
+            if (this.length <= Integer.MAX_VALUE &&
+                this.sourceAndDestination.isCached() && this.source.isCached())
+            {
+                ArrayAccess dest = this.sourceAndDestination.getArray(DataStorage.READ_WRITE, this.offset, (int) this.length),
+                            src = this.source.getArray(DataStorage.READ, this.offset, (int) this.length);
+
+                multiplyInPlace(dest, src);
+
+                src.close();
+                dest.close();
+                return;
+            }
+
             DataStorage.Iterator dest = this.sourceAndDestination.iterator(DataStorage.READ_WRITE, this.offset, this.offset + this.length),
                                  src = this.source.iterator(DataStorage.READ, this.offset, this.offset + this.length);
 
@@ -70,6 +87,17 @@ public class LongNTTConvolutionStepStrategy
 
         public void run()
         {
+            if (this.length <= Integer.MAX_VALUE &&
+                this.sourceAndDestination.isCached())
+            {
+                ArrayAccess arrayAccess = this.sourceAndDestination.getArray(DataStorage.READ_WRITE, this.offset, (int) this.length);
+
+                squareInPlace(arrayAccess);
+
+                arrayAccess.close();
+                return;
+            }
+
             DataStorage.Iterator iterator = this.sourceAndDestination.iterator(DataStorage.READ_WRITE, this.offset, this.offset + this.length);
 
             while (this.length > 0)
@@ -133,6 +161,74 @@ public class LongNTTConvolutionStepStrategy
         }
     }
 
+    public void subtractInPlace(DataStorage sourceAndDestination, DataStorage source, int modulus)
+        throws ApfloatRuntimeException
+    {
+        assert (sourceAndDestination != source);
+
+        long size = sourceAndDestination.getSize();
+
+        setModulus(MODULUS[modulus]);
+
+        // Typically only a small part of the data is processed, so no parallelization
+        DataStorage.Iterator dest = sourceAndDestination.iterator(DataStorage.READ_WRITE, 0, size),
+                             src = source.iterator(DataStorage.READ, 0, size);
+
+        for (long i = 0; i < size; i++)
+        {
+            dest.setLong(modSubtract(dest.getLong(), src.getLong()));
+
+            dest.next();
+            src.next();
+        }
+    }
+
+    /**
+     * Multiply the elements of two arrays in-place. The modulus
+     * must have been set before calling this method.
+     *
+     * @param sourceAndDestination The first source array, which is also the destination.
+     * @param source The second source array, of the same length.
+     *
+     * @since 1.9.0
+     */
+
+    protected void multiplyInPlace(ArrayAccess sourceAndDestination, ArrayAccess source)
+    {
+        long[] dest = sourceAndDestination.getLongData(),
+               src = source.getLongData();
+        int destOffset = sourceAndDestination.getOffset(),
+            srcOffset = source.getOffset(),
+            length = sourceAndDestination.getLength();
+
+        for (int i = 0; i < length; i++)
+        {
+            dest[destOffset + i] = modMultiply(dest[destOffset + i], src[srcOffset + i]);
+        }
+    }
+
+    /**
+     * Square the elements of an array in-place. The modulus
+     * must have been set before calling this method.
+     *
+     * @param sourceAndDestination The source array, which is also the destination.
+     *
+     * @since 1.9.0
+     */
+
+    protected void squareInPlace(ArrayAccess sourceAndDestination)
+    {
+        long[] data = sourceAndDestination.getLongData();
+        int offset = sourceAndDestination.getOffset(),
+            length = sourceAndDestination.getLength();
+
+        for (int i = offset; i < offset + length; i++)
+        {
+            long value = data[i];
+            data[i] = modMultiply(value, value);
+        }
+    }
+
     /**
      * Create a ParallelRunnable for multiplying the elements in-place.
      *
@@ -2,15 +2,21 @@ package org.apfloat.internal;
 
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.ArrayAccess;
+import static org.apfloat.internal.LongModConstants.*;
 
 /**
  * Fast Number Theoretic Transform that uses lookup tables
  * for powers of n:th root of unity and permutation indexes.<p>
  *
+ * The transforms use radix-4 steps, so the data is processed in
+ * about half as many passes as with radix-2 steps. If the transform
+ * length is an odd power of two, one radix-2 step is also done, where
+ * no multiplications are needed.<p>
+ *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -27,7 +33,13 @@ public class LongTableFNT
 
     /**
      * Forward (Sande-Tukey) fast Number Theoretic Transform.
-     * Data length must be a power of two.
+     * Data length must be a power of two.<p>
+     *
+     * The precomputed quotients of the powers of the root of unity are
+     * taken from the {@link LongWTables} cache if <code>wTable</code> is one of
+     * the tables cached there. Otherwise they are calculated on every call,
+     * which takes a significant amount of time compared to the transform itself;
+     * then the variant that takes the quotient table as a parameter should be used.
      *
      * @param arrayAccess The data array to transform.
      * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus.
@@ -36,6 +48,27 @@ public class LongTableFNT
 
     public void tableFNT(ArrayAccess arrayAccess, long[] wTable, int[] permutationTable)
         throws ApfloatRuntimeException
+    {
+        tableFNT(arrayAccess, wTable, getWQuotientTable(wTable), permutationTable);
+    }
+
+    /**
+     * Forward (Sande-Tukey) fast Number Theoretic Transform.
+     * Data length must be a power of two.
+     * The multiplications use the precomputed quotients of the powers of the root of unity.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus.
+     * @param wQuotientTable Table of the precomputed quotients of <code>wTable</code>.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     *
+     * @see LongModMath#createWQuotientTable(long[])
+     *
+     * @since 1.9.0
+     */
+
+    public void tableFNT(ArrayAccess arrayAccess, long[] wTable, long[] wQuotientTable, int[] permutationTable)
+        throws ApfloatRuntimeException
     {
         int nn, offset, istep, mmax, r;
         long[] data;
@@ -51,39 +84,82 @@ public class LongTableFNT
             return;
         }
 
+        // Radix-4 steps, each combining two radix-2 steps into one pass over the data
+
         r = 1;
         mmax = nn >> 1;
-        while (mmax > 0)
+        while (mmax > 1)
         {
             istep = mmax << 1;
 
+            int quarter = mmax >> 1;
+            long w4 = wTable[nn >> 2],                                    // Fourth root of unity
+                 w4Quotient = wQuotientTable[nn >> 2];
+
             // Optimize first step when wr = 1
 
             for (int i = offset; i < offset + nn; i += istep)
             {
-                int j = i + mmax;
-                long a = data[i];
-                long b = data[j];
-                data[i] = modAdd(a, b);
-                data[j] = modSubtract(a, b);
+                int i1 = i + quarter,
+                    i2 = i1 + quarter,
+                    i3 = i2 + quarter;
+                long a0 = data[i],
+                     a1 = data[i1],
+                     a2 = data[i2],
+                     a3 = data[i3],
+                     b0 = modAdd(a0, a2),
+                     b1 = modAdd(a1, a3),
+                     b2 = modSubtract(a0, a2),
+                     b3 = modMultiply(modSubtract(a1, a3), w4, w4Quotient);
+                data[i] = modAdd(b0, b1);
+                data[i1] = modSubtract(b0, b1);
+                data[i2] = modAdd(b2, b3);
+                data[i3] = modSubtract(b2, b3);
             }
 
-            int t = r;
+            int t1 = r,
+                t2 = r << 1,
+                t3 = t1 + t2;
 
-            for (int m = 1; m < mmax; m++)
+            for (int m = 1; m < quarter; m++)
             {
                 for (int i = offset + m; i < offset + nn; i += istep)
                 {
-                    int j = i + mmax;
-                    long a = data[i];
-                    long b = data[j];
-                    data[i] = modAdd(a, b);
-                    data[j] = modMultiply(wTable[t], modSubtract(a, b));
+                    int i1 = i + quarter,
+                        i2 = i1 + quarter,
+                        i3 = i2 + quarter;
+                    long a0 = data[i],
+                         a1 = data[i1],
+                         a2 = data[i2],
+                         a3 = data[i3],
+                         b0 = modAdd(a0, a2),
+                         b1 = modAdd(a1, a3),
+                         b2 = modSubtract(a0, a2),
+                         b3 = modMultiply(modSubtract(a1, a3), w4, w4Quotient);
+                    data[i] = modAdd(b0, b1);
+                    data[i1] = modMultiply(modSubtract(b0, b1), wTable[t2], wQuotientTable[t2]);
+                    data[i2] = modMultiply(modAdd(b2, b3), wTable[t1], wQuotientTable[t1]);
+                    data[i3] = modMultiply(modSubtract(b2, b3), wTable[t3], wQuotientTable[t3]);
                 }
-                t += r;
+                t1 += r;
+                t2 += r << 1;
+                t3 += r * 3;
+            }
+            r <<= 2;
+            mmax >>= 2;
+        }
+
+        if (mmax == 1)
+        {
+            // Last radix-2 step when the transform length is an odd power of two, wr = 1
+
+            for (int i = offset; i < offset + nn; i += 2)
+            {
+                long a = data[i];
+                long b = data[i + 1];
+                data[i] = modAdd(a, b);
+                data[i + 1] = modSubtract(a, b);
             }
-            r <<= 1;
-            mmax >>= 1;
         }
 
         if (permutationTable != null)
@@ -94,7 +170,13 @@ public class LongTableFNT
 
     /**
      * Inverse (Cooley-Tukey) fast Number Theoretic Transform.
-     * Data length must be a power of two.
+     * Data length must be a power of two.<p>
+     *
+     * The precomputed quotients of the powers of the root of unity are
+     * taken from the {@link LongWTables} cache if <code>wTable</code> is one of
+     * the tables cached there. Otherwise they are calculated on every call,
+     * which takes a significant amount of time compared to the transform itself;
+     * then the variant that takes the quotient table as a parameter should be used.
      *
      * @param arrayAccess The data array to transform.
      * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus.
@@ -103,6 +185,27 @@ public class LongTableFNT
 
     public void inverseTableFNT(ArrayAccess arrayAccess, long[] wTable, int[] permutationTable)
         throws ApfloatRuntimeException
+    {
+        inverseTableFNT(arrayAccess, wTable, getWQuotientTable(wTable), permutationTable);
+    }
+
+    /**
+     * Inverse (Cooley-Tukey) fast Number Theoretic Transform.
+     * Data length must be a power of two.
+     * The multiplications use the precomputed quotients of the powers of the root of unity.
+     *
+     * @param arrayAccess The data array to transform.
+     * @param wTable Table of powers of n:th root of unity <code>w</code> modulo the current modulus.
+     * @param wQuotientTable Table of the precomputed quotients of <code>wTable</code>.
+     * @param permutationTable Table of permutation indexes, or <code>null</code> if the data should not be permuted.
+     *
+     * @see LongModMath#createWQuotientTable(long[])
+     *
+     * @since 1.9.0
+     */
+
+    public void inverseTableFNT(ArrayAccess arrayAccess, long[] wTable, long[] wQuotientTable, int[] permutationTable)
+        throws ApfloatRuntimeException
     {
         int nn, offset, istep, mmax, r;
         long[] data;
@@ -125,35 +228,102 @@ public class LongTableFNT
 
         r = nn;
         mmax = 1;
+
+        if ((Integer.numberOfTrailingZeros(nn) & 1) != 0)
+        {
+            // First radix-2 step when the transform length is an odd power of two, w = 1
+
+            for (int i = offset; i < offset + nn; i += 2)
+            {
+                long wTemp = data[i + 1];
+                data[i + 1] = modSubtract(data[i], wTemp);
+                data[i] = modAdd(data[i], wTemp);
+            }
+            r = nn >> 1;
+            mmax = 2;
+        }
+
+        // Radix-4 steps, each combining two radix-2 steps into one pass over the data
+
         while (nn > mmax)
         {
-            istep = mmax << 1;
-            r >>= 1;
+            istep = mmax << 2;
+            r >>= 2;
+
+            long w4 = wTable[nn >> 2],                                    // Fourth root of unity
+                 w4Quotient = wQuotientTable[nn >> 2];
 
             // Optimize first step when w = 1
 
             for (int i = offset; i < offset + nn; i += istep)
             {
-                int j = i + mmax;
-                long wTemp = data[j];
-                data[j] = modSubtract(data[i], wTemp);
-                data[i] = modAdd(data[i], wTemp);
+                int i1 = i + mmax,
+                    i2 = i1 + mmax,
+                    i3 = i2 + mmax;
+                long a0 = data[i],
+                     a1 = data[i1],
+                     a2 = data[i2],
+                     a3 = data[i3],
+                     b0 = modAdd(a0, a1),
+                     b1 = modSubtract(a0, a1),
+                     b2 = modAdd(a2, a3),
+                     b3 = modMultiply(modSubtract(a2, a3), w4, w4Quotient);
+                data[i] = modAdd(b0, b2);
+                data[i1] = modAdd(b1, b3);
+                data[i2] = modSubtract(b0, b2);
+                data[i3] = modSubtract(b1, b3);
             }
 
-            int t = r;
+            int t1 = r,
+                t2 = r << 1,
+                t3 = t1 + t2;
 
             for (int m = 1; m < mmax; m++)
             {
                 for (int i = offset + m; i < offset + nn; i += istep)
                 {
-                    int j = i + mmax;
-                    long wTemp = modMultiply(wTable[t], data[j]);
-                    data[j] = modSubtract(data[i], wTemp);
-                    data[i] = modAdd(data[i], wTemp);
+                    int i1 = i + mmax,
+                        i2 = i1 + mmax,
+                        i3 = i2 + mmax;
+                    long a0 = data[i],
+                         a1 = modMultiply(data[i1], wTable[t2], wQuotientTable[t2]),
+                         a2 = modMultiply(data[i2], wTable[t1], wQuotientTable[t1]),
+                         a3 = modMultiply(data[i3], wTable[t3], wQuotientTable[t3]),
+                         b0 = modAdd(a0, a1),
+                         b1 = modSubtract(a0, a1),
+                         b2 = modAdd(a2, a3),
+                         b3 = modMultiply(modSubtract(a2, a3), w4, w4Quotient);
+                    data[i] = modAdd(b0, b2);
+                    data[i1] = modAdd(b1, b3);
+                    data[i2] = modSubtract(b0, b2);
+                    data[i3] = modSubtract(b1, b3);
                 }
-                t += r;
+                t1 += r;
+                t2 += r << 1;
+                t3 += r * 3;
             }
             mmax = istep;
         }
     }
+
+    // Get the precomputed quotients from the cache if the table is a cached table of the current modulus, otherwise calculate them
+    private long[] getWQuotientTable(long[] wTable)
+    {
+        int length = wTable.length;
+        for (int modulus = 0; modulus < MODULUS.length; modulus++)
+        {
+            if (MODULUS[modulus] == getModulus())
+            {
+                if (wTable == LongWTables.getWTable(modulus, length))
+                {
+                    return LongWTables.getWQuotientTable(modulus, length);
+                }
+                else if (wTable == LongWTables.getInverseWTable(modulus, length))
+                {
+                    return LongWTables.getInverseWQuotientTable(modulus, length);
+                }
+            }
+        }
+        return createWQuotientTable(wTable);
+    }
 }
@@ -13,7 +13,7 @@ import static org.apfloat.internal.LongModConstants.*;
  *
  * All access to this class must be externally synchronized.
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -45,10 +45,11 @@ public class LongTableFNTStrategy
 
         setModulus(MODULUS[modulus]);                                       // Modulus
         long[] wTable = LongWTables.getWTable(modulus, (int) length);
+        long[] wQuotientTable = LongWTables.getWQuotientTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        tableFNT(arrayAccess, wTable, null);
+        tableFNT(arrayAccess, wTable, wQuotientTable, null);
 
         arrayAccess.close();
     }
@@ -69,10 +70,11 @@ public class LongTableFNTStrategy
 
         setModulus(MODULUS[modulus]);                                       // Modulus
         long[] wTable = LongWTables.getInverseWTable(modulus, (int) length);
+        long[] wQuotientTable = LongWTables.getInverseWQuotientTable(modulus, (int) length);
 
         ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length);
 
-        inverseTableFNT(arrayAccess, wTable, null);
+        inverseTableFNT(arrayAccess, wTable, wQuotientTable, null);
 
         divideElements(arrayAccess, (long) totalTransformLength);
 
@@ -1,17 +1,14 @@
 package org.apfloat.internal;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.ConcurrentMap;
-
 import org.apfloat.internal.LongModMath;
 import static org.apfloat.internal.LongModConstants.*;
 
 /**
  * Helper class for generating and caching tables of powers of the n:th root of unity.
+ * The tables are stored in the shared {@link TableCache}.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -51,10 +48,66 @@ public class LongWTables
         return getWTable(modulus, length, true);
     }
 
+    /**
+     * Get the precomputed quotients of a table of powers of n:th root of unity.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The length of the table to be returned, i.e. n.
+     *
+     * @return The precomputed quotients of the table of powers of the n:th root of unity.
+     *
+     * @see LongModMath#createWQuotientTable(long[])
+     *
+     * @since 1.9.0
+     */
+
+    public static long[] getWQuotientTable(int modulus, int length)
+    {
+        return getWQuotientTable(modulus, length, false);
+    }
+
+    /**
+     * Get the precomputed quotients of a table of inverses of powers of n:th root of unity.
+     *
+     * @param modulus The index of the modulus to be used.
+     * @param length The length of the table to be returned, i.e. n.
+     *
+     * @return The precomputed quotients of the table of inverses of powers of the n:th root of unity.
+     *
+     * @see LongModMath#createWQuotientTable(long[])
+     *
+     * @since 1.9.0
+     */
+
+    public static long[] getInverseWQuotientTable(int modulus, int length)
+    {
+        return getWQuotientTable(modulus, length, true);
+    }
+
+    /**
+     * Precompute the tables for transforms of the specified length for all moduli,
+     * so that they are not calculated later during the transforms. The length is
+     * the length of the table transforms, e.g. the length of the rows in the
+     * six-step transform.
+     *
+     * @param length The length of the tables, i.e. n.
+     *
+     * @since 1.9.0
+     */
+
+    public static void precomputeTables(int length)
+    {
+        for (int modulus = 0; modulus < MODULUS.length; modulus++)
+        {
+            getWQuotientTable(modulus, length, false);
+            getWQuotientTable(modulus, length, true);
+        }
+    }
+
     private static long[] getWTable(int modulus, int length, boolean isInverse)
     {
-        List<Integer> key = Arrays.asList(isInverse ? 1 : 0, modulus, length);
-        long[] wTable = LongWTables.cache.get(key);
+        String name = (isInverse ? "LongInverseWTable" : "LongWTable");
+        long[] wTable = (long[]) TableCache.get(name, modulus, length);
         // Do not synchronize, multiple threads may do this at the same time, but only one gets to put the value in the cache
         if (wTable == null)
         {
@@ -64,7 +117,7 @@ public class LongWTables
                          instance.getForwardNthRoot(PRIMITIVE_ROOT[modulus], length));  // Forward n:th root
             wTable = instance.createWTable(w, length);
             // Check if another thread already put the wTable in the cache; if so then use it
-            long[] value = LongWTables.cache.putIfAbsent(key, wTable);
+            long[] value = (long[]) TableCache.putIfAbsent(name, modulus, length, wTable);
             if (value != null)
             {
                 // Another thread did put the value in the cache so use it
@@ -74,13 +127,28 @@ public class LongWTables
         return wTable;
     }
 
+    private static long[] getWQuotientTable(int modulus, int length, boolean isInverse)
+    {
+        String name = (isInverse ? "LongInverseWQuotientTable" : "LongWQuotientTable");
+        long[] wQuotientTable = (long[]) TableCache.get(name, modulus, length);
+        // Do not synchronize, as with the wTable
+        if (wQuotientTable == null)
+        {
+            LongModMath instance = getInstance(modulus);
+            wQuotientTable = instance.createWQuotientTable(getWTable(modulus, length, isInverse));
+            long[] value = (long[]) TableCache.putIfAbsent(name, modulus, length, wQuotientTable);
+            if (value != null)
+            {
+                wQuotientTable = value;
+            }
+        }
+        return wQuotientTable;
+    }
+
     private static LongModMath getInstance(int modulus)
     {
         LongModMath instance = new LongModMath();
         instance.setModulus(MODULUS[modulus]);
         return instance;
     }
-
-    // With inverses, three moduli and lengths being powers of two, the theoretical maximum map size is 2 * 3 * 30 = 180 entries
-    private static ConcurrentMap<List<Integer>, long[]> cache = new ConcurrentSoftHashMap<List<Integer>, long[]>();
 }
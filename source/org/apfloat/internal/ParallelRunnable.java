@@ -2,6 +2,8 @@ package org.apfloat.internal;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatInterruptedException;
 import org.apfloat.spi.Util;
 
 /**
@@ -10,10 +12,15 @@ import org.apfloat.spi.Util;
  * work to many small batches, which are run one at a time, and can be run in
  * parallel by multiple threads. The <code>ParallelRunnable</code> isn't
  * completed until all batches are completed, i.e. the {@link #run()} method
- * only returns when all batches are completed.
+ * only returns when all batches are completed.<p>
+ *
+ * Before each batch is run, it is checked if the calculation should be stopped,
+ * using the {@link ApfloatContext} and the thread that created the <code>ParallelRunnable</code>.
+ * If a batch fails with an exception, no more batches are started and the exception
+ * is thrown from the {@link #run()} method.
  *
  * @since 1.1
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -31,12 +38,17 @@ public abstract class ParallelRunnable
         this.length = length;
         this.started = new AtomicLong();
         this.completed = new AtomicLong();
+        this.ctx = ApfloatContext.getContext();
+        this.thread = Thread.currentThread();
     }
 
     /**
      * Repeatedly get a batch of work and run it, until all batches are
      * completed. This method can (and should) be called from multiple
      * threads in parallel.
+     *
+     * @exception org.apfloat.ApfloatInterruptedException If the calculation was stopped.
+     * @exception RuntimeException If running any batch failed.
      */
 
     public final void run()
@@ -47,10 +59,20 @@ public abstract class ParallelRunnable
         // Wait until all batches are completed (the above only says all batches were started)
         // Note that accessing this atomic variable also ensures that memory writes in other
         // threads have happened-before we get here and see that the task is completed
-        while (this.completed.get() < this.length)
+        while (this.completed.get() < this.length && this.failure == null)
         {
             Thread.yield();     // Do not waste time
         }
+
+        Throwable failure = this.failure;
+        if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+        else if (failure instanceof Error)
+        {
+            throw (Error) failure;
+        }
     }
 
     /**
@@ -60,7 +82,10 @@ public abstract class ParallelRunnable
      * thread to steal and complete a minimal amount of work.<p>
      *
      * Note that if a batch could not be run, it does not mean that all of
-     * the batches are already completed - some could still be running.
+     * the batches are already completed - some could still be running.<p>
+     *
+     * If the batch fails with an exception, the exception is not thrown
+     * from this method but from {@link #run()}.
      *
      * @return If a batch was actually run.
      */
@@ -70,13 +95,27 @@ public abstract class ParallelRunnable
         boolean isRun = false;
         if (this.started.get() < this.length)
         {
-            long batchSize = Math.max(MINIMUM_BATCH_SIZE, getPreferredBatchSize());
+            long batchSize = getBatchSize();
             long startValue = this.started.getAndAdd(batchSize);
             long length = Math.min(batchSize, this.length - startValue);
             if (length > 0)
             {
-                Runnable runnable = getRunnable(startValue, length);
-                runnable.run();
+                try
+                {
+                    checkCancelled();
+                    Runnable runnable = getRunnable(startValue, length);
+                    runnable.run();
+                }
+                catch (RuntimeException re)
+                {
+                    fail(re);
+                    return false;
+                }
+                catch (Error e)
+                {
+                    fail(e);
+                    return false;
+                }
                 // This ensures that all memory writes in the Runnable happen-before other threads can see that the batch was completed
                 this.completed.addAndGet(length);
                 isRun = true;
@@ -133,10 +172,61 @@ public abstract class ParallelRunnable
         return this.preferredBatchSize;
     }
 
+    /**
+     * Get the total length of the work, i.e. the sum of the lengths of all batches.
+     *
+     * @return The length of the work.
+     */
+
+    long getLength()
+    {
+        return this.length;
+    }
+
+    /**
+     * Get the size of the batches that the work is split to.
+     *
+     * @return The batch size.
+     */
+
+    long getBatchSize()
+    {
+        return Math.max(MINIMUM_BATCH_SIZE, getPreferredBatchSize());
+    }
+
+    /**
+     * Check if the calculation should be stopped, i.e. the thread that created this object
+     * has been interrupted, or its context has been cancelled or its deadline has passed.
+     *
+     * @exception org.apfloat.ApfloatInterruptedException If the calculation should be stopped.
+     */
+
+    void checkCancelled()
+        throws ApfloatInterruptedException
+    {
+        this.ctx.checkCancelled(this.thread);
+    }
+
+    // Record the first failure and prevent any further batches from being started
+    private void fail(Throwable failure)
+    {
+        synchronized (this)
+        {
+            if (this.failure == null)
+            {
+                this.failure = failure;
+            }
+        }
+        this.started.set(this.length);
+    }
+
     private static final int MINIMUM_BATCH_SIZE = 16;
 
     private long length;
     private long preferredBatchSize;
     private AtomicLong started;
     private AtomicLong completed;
+    private ApfloatContext ctx;
+    private Thread thread;
+    private volatile Throwable failure;
 }
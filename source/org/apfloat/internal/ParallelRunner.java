@@ -2,10 +2,13 @@ package org.apfloat.internal;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatInterruptedException;
 import org.apfloat.ApfloatRuntimeException;
 
 /**
@@ -17,10 +20,19 @@ import org.apfloat.ApfloatRuntimeException;
  * one less than the number of processors. This way, when also the current thread
  * runs batches from the <code>ParallelRunnable</code>, CPU utilization should be
  * maximized but only so that no more threads are actively executing than the
- * number of processors.
+ * number of processors.<p>
+ *
+ * If the <code>ExecutorService</code> is a <code>ForkJoinPool</code>, e.g. one
+ * returned from {@link ApfloatContext#getForkJoinExecutorService()}, the work is
+ * instead run as fork-join tasks in the pool. The batches of a
+ * <code>ParallelRunnable</code> are split recursively to tasks, idle threads
+ * steal the tasks from the busy ones and threads waiting for other tasks to
+ * complete execute tasks or are compensated for by the pool, instead of
+ * yielding the CPU in a loop. The fork-join implementation is only loaded if
+ * the runtime environment supports it (Java 7 or later).
  *
  * @since 1.1
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -40,12 +52,18 @@ public class ParallelRunner
      * @param parallelRunnable The ParallelRunnable to be run.
      */
 
-    public static void runParallel(ParallelRunnable parallelRunnable)
+    public static void runParallel(final ParallelRunnable parallelRunnable)
         throws ApfloatRuntimeException
     {
         ApfloatContext ctx = ApfloatContext.getContext();
         int numberOfProcessors = ctx.getNumberOfProcessors();
 
+        if (numberOfProcessors > 1 && isForkJoinPool(ctx.getExecutorService()))
+        {
+            ParallelRunner.forkJoinSupport.runParallel(ctx.getExecutorService(), ctx, parallelRunnable);
+            return;
+        }
+
         ParallelRunner.tasks.add(parallelRunnable);
         try
         {
@@ -53,10 +71,19 @@ public class ParallelRunner
             {
                 ExecutorService executorService = ctx.getExecutorService();
 
+                // The other threads only run the batches; the current thread waits for the completion and throws any failure
+                Runnable runnable = createContextRunnable(ctx, new Runnable()
+                {
+                    public void run()
+                    {
+                        while (parallelRunnable.runBatch());
+                    }
+                });
+
                 for (int i = 0; i < numberOfProcessors - 1; i++)
                 {
                     // Process the task also in other threads
-                    executorService.execute(parallelRunnable);
+                    executorService.execute(runnable);
                 }
             }
 
@@ -69,17 +96,104 @@ public class ParallelRunner
         }
     }
 
+    /**
+     * Run independent tasks in parallel using multiple threads.
+     * The first task is run in the current thread and the other tasks
+     * are dispatched to the <code>ExecutorService</code> returned from
+     * {@link ApfloatContext#getExecutorService()}. The tasks are run
+     * using the current thread's {@link ApfloatContext}.<p>
+     *
+     * After running its own task, the current thread runs itself any of the
+     * dispatched tasks that no other thread has started yet. Thus the tasks
+     * can themselves call this method recursively, without waiting for
+     * the limited number of threads of the <code>ExecutorService</code>.
+     *
+     * @param runnables The tasks to be run.
+     *
+     * @since 1.9.0
+     */
+
+    public static void runParallel(Runnable[] runnables)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        ExecutorService executorService = ctx.getExecutorService();
+
+        if (isForkJoinPool(executorService))
+        {
+            Runnable[] contextRunnables = new Runnable[runnables.length];
+            for (int i = 0; i < runnables.length; i++)
+            {
+                contextRunnables[i] = createContextRunnable(ctx, runnables[i]);
+            }
+            ParallelRunner.forkJoinSupport.runParallel(executorService, contextRunnables);
+            return;
+        }
+
+        FutureTask<?>[] futures = new FutureTask<?>[runnables.length];
+
+        // Dispatch all but the first task to other threads
+        for (int i = 1; i < runnables.length; i++)
+        {
+            futures[i] = new FutureTask<Void>(createContextRunnable(ctx, runnables[i]), null);
+            executorService.execute(futures[i]);
+        }
+
+        // Run the first task in the current thread
+        runnables[0].run();
+
+        for (int i = 1; i < runnables.length; i++)
+        {
+            // If no other thread has started the task yet, run it in the current thread, otherwise this does nothing
+            futures[i].run();
+
+            // Wait for the task to complete, if it was run by another thread
+            wait(futures[i]);
+
+            try
+            {
+                futures[i].get();
+            }
+            catch (InterruptedException ie)
+            {
+                throw new ApfloatInterruptedException("Waiting for dispatched task to complete was interrupted", ie);
+            }
+            catch (ExecutionException ee)
+            {
+                if (ee.getCause() instanceof ApfloatInterruptedException)
+                {
+                    throw new ApfloatInterruptedException(ee.getCause().getMessage(), ee);
+                }
+                throw new ApfloatRuntimeException("Task execution failed", ee);
+            }
+        }
+    }
+
     /**
      * While waiting for a <code>Future</code> to be completed, steal a minimal
-     * amount of work from any running task and run it.
+     * amount of work from any running task and run it.<p>
+     *
+     * If the current {@link ApfloatContext} uses a <code>ForkJoinPool</code>,
+     * the thread blocks on {@link Future#get()} instead, as a managed blocker
+     * so that the pool can activate a spare thread in the meanwhile.
      *
      * @param future The Future to wait for.
      */
 
     public static void wait(Future<?> future)
     {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        if (isForkJoinPool(ctx.getExecutorService()))
+        {
+            ParallelRunner.forkJoinSupport.wait(future);
+            return;
+        }
+
         while (!future.isDone())
         {
+            // Stop waiting if the calculation of the current thread should be stopped
+            ctx.checkCancelled();
+
             // Try and get any running task
             ParallelRunnable parallelRunnable = ParallelRunner.tasks.peek();
             if (parallelRunnable != null)
@@ -95,6 +209,41 @@ public class ParallelRunner
         }
     }
 
+    private static boolean isForkJoinPool(ExecutorService executorService)
+    {
+        return ParallelRunner.forkJoinSupport != null && ParallelRunner.forkJoinSupport.isForkJoinPool(executorService);
+    }
+
+    private static Runnable createContextRunnable(final ApfloatContext ctx, final Runnable runnable)
+    {
+        return new Runnable()
+        {
+            public void run()
+            {
+                ApfloatContext.runWithContext(ctx, runnable);
+            }
+        };
+    }
+
     // Implemented as a List because the assumption is that the number of concurrent tasks is very small
     private static Queue<ParallelRunnable> tasks = new ConcurrentLinkedQueue<ParallelRunnable>();
+
+    // The fork-join classes are only available in Java 7 and later, so they are loaded dynamically, or null if not available
+    private static ForkJoinSupport forkJoinSupport;
+
+    static
+    {
+        try
+        {
+            ParallelRunner.forkJoinSupport = (ForkJoinSupport) Class.forName("org.apfloat.internal.ForkJoinParallelRunner").getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e)
+        {
+            // Fork-join is not available, use the default implementation
+        }
+        catch (LinkageError le)
+        {
+            // Fork-join is not available, use the default implementation
+        }
+    }
 }
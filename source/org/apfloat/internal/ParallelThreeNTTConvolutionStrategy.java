@@ -1,13 +1,15 @@
 package org.apfloat.internal;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apfloat.ApfloatContext;
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.NTTBuilder;
 import org.apfloat.spi.NTTStrategy;
 
 /**
@@ -19,31 +21,96 @@ import org.apfloat.spi.NTTStrategy;
  * in {@link ApfloatContext#getNumberOfProcessors()}.<p>
  *
  * If the data block to be transformed is larger than the shared memory treshold setting
- * in the current ApfloatContext, this class will synchronize all data access on
- * the shared memory lock retrieved from {@link ApfloatContext#getSharedMemoryLock()}.<p>
+ * in the current ApfloatContext, this class reserves the memory needed by the convolution
+ * from a memory budget that is shared by all convolutions using the same shared memory lock
+ * retrieved from {@link ApfloatContext#getSharedMemoryLock()}. The size of the budget is the
+ * maximum memory block size setting in the current ApfloatContext. Large convolutions
+ * are run at the same time as long as their combined memory requirement fits in the budget,
+ * otherwise they wait until enough memory is released.<p>
+ *
+ * If the data for all moduli fits in the maximum memory block size setting in the
+ * current ApfloatContext at the same time, the convolutions modulo each modulus are
+ * also done concurrently. This way the steps of the convolution that are not parallelized,
+ * like copying the data, do not leave the other processors idle.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class ParallelThreeNTTConvolutionStrategy
     extends ThreeNTTConvolutionStrategy
 {
-    private static class LockFuture
+    // Memory shared by the convolutions using the same shared memory lock
+    private static class MemoryBudget
+    {
+        // Threads that already have a reservation can reserve more without waiting, otherwise a nested reservation could wait for itself
+        public synchronized boolean tryReserve(long bytes, long size)
+        {
+            Thread thread = Thread.currentThread();
+            Integer count = this.holders.get(thread);
+            if (count == null && this.reserved > 0 && this.reserved + bytes > size)
+            {
+                return false;
+            }
+            this.reserved += bytes;
+            this.holders.put(thread, count == null ? 1 : count + 1);
+            return true;
+        }
+
+        public synchronized void reserve(long bytes, long size)
+            throws InterruptedException
+        {
+            while (!tryReserve(bytes, size))
+            {
+                wait();
+            }
+        }
+
+        public synchronized void release(long bytes)
+        {
+            Thread thread = Thread.currentThread();
+            int count = this.holders.get(thread);
+            if (count == 1)
+            {
+                this.holders.remove(thread);
+            }
+            else
+            {
+                this.holders.put(thread, count - 1);
+            }
+            this.reserved -= bytes;
+            notifyAll();
+        }
+
+        private long reserved;
+        private Map<Thread, Integer> holders = new HashMap<Thread, Integer>();
+    }
+
+    // Completes when the memory has been reserved
+    private static class ReservationFuture
         extends FutureTask<Void>
     {
-        public LockFuture(Lock lock)
+        public ReservationFuture(MemoryBudget memoryBudget, long bytes, long size)
         {
             super(VOID_CALLABLE);
-            this.lock = lock;
+            this.memoryBudget = memoryBudget;
+            this.bytes = bytes;
+            this.size = size;
         }
 
         public boolean isDone()
         {
-            return this.lock.tryLock();
+            return this.memoryBudget.tryReserve(this.bytes, this.size);
+        }
+
+        public Void get()
+            throws InterruptedException
+        {
+            this.memoryBudget.reserve(this.bytes, this.size);
+            return null;
         }
 
         private static final Callable<Void> VOID_CALLABLE = new Callable<Void>()
@@ -54,7 +121,9 @@ public class ParallelThreeNTTConvolutionStrategy
             }
         };
 
-        private Lock lock;
+        private MemoryBudget memoryBudget;
+        private long bytes;
+        private long size;
     }
 
     /**
@@ -68,52 +137,92 @@ public class ParallelThreeNTTConvolutionStrategy
     public ParallelThreeNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
     {
         super(radix, nttStrategy);
+        this.radix = radix;
+    }
+
+    protected DataStorage[] convoluteModuli(final ModulusConvolution modulusConvolution, final int moduli, long length)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        if (ctx.getNumberOfProcessors() <= 1 ||
+            moduli * length > ctx.getMaxMemoryBlockSize() / ctx.getBuilderFactory().getElementSize())
+        {
+            // No benefit from running the moduli concurrently, or the data for all moduli doesn't fit in memory
+            return super.convoluteModuli(modulusConvolution, moduli, length);
+        }
+
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        final DataStorage[] resultMod = new DataStorage[moduli];
+        Runnable[] runnables = new Runnable[moduli];
+        for (int i = 0; i < moduli; i++)
+        {
+            final int modulus = i;
+
+            // The transforms keep the current modulus in their state so each modulus needs its own transform
+            final ThreeNTTConvolutionStrategy convolutionStrategy = (modulus == 0 ? this : new ThreeNTTConvolutionStrategy(this.radix, nttBuilder.createNTT(length)));
+            runnables[modulus] = new Runnable()
+            {
+                public void run()
+                {
+                    resultMod[modulus] = modulusConvolution.convolute(convolutionStrategy, modulus, modulus == moduli - 1);
+                }
+            };
+        }
+        ParallelRunner.runParallel(runnables);
+
+        return resultMod;
     }
 
     protected void lock(long length)
     {
-        assert(this.key == null);
+        assert(this.memoryBudget == null);
 
         if (super.nttStrategy instanceof Parallelizable &&
             super.carryCRTStrategy instanceof Parallelizable &&
             super.stepStrategy instanceof Parallelizable)
         {
             ApfloatContext ctx = ApfloatContext.getContext();
-            if (length > ctx.getSharedMemoryTreshold() / ctx.getBuilderFactory().getElementSize())
+            int elementSize = ctx.getBuilderFactory().getElementSize();
+            Object key = ctx.getSharedMemoryLock();
+            if (length > ctx.getSharedMemoryTreshold() / elementSize && key != null)
             {
-                // Data size is big: synchronize on shared memory lock
-                this.key = ctx.getSharedMemoryLock();
-
-                if (this.key != null)
+                // Data size is big: reserve the memory from the budget shared by everyone using the shared memory lock
+                MemoryBudget memoryBudget;
+                synchronized (ParallelThreeNTTConvolutionStrategy.memoryBudgets)
                 {
-                    Lock lock;
-                    synchronized (ParallelThreeNTTConvolutionStrategy.locks)
+                    memoryBudget = ParallelThreeNTTConvolutionStrategy.memoryBudgets.get(key);
+                    if (memoryBudget == null)
                     {
-                        lock = ParallelThreeNTTConvolutionStrategy.locks.get(this.key);
-                        if (lock == null)
-                        {
-                            lock = new ReentrantLock();
-                            ParallelThreeNTTConvolutionStrategy.locks.put(this.key, lock);
-                        }
+                        memoryBudget = new MemoryBudget();
+                        ParallelThreeNTTConvolutionStrategy.memoryBudgets.put(key, memoryBudget);
                     }
-                    ParallelRunner.wait(new LockFuture(lock));
                 }
+
+                // The results for all moduli plus the data being transformed, or if the data is not kept in memory, at most the maximum memory block
+                long size = ctx.getMaxMemoryBlockSize(),
+                     bytes = (length <= size / elementSize / BUFFERS ? length * elementSize * BUFFERS : size);
+                ParallelRunner.wait(new ReservationFuture(memoryBudget, bytes, size));
+                this.memoryBudget = memoryBudget;
+                this.reservedBytes = bytes;
             }
         }
     }
 
     protected void unlock()
     {
-        if (this.key != null)
+        if (this.memoryBudget != null)
         {
-            synchronized (ParallelThreeNTTConvolutionStrategy.locks)
-            {
-                ParallelThreeNTTConvolutionStrategy.locks.get(this.key).unlock();
-            }
+            this.memoryBudget.release(this.reservedBytes);
+            this.memoryBudget = null;
         }
     }
 
-    private static Map<Object, Lock> locks = new WeakHashMap<Object, Lock>();
+    // Number of buffers of the transform length that a convolution needs at most at the same time
+    private static final int BUFFERS = 6;
+
+    private static Map<Object, MemoryBudget> memoryBudgets = new WeakHashMap<Object, MemoryBudget>();
 
-    private Object key;
+    private int radix;
+    private MemoryBudget memoryBudget;
+    private long reservedBytes;
 }
@@ -5,7 +5,7 @@ import org.apfloat.spi.Util;
 /**
  * Functions to perform bit-reverse ordering of data.
  *
- * @version 1.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -77,4 +77,31 @@ public class Scramble
 
         return scrambleTable;
     }
+
+    /**
+     * Get a table of indexes for scrambling an array for FFT.
+     * The table is created with {@link #createScrambleTable(int)}
+     * and stored in the shared {@link TableCache}.
+     *
+     * @param length The FFT transform length for which the scrambling table is needed.
+     *
+     * @return An array of pairs of indexes that indicate, which array elements should be swapped to scramble the array.
+     *
+     * @since 1.9.0
+     */
+
+    public static int[] getScrambleTable(int length)
+    {
+        int[] scrambleTable = (int[]) TableCache.get("ScrambleTable", 0, length);
+        if (scrambleTable == null)
+        {
+            scrambleTable = createScrambleTable(length);
+            int[] value = (int[]) TableCache.putIfAbsent("ScrambleTable", 0, length, scrambleTable);
+            if (value != null)
+            {
+                scrambleTable = value;
+            }
+        }
+        return scrambleTable;
+    }
 }
@@ -4,7 +4,9 @@ import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.DataStorage;
 import org.apfloat.spi.ArrayAccess;
+import org.apfloat.spi.FusedNTTStrategy;
 import org.apfloat.spi.MatrixStrategy;
+import org.apfloat.spi.Util;
 
 /**
  * Fast Number Theoretic Transform that uses a "six-step"
@@ -28,17 +30,26 @@ import org.apfloat.spi.MatrixStrategy;
  * to increase performance, as well as the first transposition step in
  * the inverse transform. The convolution's element-by-element multiplication
  * is not sensitive to the order in which the elements are.
- * Also scrambling the data can be omitted.<p>
+ * Also scrambling the data can be omitted: the first row transforms leave
+ * the data in bit-reversed order and the multiplication by the powers of w
+ * accounts for the scrambled order of the rows, and in the inverse transform
+ * the first row transforms accept the data in the scrambled order.<p>
+ *
+ * In a convolution the last step of the forward transform, the element-by-element
+ * multiplication and the first step of the inverse transform are all done on the
+ * same rows of the matrix. With {@link #convoluteInPlace(DataStorage,DataStorage,int,long)}
+ * they are done one row at a time, while the row is in the processor cache.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class SixStepFNTStrategy
     extends AbstractStepFNTStrategy
+    implements FusedNTTStrategy
 {
     /**
      * Default constructor.
@@ -116,6 +127,64 @@ public class SixStepFNTStrategy
         arrayAccess.close();
     }
 
+    public void convoluteInPlace(DataStorage dataStorage, DataStorage transformedSource, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException
+    {
+        long length = dataStorage.getSize();            // Transform length n
+
+        if (Math.max(length, totalTransformLength) > super.stepStrategy.getMaxTransformLength())
+        {
+            throw new TransformLengthExceededException("Maximum transform length exceeded: " + Math.max(length, totalTransformLength) + " > " + super.stepStrategy.getMaxTransformLength());
+        }
+        else if (length > Integer.MAX_VALUE)
+        {
+            throw new ApfloatInternalException("Maximum array length exceeded: " + length);
+        }
+
+        assert (length == (length & -length));          // Must be a power of two
+
+        ArrayAccess arrayAccess = dataStorage.getArray(DataStorage.READ_WRITE, 0, (int) length),
+                    sourceArrayAccess = (transformedSource == null ? null : transformedSource.getArray(DataStorage.READ, 0, (int) length));
+
+        if (length < 2)
+        {
+            // The transforms do nothing, only multiply the elements
+            convoluteSecond(arrayAccess, sourceArrayAccess, 1, (int) length, modulus);
+        }
+        else
+        {
+            // Treat the input data as a n1 x n2 matrix
+
+            int logLength = Util.log2down(length),
+                n1 = logLength >> 1,
+                n2 = logLength - n1;
+
+            n1 = 1 << n1;
+            n2 = 1 << n2;
+
+            // Steps 1-4 of the forward transform
+            transposeInitial(arrayAccess, n1, n2, false);
+            transformFirst(arrayAccess, n1, n2, false, modulus);
+            transposeMiddle(arrayAccess, n2, n1, false);
+            multiplyElements(arrayAccess, n1, n2, length, 1, false, modulus);
+
+            // Step 5 of the forward transform, the element-by-element multiplication and step 2 of the inverse transform
+            convoluteSecond(arrayAccess, sourceArrayAccess, n2, n1, modulus);
+
+            // Steps 3-6 of the inverse transform
+            multiplyElements(arrayAccess, n1, n2, length, totalTransformLength, true, modulus);
+            transposeMiddle(arrayAccess, n1, n2, true);
+            transformFirst(arrayAccess, n1, n2, true, modulus);
+            transposeInitial(arrayAccess, n2, n1, true);
+        }
+
+        if (sourceArrayAccess != null)
+        {
+            sourceArrayAccess.close();
+        }
+        arrayAccess.close();
+    }
+
     /**
      * The initial transpose of the forward transform, or the final transpose
      * of the inverse transform, to transpose the columns of the matrix to be rows.
@@ -172,8 +241,10 @@ public class SixStepFNTStrategy
      * the matrix is initially in transposed form as it was left like that by the
      * forward transform.<p>
      *
-     * By default the row transforms permute the data, leaving it in the correct
-     * order so the element-by-element multiplication is simpler.
+     * By default the row transforms do not permute the data, leaving it in
+     * scrambled order, which {@link #multiplyElements(ArrayAccess,int,int,long,long,boolean,int)}
+     * takes into account. If this method is overridden to permute the data, then
+     * also <code>multiplyElements</code> should be overridden accordingly.
      *
      * @param arrayAccess The memory array to split and transform.
      * @param length Length of one transform (one row physically, by default).
@@ -184,7 +255,7 @@ public class SixStepFNTStrategy
 
     protected void transformFirst(ArrayAccess arrayAccess, int length, int count, boolean isInverse, int modulus)
     {
-        super.stepStrategy.transformRows(arrayAccess, length, count, isInverse, true, modulus);
+        super.stepStrategy.transformRows(arrayAccess, length, count, isInverse, false, modulus);
     }
 
     /**
@@ -210,8 +281,30 @@ public class SixStepFNTStrategy
         super.stepStrategy.transformRows(arrayAccess, length, count, isInverse, false, modulus);
     }
 
+    /**
+     * The second transform of the rows of the data matrix, the element-by-element
+     * multiplication and the inverse of the second transform, done one row at a time.
+     * This assumes that the final transpose of the forward transform is omitted,
+     * so the rows are in the same layout in the transformed source data.
+     *
+     * @param arrayAccess The memory array to split to rows and to convolute.
+     * @param source The transformed data to multiply with, or <code>null</code> if the elements should be squared.
+     * @param length Length of one transform (one row).
+     * @param count Number of rows.
+     * @param modulus Index of the modulus.
+     *
+     * @since 1.9.0
+     */
+
+    protected void convoluteSecond(ArrayAccess arrayAccess, ArrayAccess source, int length, int count, int modulus)
+    {
+        super.stepStrategy.convoluteRows(arrayAccess, source, length, count, modulus);
+    }
+
     /**
      * Multiply each matrix element by a power of the n:th root of unity.
+     * By default the rows of the matrix are assumed to be in scrambled order,
+     * as left by {@link #transformFirst(ArrayAccess,int,int,boolean,int)}.
      *
      * @param arrayAccess The memory array to multiply.
      * @param rows The number of rows in the <code>arrayAccess</code> to multiply.
@@ -224,7 +317,7 @@ public class SixStepFNTStrategy
 
     protected void multiplyElements(ArrayAccess arrayAccess, int rows, int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
     {
-        super.stepStrategy.multiplyElements(arrayAccess, 0, 0, rows, columns, length, totalTransformLength, isInverse, modulus);
+        super.stepStrategy.multiplyElements(arrayAccess, 0, 0, rows, columns, length, totalTransformLength, isInverse, true, modulus);
     }
 
     private MatrixStrategy matrixStrategy;
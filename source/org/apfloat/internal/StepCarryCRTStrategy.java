@@ -1,5 +1,11 @@
 package org.apfloat.internal;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
 import org.apfloat.spi.BuilderFactory;
@@ -9,34 +15,39 @@ import org.apfloat.spi.DataStorageBuilder;
 import org.apfloat.spi.DataStorage;
 
 /**
- * Class for performing the final step of a three-modulus
+ * Class for performing the final step of a three-modulus (or two-modulus)
  * Number Theoretic Transform based convolution. Works with blocks of data.<p>
  *
  * The algorithm is parallelized for multiprocessor computers,
  * if the data fits in memory.<p>
  *
  * The parallelization works so that the carry-CRT is done in
- * blocks in parallel. As a final step, a second pass is done
- * through the data set to propagate the carries from one block
- * to the next.<p>
+ * blocks in parallel. Each block calculates its carries locally,
+ * assuming that there is no carry from the previous block, and the
+ * carries overflowing from the blocks are stored. As a final step,
+ * after all blocks are completed, a second pass is done through the
+ * data set to propagate the carries from one block to the next. The
+ * carry from the previous block normally affects only the first few
+ * elements of a block, so the second pass is fast, and the blocks
+ * do not need to wait for each other in the first pass.<p>
  *
  * All access to this class must be externally synchronized.
  *
  * @see CarryCRTStepStrategy
  *
  * @since 1.7.0
- * @version 1.8.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class StepCarryCRTStrategy
     implements CarryCRTStrategy, Parallelizable
 {
-    // Runnable for calculating the carry-CRT in blocks, then get the carry of the previous block, add it, and provide carry to the next block
+    // Runnable for calculating the carry-CRT in blocks, and store the carry overflowing from the block, without the carry from the previous block
     private class CarryCRTRunnable<T>
         implements Runnable
     {
-        public CarryCRTRunnable(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, DataStorage dataStorage, long size, long resultSize, long offset, long length, MessagePasser<Long, T> messagePasser, CarryCRTStepStrategy<T> stepStrategy)
+        public CarryCRTRunnable(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, DataStorage dataStorage, long size, long resultSize, long offset, long length, Map<Long, T> carries, CarryCRTStepStrategy<T> stepStrategy)
         {
             this.resultMod0 = resultMod0;
             this.resultMod1 = resultMod1;
@@ -46,33 +57,18 @@ public class StepCarryCRTStrategy
             this.resultSize = resultSize;
             this.offset = offset;
             this.length = length;
-            this.messagePasser = messagePasser;
+            this.carries = carries;
             this.stepStrategy = stepStrategy;
         }
 
         public void run()
         {
-            T results = this.stepStrategy.crt(this.resultMod0, this.resultMod1, this.resultMod2, this.dataStorage, this.size, this.resultSize, this.offset, this.length);
-
-            // Finishing step - get the carry from the previous block and propagate it through the data
-            if (this.offset > 0)
-            {
-                T previousResults = this.messagePasser.receiveMessage(this.offset);
-
-                results = this.stepStrategy.carry(this.dataStorage, this.size, this.resultSize, this.offset, this.length, results, previousResults);
-            }
-
-            // Finally, send the carry to the next block
-            this.messagePasser.sendMessage(this.offset + this.length, results);
+            T results = (this.resultMod2 == null ?
+                         this.stepStrategy.crt(this.resultMod0, this.resultMod1, this.dataStorage, this.size, this.resultSize, this.offset, this.length) :
+                         this.stepStrategy.crt(this.resultMod0, this.resultMod1, this.resultMod2, this.dataStorage, this.size, this.resultSize, this.offset, this.length));
 
-            // Last block sanity check
-            if (this.offset + this.length == this.size)
-            {
-                assert (results != null);
-                assert (java.lang.reflect.Array.getLength(results) == 2);
-                assert (((Number) java.lang.reflect.Array.get(results, 0)).longValue() == 0);
-                assert (((Number) java.lang.reflect.Array.get(results, 1)).longValue() == 0);
-            }
+            // The carry from the previous block is propagated later, when all blocks are completed
+            this.carries.put(this.offset, results);
         }
 
         private DataStorage resultMod0,
@@ -83,7 +79,7 @@ public class StepCarryCRTStrategy
                      resultSize,
                      offset,
                      length;
-        private MessagePasser<Long, T> messagePasser;
+        private Map<Long, T> carries;
         private CarryCRTStepStrategy<T> stepStrategy;
     }
 
@@ -129,6 +125,36 @@ public class StepCarryCRTStrategy
         return doCarryCRT(elementArrayType, resultMod0, resultMod1, resultMod2, resultSize);
     }
 
+    /**
+     * Calculate the final result of a two-NTT convolution.<p>
+     *
+     * Performs a Chinese Remainder Theorem (CRT) on each element
+     * of the two result data sets to get the result of each element
+     * modulo the product of the two first moduli. Then it calculates the carries
+     * to get the final result.<p>
+     *
+     * Note that the return value's initial word may be zero or non-zero,
+     * depending on how large the result is.
+     *
+     * @param resultMod0 The result modulo <code>MODULUS[0]</code>.
+     * @param resultMod1 The result modulo <code>MODULUS[1]</code>.
+     * @param resultSize The number of elements needed in the final result.
+     *
+     * @return The final result with the CRT performed and the carries calculated.
+     *
+     * @since 1.9.0
+     */
+
+    public DataStorage carryCRT(final DataStorage resultMod0, final DataStorage resultMod1, final long resultSize)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        BuilderFactory builderFactory = ctx.getBuilderFactory();
+        Class<?> elementArrayType = builderFactory.getElementArrayType();
+
+        return doCarryCRT(elementArrayType, resultMod0, resultMod1, null, resultSize);
+    }
+
     private <T> DataStorage doCarryCRT(Class<T> elementArrayType, DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, long resultSize)
         throws ApfloatRuntimeException
     {
@@ -140,12 +166,15 @@ public class StepCarryCRTStrategy
         final DataStorage dataStorage = dataStorageBuilder.createDataStorage(resultSize * builderFactory.getElementSize());
         dataStorage.setSize(resultSize);
 
-        ParallelRunnable parallelRunnable = createCarryCRTParallelRunnable(elementArrayType, resultMod0, resultMod1, resultMod2, dataStorage, size, resultSize);
+        CarryCRTStepStrategy<T> stepStrategy = builderFactory.getCarryCRTBuilder(elementArrayType).createCarryCRTSteps(this.radix);
+        SortedMap<Long, T> carries = Collections.synchronizedSortedMap(new TreeMap<Long, T>());
+
+        ParallelRunnable parallelRunnable = createCarryCRTParallelRunnable(stepStrategy, resultMod0, resultMod1, resultMod2, dataStorage, size, resultSize, carries);
 
         if (size <= Integer.MAX_VALUE &&                                    // Only if the size fits in an integer, but with memory arrays it should
             resultMod0.isCached() &&                                        // Only if the data storage supports efficient parallel random access
             resultMod1.isCached() &&
-            resultMod2.isCached() &&
+            (resultMod2 == null || resultMod2.isCached()) &&
             dataStorage.isCached())
         {
             ParallelRunner.runParallel(parallelRunnable);
@@ -155,36 +184,88 @@ public class StepCarryCRTStrategy
             parallelRunnable.getRunnable(0, size).run();                    // Just run in current thread without parallelization
         }
 
+        carry(stepStrategy, dataStorage, size, resultSize, carries);
+
         return dataStorage;
     }
 
+    /**
+     * Propagate the carries from each block to the next block, after the
+     * carry-CRT has been done for all blocks.
+     *
+     * @param stepStrategy The steps of the carry-CRT.
+     * @param dataStorage The destination data storage of the computation.
+     * @param size The number of elements in the whole data set.
+     * @param resultSize The number of elements needed in the final result.
+     * @param carries The carries overflowing from each block, by the offset of the block.
+     *
+     * @since 1.9.0
+     */
+
+    protected <T> void carry(CarryCRTStepStrategy<T> stepStrategy, DataStorage dataStorage, long size, long resultSize, SortedMap<Long, T> carries)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        T results;
+
+        synchronized (carries)
+        {
+            // The blocks are iterated in order of the offset, the length of a block is up to the offset of the next block
+            Iterator<Map.Entry<Long, T>> iterator = carries.entrySet().iterator();
+            Map.Entry<Long, T> entry = iterator.next(),
+                               nextEntry = (iterator.hasNext() ? iterator.next() : null);
+
+            assert (entry.getKey() == 0);
+
+            results = entry.getValue();
+            while (nextEntry != null)
+            {
+                ctx.checkCancelled();
+
+                entry = nextEntry;
+                nextEntry = (iterator.hasNext() ? iterator.next() : null);
+
+                long offset = entry.getKey(),
+                     length = (nextEntry == null ? size : nextEntry.getKey()) - offset;
+
+                // Get the carry from the previous block and propagate it through the data
+                results = stepStrategy.carry(dataStorage, size, resultSize, offset, length, entry.getValue(), results);
+            }
+        }
+
+        // Last block sanity check
+        assert (results != null);
+        assert (java.lang.reflect.Array.getLength(results) == 2);
+        assert (((Number) java.lang.reflect.Array.get(results, 0)).longValue() == 0);
+        assert (((Number) java.lang.reflect.Array.get(results, 1)).longValue() == 0);
+    }
+
     /**
      * Create a ParallelRunnable object for doing the carry-CRT in parallel.
+     * The carries from the previous blocks are not propagated, instead the carries
+     * overflowing from each block are stored in <code>carries</code>.
      *
-     * @param elementArrayType The element array type used.
+     * @param stepStrategy The steps of the carry-CRT.
      * @param resultMod0 The result modulo <code>MODULUS[0]</code>.
      * @param resultMod1 The result modulo <code>MODULUS[1]</code>.
-     * @param resultMod2 The result modulo <code>MODULUS[2]</code>.
+     * @param resultMod2 The result modulo <code>MODULUS[2]</code>, or <code>null</code> if only two moduli are used.
      * @param dataStorage The destination data storage of the computation.
      * @param size The number of elements in the whole data set.
      * @param resultSize The number of elements needed in the final result.
+     * @param carries The carries overflowing from each block are stored here, by the offset of the block.
      *
      * @return An suitable object for performing the carry-CRT in parallel.
+     *
+     * @since 1.9.0
      */
 
-    protected <T> ParallelRunnable createCarryCRTParallelRunnable(Class<T> elementArrayType, final DataStorage resultMod0, final DataStorage resultMod1, final DataStorage resultMod2, final DataStorage dataStorage, final long size, final long resultSize)
+    protected <T> ParallelRunnable createCarryCRTParallelRunnable(final CarryCRTStepStrategy<T> stepStrategy, final DataStorage resultMod0, final DataStorage resultMod1, final DataStorage resultMod2, final DataStorage dataStorage, final long size, final long resultSize, final Map<Long, T> carries)
     {
-        ApfloatContext ctx = ApfloatContext.getContext();
-        BuilderFactory builderFactory = ctx.getBuilderFactory();
-
-        final MessagePasser<Long, T> messagePasser = new MessagePasser<Long, T>();
-        final CarryCRTStepStrategy<T> stepStrategy = builderFactory.getCarryCRTBuilder(elementArrayType).createCarryCRTSteps(this.radix);
-
         ParallelRunnable parallelRunnable = new ParallelRunnable(size)
         {
             public Runnable getRunnable(long offset, long length)
             {
-                return new CarryCRTRunnable<T>(resultMod0, resultMod1, resultMod2, dataStorage, size, resultSize, offset, length, messagePasser, stepStrategy);
+                return new CarryCRTRunnable<T>(resultMod0, resultMod1, resultMod2, dataStorage, size, resultSize, offset, length, carries, stepStrategy);
             }
         };
         return parallelRunnable;
@@ -0,0 +1,298 @@
+package org.apfloat.internal;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apfloat.ApfloatContext;
+
+/**
+ * Shared cache for the tables used in the transforms, for example
+ * the tables of powers of the n:th root of unity and the scrambling tables.<p>
+ *
+ * The total size of the cached tables is limited to a maximum number of bytes,
+ * specified with {@link ApfloatContext#setCacheTableSize(long)} in the global
+ * context. When the limit would be exceeded, the least recently used tables are
+ * removed from the cache. Tables that are larger than the limit are not cached
+ * at all. The tables are held with soft references, so the garbage collector
+ * can also remove them from the cache when memory is running low.
+ * The number of cache hits and misses is counted, so it can be checked if the
+ * tables are being calculated again in the steady state, which would indicate
+ * that the cache is too small.<p>
+ *
+ * Getting a table from the cache does not lock the cache, only adding tables
+ * does. The use of the tables is therefore tracked only approximately: a table
+ * is considered used at the time when the latest table was added to the cache.<p>
+ *
+ * The cached tables are shared by all threads so they must not be modified.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class TableCache
+{
+    private TableCache()
+    {
+    }
+
+    /**
+     * Get a table from the cache.
+     *
+     * @param name The name of the type of the table, for example <code>"IntWTable"</code>.
+     * @param parameter Parameter of the table in addition to the length, for example the modulus, or zero if not needed.
+     * @param length The length of the table.
+     *
+     * @return The table, or <code>null</code> if the table is not in the cache.
+     */
+
+    public static Object get(String name, int parameter, long length)
+    {
+        Entry entry = TableCache.cache.get(new Key(name, parameter, length));
+        Object table = (entry == null ? null : entry.get());
+        if (table == null)
+        {
+            TableCache.misses.incrementAndGet();
+        }
+        else
+        {
+            // Only write to the entry if a table was added after it was last used, to keep concurrent lookups cheap
+            long generation = TableCache.generation;
+            if (entry.generation != generation)
+            {
+                entry.generation = generation;
+            }
+            TableCache.hits.incrementAndGet();
+        }
+        return table;
+    }
+
+    /**
+     * Put a table in the cache, unless there is already a table with the same key.
+     * The table is not put in the cache if it is larger than the maximum size of the cache,
+     * as set in the global {@link ApfloatContext}.
+     *
+     * @param name The name of the type of the table, for example <code>"IntWTable"</code>.
+     * @param parameter Parameter of the table in addition to the length, for example the modulus, or zero if not needed.
+     * @param length The length of the table.
+     * @param table The table. Must be an array of a primitive type.
+     *
+     * @return The table that already was in the cache, or <code>null</code> if there was none.
+     */
+
+    public static Object putIfAbsent(String name, int parameter, long length, Object table)
+    {
+        Key key = new Key(name, parameter, length);
+        long size = sizeOf(table),
+             maxSize = ApfloatContext.getGlobalContext().getCacheTableSize();     // The cache is shared by all threads so the limit can't depend on the thread
+
+        synchronized (TableCache.lock)
+        {
+            expunge();
+            Object value = lookup(key);
+            if (value != null)
+            {
+                return value;
+            }
+            if (size <= maxSize)
+            {
+                long generation = TableCache.generation + 1;
+                TableCache.cache.put(key, new Entry(key, table, size, generation, TableCache.queue));
+                TableCache.size += size;
+                TableCache.generation = generation;
+                evict(maxSize);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Get the total size of the currently cached tables.
+     *
+     * @return The total size of the cached tables, in bytes.
+     */
+
+    public static long getSize()
+    {
+        synchronized (TableCache.lock)
+        {
+            expunge();
+            return TableCache.size;
+        }
+    }
+
+    /**
+     * Get the number of times that a table was found in the cache.
+     *
+     * @return The number of cache hits.
+     */
+
+    public static long getHits()
+    {
+        return TableCache.hits.get();
+    }
+
+    /**
+     * Get the number of times that a table was not found in the cache.
+     * In the steady state, when the same transform lengths are used
+     * repeatedly, this should not increase.
+     *
+     * @return The number of cache misses.
+     */
+
+    public static long getMisses()
+    {
+        return TableCache.misses.get();
+    }
+
+    /**
+     * Remove all tables from the cache and reset the hit and miss statistics.
+     */
+
+    public static void clear()
+    {
+        synchronized (TableCache.lock)
+        {
+            TableCache.cache.clear();
+            TableCache.size = 0;
+            TableCache.hits.set(0);
+            TableCache.misses.set(0);
+        }
+    }
+
+    // Get a table without counting the access, must be called while synchronized
+    private static Object lookup(Key key)
+    {
+        Entry entry = TableCache.cache.get(key);
+        Object table = (entry == null ? null : entry.get());
+        if (entry != null && table == null)
+        {
+            // The table was garbage collected but the entry is not yet in the reference queue
+            TableCache.cache.remove(key);
+            TableCache.size -= entry.size;
+        }
+        return table;
+    }
+
+    // Remove the least recently used tables until the cache fits in the maximum size, must be called while synchronized
+    private static void evict(long maxSize)
+    {
+        if (TableCache.size > maxSize)
+        {
+            List<Entry> entries = new ArrayList<Entry>(TableCache.cache.values());
+            Collections.sort(entries, LEAST_RECENTLY_USED_FIRST);
+            for (int i = 0; TableCache.size > maxSize && i < entries.size(); i++)
+            {
+                Entry entry = entries.get(i);
+                TableCache.cache.remove(entry.key);
+                TableCache.size -= entry.size;
+            }
+        }
+    }
+
+    // Remove the entries whose tables have been garbage collected, must be called while synchronized
+    private static void expunge()
+    {
+        Entry entry;
+        while ((entry = (Entry) TableCache.queue.poll()) != null)
+        {
+            // The entry may already have been removed or replaced
+            if (TableCache.cache.get(entry.key) == entry)
+            {
+                TableCache.cache.remove(entry.key);
+                TableCache.size -= entry.size;
+            }
+        }
+    }
+
+    private static long sizeOf(Object table)
+    {
+        if (table instanceof int[])
+        {
+            return 4L * ((int[]) table).length;
+        }
+        else if (table instanceof long[])
+        {
+            return 8L * ((long[]) table).length;
+        }
+        else if (table instanceof float[])
+        {
+            return 4L * ((float[]) table).length;
+        }
+        else if (table instanceof double[])
+        {
+            return 8L * ((double[]) table).length;
+        }
+        throw new IllegalArgumentException("Unsupported table type: " + table.getClass().getName());
+    }
+
+    // Key of a table, allocating this is cheaper than a list of boxed values
+    private static class Key
+    {
+        public Key(String name, int parameter, long length)
+        {
+            this.name = name;
+            this.parameter = parameter;
+            this.length = length;
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.name.equals(that.name) && this.parameter == that.parameter && this.length == that.length;
+        }
+
+        public int hashCode()
+        {
+            return 31 * (31 * this.name.hashCode() + this.parameter) + (int) (this.length ^ (this.length >>> 32));
+        }
+
+        private String name;
+        private int parameter;
+        private long length;
+    }
+
+    // Soft reference to a table, with the key and size needed when the table is garbage collected
+    private static class Entry
+        extends SoftReference<Object>
+    {
+        public Entry(Key key, Object table, long size, long generation, ReferenceQueue<Object> queue)
+        {
+            super(table, queue);
+            this.key = key;
+            this.size = size;
+            this.generation = generation;
+        }
+
+        public Key key;
+        public long size;
+        public volatile long generation;    // Value of the table counter when the table was last used
+    }
+
+    private static final Comparator<Entry> LEAST_RECENTLY_USED_FIRST = new Comparator<Entry>()
+    {
+        public int compare(Entry entry1, Entry entry2)
+        {
+            return (entry1.generation < entry2.generation ? -1 : (entry1.generation > entry2.generation ? 1 : 0));
+        }
+    };
+
+    // Concurrent so that tables can be got without locking, the lock is only needed when the cache is modified
+    private static ConcurrentHashMap<Key, Entry> cache = new ConcurrentHashMap<Key, Entry>();
+    private static Object lock = new Object();
+    private static ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+    private static long size;
+    private static volatile long generation;     // Number of tables added to the cache
+    private static AtomicLong hits = new AtomicLong();
+    private static AtomicLong misses = new AtomicLong();
+}
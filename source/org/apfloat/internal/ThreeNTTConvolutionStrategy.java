@@ -2,13 +2,17 @@ package org.apfloat.internal;
 
 import org.apfloat.ApfloatContext;
 import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.AdditionStrategy;
 import org.apfloat.spi.BuilderFactory;
 import org.apfloat.spi.CarryCRTStrategy;
-import org.apfloat.spi.ConvolutionStrategy;
+import org.apfloat.spi.MiddleProductConvolutionStrategy;
+import org.apfloat.spi.NTTBuilder;
 import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.FusedNTTStrategy;
 import org.apfloat.spi.NTTConvolutionStepStrategy;
 import org.apfloat.spi.DataStorageBuilder;
 import org.apfloat.spi.DataStorage;
+import org.apfloat.spi.Util;
 
 /**
  * Convolution using three Number Theoretic Transforms
@@ -17,16 +21,55 @@ import org.apfloat.spi.DataStorage;
  * Multiplication can be done in linear time in the transform domain, where
  * the multiplication is simply an element-by-element multiplication.<p>
  *
+ * A transform length that is shorter than the full result can be used. The
+ * least significant elements of the result then wrap around to the beginning
+ * of the cyclic convolution, and they are subtracted from the result using a
+ * much shorter convolution of the least significant parts of the data. The same
+ * shorter convolution also gives the least significant elements of the result,
+ * if they are needed. This way the work does not jump when the result size is
+ * slightly larger than a power of two or three times a power of two, as it would
+ * if the transform length was just rounded up.<p>
+ *
+ * If the most significant part of the result is not needed either, a middle
+ * product can be calculated with an even shorter transform. The elements
+ * that wrap around then only overlap with the unneeded most significant
+ * elements, so no correction is needed. This is the transposed form of a
+ * convolution where one data set is twice as long as the other.<p>
+ *
  * All access to this class must be externally synchronized.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
 public class ThreeNTTConvolutionStrategy
-    implements ConvolutionStrategy
+    implements MiddleProductConvolutionStrategy
 {
+    /**
+     * Calculates the result of a convolution modulo one modulus.
+     *
+     * @see ThreeNTTConvolutionStrategy#convoluteModuli(ModulusConvolution,int,long)
+     *
+     * @since 1.9.0
+     */
+
+    protected static interface ModulusConvolution
+    {
+        /**
+         * Calculate the result of the convolution modulo one modulus.
+         *
+         * @param convolutionStrategy The convolution strategy whose transforms are used.
+         * @param modulus Which modulus to use.
+         * @param cached If the result data should be kept cached in memory when possible.
+         *
+         * @return The result of the convolution for one modulus.
+         */
+
+        public DataStorage convolute(ThreeNTTConvolutionStrategy convolutionStrategy, int modulus, boolean cached)
+            throws ApfloatRuntimeException;
+    }
+
     /**
      * Creates a new convoluter that uses the specified
      * transform for transforming the data.
@@ -39,6 +82,7 @@ public class ThreeNTTConvolutionStrategy
     {
         ApfloatContext ctx = ApfloatContext.getContext();
         BuilderFactory builderFactory = ctx.getBuilderFactory();
+        this.radix = radix;
         this.nttStrategy = nttStrategy;
         this.carryCRTStrategy = builderFactory.getCarryCRTBuilder(builderFactory.getElementArrayType()).createCarryCRT(radix);
         this.stepStrategy = builderFactory.getNTTBuilder().createNTTConvolutionSteps();
@@ -52,17 +96,15 @@ public class ThreeNTTConvolutionStrategy
             return autoConvolute(x, resultSize);
         }
 
-        long length = this.nttStrategy.getTransformLength(x.getSize() + y.getSize());
+        long length = getTransformLength(x.getSize(), y.getSize(), resultSize);
 
         DataStorage result;
         lock(length);
         try
         {
-            DataStorage resultMod0 = convoluteOne(x, y, length, 0, false),
-                        resultMod1 = convoluteOne(x, y, length, 1, false),
-                        resultMod2 = convoluteOne(x, y, length, 2, true);
+            DataStorage[] resultMod = convoluteModuli(createModulusConvolution(x, y, length, resultSize), 3, length);
 
-            result = this.carryCRTStrategy.carryCRT(resultMod0, resultMod1, resultMod2, resultSize);
+            result = this.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultMod[2], resultSize);
         }
         finally
         {
@@ -71,6 +113,59 @@ public class ThreeNTTConvolutionStrategy
         return result;
     }
 
+    /**
+     * Calculates the results of a convolution modulo each modulus.
+     * By default the moduli are done one after another, and only
+     * the result of the last modulus is kept cached.
+     *
+     * @param modulusConvolution The convolution modulo one modulus.
+     * @param moduli The number of moduli.
+     * @param length Length of the transformation.
+     *
+     * @return The results of the convolution, for each modulus.
+     *
+     * @since 1.9.0
+     */
+
+    protected DataStorage[] convoluteModuli(ModulusConvolution modulusConvolution, int moduli, long length)
+        throws ApfloatRuntimeException
+    {
+        DataStorage[] resultMod = new DataStorage[moduli];
+        for (int modulus = 0; modulus < moduli; modulus++)
+        {
+            resultMod[modulus] = modulusConvolution.convolute(this, modulus, modulus == moduli - 1);
+        }
+        return resultMod;
+    }
+
+    // Convolution or autoconvolution modulo one modulus, where the elements that wrapped around are unwrapped
+    ModulusConvolution createModulusConvolution(final DataStorage x, final DataStorage y, final long length, final long resultSize)
+    {
+        return new ModulusConvolution()
+        {
+            public DataStorage convolute(ThreeNTTConvolutionStrategy convolutionStrategy, int modulus, boolean cached)
+                throws ApfloatRuntimeException
+            {
+                DataStorage resultMod = (x == y ? convolutionStrategy.autoConvoluteOne(x, length, modulus, cached) : convolutionStrategy.convoluteOne(x, y, length, modulus, cached));
+
+                return convolutionStrategy.unwrapOne(resultMod, x, y, length, resultSize, modulus);
+            }
+        };
+    }
+
+    // Middle product convolution modulo one modulus
+    ModulusConvolution createMiddleModulusConvolution(final DataStorage x, final DataStorage y, final long length)
+    {
+        return new ModulusConvolution()
+        {
+            public DataStorage convolute(ThreeNTTConvolutionStrategy convolutionStrategy, int modulus, boolean cached)
+                throws ApfloatRuntimeException
+            {
+                return convolutionStrategy.convoluteMiddleOne(x, y, length, modulus, cached);
+            }
+        };
+    }
+
     /**
      * Performs a convolution modulo one modulus, of the specified transform length.
      *
@@ -85,24 +180,154 @@ public class ThreeNTTConvolutionStrategy
 
     protected DataStorage convoluteOne(DataStorage x, DataStorage y, long length, int modulus, boolean cached)
         throws ApfloatRuntimeException
+    {
+        DataStorage tmpY = transformOne(y, length, modulus);
+
+        return multiplyTransformedOne(x, tmpY, length, modulus, cached);
+    }
+
+    /**
+     * Transforms one data set modulo one modulus, of the specified transform length.
+     *
+     * @param y The data set.
+     * @param length Length of the transformation.
+     * @param modulus Which modulus to use.
+     *
+     * @return The transformed data, not cached.
+     *
+     * @since 1.9.0
+     */
+
+    protected DataStorage transformOne(DataStorage y, long length, int modulus)
+        throws ApfloatRuntimeException
     {
         DataStorage tmpY = createCachedDataStorage(length);
         tmpY.copyFrom(y, length);                               // Using a cached data storage here can avoid an extra write
         this.nttStrategy.transform(tmpY, modulus);
         tmpY = createDataStorage(tmpY);
 
+        return tmpY;
+    }
+
+    /**
+     * Performs a convolution modulo one modulus, of the specified transform length,
+     * where the second data set has already been transformed.
+     *
+     * @param x First data set.
+     * @param transformedY Second data set, in transformed form. This data is not modified.
+     * @param length Length of the transformation.
+     * @param modulus Which modulus to use.
+     * @param cached If the result data should be kept cached in memory when possible.
+     *
+     * @return The result of the convolution for one modulus.
+     *
+     * @since 1.9.0
+     */
+
+    protected DataStorage multiplyTransformedOne(DataStorage x, DataStorage transformedY, long length, int modulus, boolean cached)
+        throws ApfloatRuntimeException
+    {
         DataStorage tmpX = createCachedDataStorage(length);
         tmpX.copyFrom(x, length);
-        this.nttStrategy.transform(tmpX, modulus);
+        if (this.nttStrategy instanceof FusedNTTStrategy)
+        {
+            ((FusedNTTStrategy) this.nttStrategy).convoluteInPlace(tmpX, transformedY, modulus, length);
+        }
+        else
+        {
+            this.nttStrategy.transform(tmpX, modulus);
 
-        this.stepStrategy.multiplyInPlace(tmpX, tmpY, modulus);
+            this.stepStrategy.multiplyInPlace(tmpX, transformedY, modulus);
 
-        this.nttStrategy.inverseTransform(tmpX, modulus, length);
+            this.nttStrategy.inverseTransform(tmpX, modulus, length);
+        }
         tmpX = (cached ? tmpX : createDataStorage(tmpX));
 
         return tmpX;
     }
 
+    /**
+     * Transforms a data set so that it can be used repeatedly in
+     * {@link #convolute(DataStorage,DataStorage[],long,long)}.
+     * The data is transformed modulo each of the moduli.
+     *
+     * @param y The data set.
+     * @param length Length of the transformation. This must be at least the sum of the sizes of the data sets that will be convolved.
+     *
+     * @return The transformed data, one data storage for each modulus.
+     *
+     * @since 1.9.0
+     */
+
+    public DataStorage[] transform(DataStorage y, long length)
+        throws ApfloatRuntimeException
+    {
+        DataStorage[] transformed = new DataStorage[3];
+
+        lock(length);
+        try
+        {
+            for (int modulus = 0; modulus < transformed.length; modulus++)
+            {
+                transformed[modulus] = transformOne(y, length, modulus);
+                transformed[modulus].setReadOnly();
+            }
+        }
+        finally
+        {
+            unlock();
+        }
+        return transformed;
+    }
+
+    /**
+     * Convolutes a data set with a data set that has been
+     * transformed in advance with {@link #transform(DataStorage,long)}.
+     * The transformed data is not modified, so it can be used again.
+     *
+     * @param x First data set.
+     * @param transformedY Second data set, in transformed form.
+     * @param length Length of the transformation, as used when transforming the second data set.
+     * @param resultSize Number of elements needed in the result data.
+     *
+     * @return The convolved data.
+     *
+     * @since 1.9.0
+     */
+
+    public DataStorage convolute(DataStorage x, DataStorage[] transformedY, long length, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        DataStorage result;
+        lock(length);
+        try
+        {
+            DataStorage resultMod0 = multiplyTransformedOne(x, transformedY[0], length, 0, false),
+                        resultMod1 = multiplyTransformedOne(x, transformedY[1], length, 1, false),
+                        resultMod2 = multiplyTransformedOne(x, transformedY[2], length, 2, true);
+
+            result = this.carryCRTStrategy.carryCRT(resultMod0, resultMod1, resultMod2, resultSize);
+        }
+        finally
+        {
+            unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the transform used by this convolution.
+     *
+     * @return The transform.
+     *
+     * @since 1.9.0
+     */
+
+    public NTTStrategy getNTTStrategy()
+    {
+        return this.nttStrategy;
+    }
+
     /**
      * Convolutes a data set with itself.
      *
@@ -115,17 +340,15 @@ public class ThreeNTTConvolutionStrategy
     protected DataStorage autoConvolute(DataStorage x, long resultSize)
         throws ApfloatRuntimeException
     {
-        long length = this.nttStrategy.getTransformLength(x.getSize() * 2);
+        long length = getTransformLength(x.getSize(), x.getSize(), resultSize);
 
         DataStorage result;
         lock(length);
         try
         {
-            DataStorage resultMod0 = autoConvoluteOne(x, length, 0, false),
-                        resultMod1 = autoConvoluteOne(x, length, 1, false),
-                        resultMod2 = autoConvoluteOne(x, length, 2, true);
+            DataStorage[] resultMod = convoluteModuli(createModulusConvolution(x, x, length, resultSize), 3, length);
 
-            result = this.carryCRTStrategy.carryCRT(resultMod0, resultMod1, resultMod2, resultSize);
+            result = this.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultMod[2], resultSize);
         }
         finally
         {
@@ -150,16 +373,219 @@ public class ThreeNTTConvolutionStrategy
     {
         DataStorage tmp = createCachedDataStorage(length);
         tmp.copyFrom(x, length);
-        this.nttStrategy.transform(tmp, modulus);
+        if (this.nttStrategy instanceof FusedNTTStrategy)
+        {
+            ((FusedNTTStrategy) this.nttStrategy).convoluteInPlace(tmp, null, modulus, length);
+        }
+        else
+        {
+            this.nttStrategy.transform(tmp, modulus);
 
-        this.stepStrategy.squareInPlace(tmp, modulus);
+            this.stepStrategy.squareInPlace(tmp, modulus);
 
-        this.nttStrategy.inverseTransform(tmp, modulus, length);
+            this.nttStrategy.inverseTransform(tmp, modulus, length);
+        }
         tmp = (cached ? tmp : createDataStorage(tmp));
 
         return tmp;
     }
 
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        long length = getMiddleTransformLength(x.getSize(), y.getSize(), skipSize, resultSize);
+
+        if (length >= getTransformLength(x.getSize(), y.getSize(), resultSize))
+        {
+            // No benefit from skipping the most significant part
+            return convolute(x, y, resultSize);
+        }
+
+        DataStorage result;
+        lock(length);
+        try
+        {
+            DataStorage[] resultMod = convoluteModuli(createMiddleModulusConvolution(x, y, length), 3, length);
+
+            result = this.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultMod[2], resultSize);
+        }
+        finally
+        {
+            unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Performs a middle product convolution modulo one modulus, of the specified transform length.
+     * The most significant elements of the result that overlap with the elements that wrapped
+     * around are set to zero.
+     *
+     * @param x First data set.
+     * @param y Second data set.
+     * @param length Length of the transformation.
+     * @param modulus Which modulus to use.
+     * @param cached If the result data should be kept cached in memory when possible.
+     *
+     * @return The result of the convolution for one modulus.
+     *
+     * @since 1.9.0
+     */
+
+    protected DataStorage convoluteMiddleOne(DataStorage x, DataStorage y, long length, int modulus, boolean cached)
+        throws ApfloatRuntimeException
+    {
+        DataStorage resultMod = (x == y ? autoConvoluteOne(x, length, modulus, cached) : convoluteOne(x, y, length, modulus, cached));
+
+        long wrapSize = x.getSize() + y.getSize() - 1 - length;                // Number of elements that wrapped around
+
+        if (wrapSize > 0)
+        {
+            ApfloatContext ctx = ApfloatContext.getContext();
+            BuilderFactory builderFactory = ctx.getBuilderFactory();
+            clear(builderFactory.getElementType(), resultMod.subsequence(0, wrapSize));
+        }
+
+        return resultMod;
+    }
+
+    /**
+     * Returns the transform length to use for a middle product.
+     *
+     * @param size1 Size of the first data set.
+     * @param size2 Size of the second data set.
+     * @param skipSize Number of most significant elements of the result that are not needed.
+     * @param resultSize Number of elements needed in the result data, including the skipped elements.
+     *
+     * @return The transform length.
+     *
+     * @since 1.9.0
+     */
+
+    protected long getMiddleTransformLength(long size1, long size2, long skipSize, long resultSize)
+    {
+        // The carry-CRT uses two extra elements, each data set must fit in the transform, and the elements
+        // that wrap around must not overlap with the elements of the result that are needed
+        long minLength = Math.max(Math.max(resultSize + 2, size1 + size2 - skipSize), Math.max(size1, size2));
+
+        return this.nttStrategy.getTransformLength(minLength);
+    }
+
+    /**
+     * Returns the transform length to use for a convolution.<p>
+     *
+     * This is normally the transform length for the whole result. A shorter
+     * transform length can be returned, if the work for the shorter transform
+     * plus the work of correcting the elements that wrap around is estimated
+     * to be smaller. This is typically the case if only the most significant
+     * part of the result is needed, or if the result size is only slightly
+     * larger than some supported transform length.
+     *
+     * @param size1 Size of the first data set.
+     * @param size2 Size of the second data set.
+     * @param resultSize Number of elements needed in the result data.
+     *
+     * @return The transform length.
+     *
+     * @since 1.9.0
+     */
+
+    protected long getTransformLength(long size1, long size2, long resultSize)
+    {
+        long size = size1 + size2,
+             length = this.nttStrategy.getTransformLength(size),
+             minLength = Math.max(size1, size2),                                // Each data set must fit in the transform
+             bestLength = length;
+        double bestCost = getCost(length);
+
+        for (long shortLength = this.nttStrategy.getTransformLength(minLength); shortLength < length; shortLength = this.nttStrategy.getTransformLength(shortLength + 1))
+        {
+            long wrapSize = size - 1 - shortLength,                             // Number of elements that wrap around
+                 extendSize = Math.min(resultSize + 2, size) - shortLength;     // Number of elements needed after the transform length, the carry-CRT uses two extra elements
+            double cost = getCost(shortLength) + (wrapSize > 0 ? getCost(this.nttStrategy.getTransformLength(2 * wrapSize)) : 0.0) + (extendSize > 0 ? shortLength + extendSize : 0.0);
+            if (cost < bestCost)
+            {
+                bestCost = cost;
+                bestLength = shortLength;
+            }
+        }
+
+        return bestLength;
+    }
+
+    /**
+     * Corrects the result of a convolution modulo one modulus, if the transform
+     * was shorter than the full result. The result elements that didn't fit in the
+     * transform wrapped around to the beginning of the result, so they are subtracted
+     * from it. These elements only depend on the least significant parts of the data,
+     * so they are calculated with a separate, shorter convolution. If the result
+     * elements that didn't fit in the transform are needed, they are appended
+     * to the result.
+     *
+     * @param resultMod The result of the convolution for one modulus. This data is modified.
+     * @param x First data set.
+     * @param y Second data set.
+     * @param length Length of the transformation used for calculating the result.
+     * @param resultSize Number of elements needed in the final result data.
+     * @param modulus Which modulus to use.
+     *
+     * @return The corrected result of the convolution for one modulus. This can be the same data storage as <code>resultMod</code>, or a longer one.
+     *
+     * @since 1.9.0
+     */
+
+    protected DataStorage unwrapOne(DataStorage resultMod, DataStorage x, DataStorage y, long length, long resultSize, int modulus)
+        throws ApfloatRuntimeException
+    {
+        long size = x.getSize() + y.getSize(),
+             wrapSize = size - 1 - length,                                      // Number of elements that wrapped around
+             extendSize = Math.min(resultSize + 2, size) - length;             // Number of elements needed after the transform length, the carry-CRT uses two extra elements
+
+        if (wrapSize <= 0)
+        {
+            return resultMod;
+        }
+
+        ApfloatContext ctx = ApfloatContext.getContext();
+        NTTBuilder nttBuilder = ctx.getBuilderFactory().getNTTBuilder();
+        NTTStrategy nttStrategy = nttBuilder.createNTT(2 * wrapSize);
+        long wrapLength = nttStrategy.getTransformLength(2 * wrapSize);
+
+        // The least significant parts of the data are at most wrapSize elements long
+        DataStorage tmpX = createCachedDataStorage(wrapLength);
+        tmpX.copyFrom(x.subsequence(x.getSize() - wrapSize, wrapSize), wrapLength);
+        nttStrategy.transform(tmpX, modulus);
+
+        if (x == y)
+        {
+            this.stepStrategy.squareInPlace(tmpX, modulus);
+        }
+        else
+        {
+            DataStorage tmpY = createCachedDataStorage(wrapLength);
+            tmpY.copyFrom(y.subsequence(y.getSize() - wrapSize, wrapSize), wrapLength);
+            nttStrategy.transform(tmpY, modulus);
+
+            this.stepStrategy.multiplyInPlace(tmpX, tmpY, modulus);
+        }
+
+        nttStrategy.inverseTransform(tmpX, modulus, wrapLength);
+
+        // The elements that wrapped around are the most significant part of the shorter convolution
+        this.stepStrategy.subtractInPlace(resultMod.subsequence(0, wrapSize), tmpX.subsequence(wrapSize - 1, wrapSize), modulus);
+
+        if (extendSize > 0)
+        {
+            // Append the elements that wrapped around, the last element of the full result is zero
+            DataStorage extendedMod = createCachedDataStorage(length + extendSize);
+            extendedMod.copyFrom(resultMod, length + extendSize);
+            copy(ctx.getBuilderFactory().getElementType(), tmpX.subsequence(wrapSize - 1, Math.min(wrapSize, extendSize)), extendedMod.subsequence(length, Math.min(wrapSize, extendSize)));
+            resultMod = (resultMod.isCached() ? extendedMod : createDataStorage(extendedMod));
+        }
+
+        return resultMod;
+    }
+
     /**
      * Lock the execution against a synchronization lock.
      *
@@ -210,6 +636,40 @@ public class ThreeNTTConvolutionStrategy
         return dataStorageBuilder.createDataStorage(dataStorage);
     }
 
+    // Set the data to zero
+    private <T> void clear(Class<T> elementType, DataStorage dataStorage)
+        throws ApfloatRuntimeException
+    {
+        ApfloatContext ctx = ApfloatContext.getContext();
+        AdditionStrategy<T> additionStrategy = ctx.getBuilderFactory().getAdditionBuilder(elementType).createAddition(this.radix);
+
+        long size = dataStorage.getSize();
+        DataStorage.Iterator dst = dataStorage.iterator(DataStorage.WRITE, 0, size);
+        additionStrategy.add(null, null, additionStrategy.zero(), dst, size);
+    }
+
+    // Copy the data
+    private static <T> void copy(Class<T> elementType, DataStorage src, DataStorage dst)
+        throws ApfloatRuntimeException
+    {
+        long size = src.getSize();
+        DataStorage.Iterator srcIterator = src.iterator(DataStorage.READ, 0, size),
+                             dstIterator = dst.iterator(DataStorage.WRITE, 0, size);
+
+        for (long i = 0; i < size; i++)
+        {
+            dstIterator.set(elementType, srcIterator.get(elementType));
+            srcIterator.next();
+            dstIterator.next();
+        }
+    }
+
+    // Estimated work of a transform of the specified length
+    private static double getCost(long length)
+    {
+        return length * Math.log((double) length);
+    }
+
     /**
      * The transform to use.
      */
@@ -227,4 +687,6 @@ public class ThreeNTTConvolutionStrategy
      */
 
     protected NTTConvolutionStepStrategy stepStrategy;
+
+    private int radix;
 }
@@ -0,0 +1,162 @@
+package org.apfloat.internal;
+
+import org.apfloat.ApfloatRuntimeException;
+import org.apfloat.spi.NTTStrategy;
+import org.apfloat.spi.DataStorage;
+
+/**
+ * Convolution using two Number Theoretic Transforms
+ * and the Chinese Remainder Theorem to get the final result.<p>
+ *
+ * The convolution can be calculated modulo only the two first moduli,
+ * if it's known that all elements of the result are less than the product
+ * of the two moduli. This depends on the size of the shorter data set and
+ * the base used. With only two moduli, one third of the transforms are avoided.
+ * The convolution builder is responsible for choosing this strategy only
+ * when the size of the data allows it.<p>
+ *
+ * This algorithm is parallelized in the same way as the
+ * {@link ParallelThreeNTTConvolutionStrategy}.<p>
+ *
+ * All access to this class must be externally synchronized.
+ *
+ * @see AbstractConvolutionBuilder
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public class TwoNTTConvolutionStrategy
+    extends ParallelThreeNTTConvolutionStrategy
+{
+    /**
+     * Creates a new convoluter that uses the specified
+     * transform for transforming the data.
+     *
+     * @param radix The radix to be used.
+     * @param nttStrategy The transform to be used.
+     */
+
+    public TwoNTTConvolutionStrategy(int radix, NTTStrategy nttStrategy)
+    {
+        super(radix, nttStrategy);
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        if (x == y)
+        {
+            return autoConvolute(x, resultSize);
+        }
+
+        long length = getTransformLength(x.getSize(), y.getSize(), resultSize);
+
+        DataStorage result;
+        lock(length);
+        try
+        {
+            DataStorage[] resultMod = convoluteModuli(createModulusConvolution(x, y, length, resultSize), 2, length);
+
+            result = super.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultSize);
+        }
+        finally
+        {
+            unlock();
+        }
+        return result;
+    }
+
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        long length = getMiddleTransformLength(x.getSize(), y.getSize(), skipSize, resultSize);
+
+        if (length >= getTransformLength(x.getSize(), y.getSize(), resultSize))
+        {
+            // No benefit from skipping the most significant part
+            return convolute(x, y, resultSize);
+        }
+
+        DataStorage result;
+        lock(length);
+        try
+        {
+            DataStorage[] resultMod = convoluteModuli(createMiddleModulusConvolution(x, y, length), 2, length);
+
+            result = super.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultSize);
+        }
+        finally
+        {
+            unlock();
+        }
+        return result;
+    }
+
+    public DataStorage[] transform(DataStorage y, long length)
+        throws ApfloatRuntimeException
+    {
+        DataStorage[] transformed = new DataStorage[2];
+
+        lock(length);
+        try
+        {
+            for (int modulus = 0; modulus < transformed.length; modulus++)
+            {
+                transformed[modulus] = transformOne(y, length, modulus);
+                transformed[modulus].setReadOnly();
+            }
+        }
+        finally
+        {
+            unlock();
+        }
+        return transformed;
+    }
+
+    public DataStorage convolute(DataStorage x, DataStorage[] transformedY, long length, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        if (transformedY.length > 2)
+        {
+            // Transformed with three moduli, e.g. for a longer data set
+            return super.convolute(x, transformedY, length, resultSize);
+        }
+
+        DataStorage result;
+        lock(length);
+        try
+        {
+            DataStorage resultMod0 = multiplyTransformedOne(x, transformedY[0], length, 0, false),
+                        resultMod1 = multiplyTransformedOne(x, transformedY[1], length, 1, true);
+
+            result = super.carryCRTStrategy.carryCRT(resultMod0, resultMod1, resultSize);
+        }
+        finally
+        {
+            unlock();
+        }
+        return result;
+    }
+
+    protected DataStorage autoConvolute(DataStorage x, long resultSize)
+        throws ApfloatRuntimeException
+    {
+        long length = getTransformLength(x.getSize(), x.getSize(), resultSize);
+
+        DataStorage result;
+        lock(length);
+        try
+        {
+            DataStorage[] resultMod = convoluteModuli(createModulusConvolution(x, x, length, resultSize), 2, length);
+
+            result = super.carryCRTStrategy.carryCRT(resultMod[0], resultMod[1], resultSize);
+        }
+        finally
+        {
+            unlock();
+        }
+        return result;
+    }
+}
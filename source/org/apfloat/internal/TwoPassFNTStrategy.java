@@ -53,7 +53,7 @@ import org.apfloat.spi.Util;
  * @see DataStorage#getTransposedArray(int,int,int,int)
  *
  * @since 1.7.0
- * @version 1.8.1
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -188,7 +188,9 @@ public class TwoPassFNTStrategy
 
     /**
      * Multiply each matrix element <code>(i, j)</code> by <code>w<sup>i * j</sup> / totalTransformLength</code>.
-     * The matrix size is n<sub>1</sub> x n<sub>2</sub>.
+     * The matrix size is n<sub>1</sub> x n<sub>2</sub>. By default the rows of the
+     * matrix are assumed to be in scrambled order, as left by
+     * {@link #transformColumns(ArrayAccess,int,int,boolean,int)}.
      *
      * @param arrayAccess The memory array to multiply.
      * @param startRow Which row in the whole matrix the starting row in the <code>arrayAccess</code> is.
@@ -203,15 +205,17 @@ public class TwoPassFNTStrategy
 
     protected void multiplyElements(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
     {
-        super.stepStrategy.multiplyElements(arrayAccess, startRow, startColumn, rows, columns, length, totalTransformLength, isInverse, modulus);
+        super.stepStrategy.multiplyElements(arrayAccess, startRow, startColumn, rows, columns, length, totalTransformLength, isInverse, true, modulus);
     }
 
     /**
      * Transform the columns of the data matrix.
      * The data may be in transposed format, depending on the implementation.<p>
      *
-     * By default the column transforms permute the data, leaving it in the correct
-     * order so the element-by-element multiplication is simpler.
+     * By default the column transforms do not permute the data, leaving it in
+     * scrambled order, which {@link #multiplyElements(ArrayAccess,int,int,int,int,long,long,boolean,int)}
+     * takes into account. If this method is overridden to permute the data, then
+     * also <code>multiplyElements</code> should be overridden accordingly.
      *
      * @param arrayAccess The memory array to split to columns and to transform.
      * @param length Length of one transform (one columns).
@@ -222,7 +226,7 @@ public class TwoPassFNTStrategy
 
     protected void transformColumns(ArrayAccess arrayAccess, int length, int count, boolean isInverse, int modulus)
     {
-        super.stepStrategy.transformRows(arrayAccess, length, count, isInverse, true, modulus);
+        super.stepStrategy.transformRows(arrayAccess, length, count, isInverse, false, modulus);
     }
 
     /**
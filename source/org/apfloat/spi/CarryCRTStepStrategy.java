@@ -8,7 +8,7 @@ import org.apfloat.ApfloatRuntimeException;
  * @param <T> The element array type of the carry-CRT steps.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -40,6 +40,32 @@ public interface CarryCRTStepStrategy<T>
     public T crt(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, DataStorage dataStorage, long size, long resultSize, long offset, long length)
         throws ApfloatRuntimeException;
 
+    /**
+     * Perform the Chinese Remainder Theorem (CRT) on each element
+     * of the two result data sets to get the result of each element
+     * modulo the product of the two first moduli. Then it calculates the carries
+     * for the block of data to get the final result.<p>
+     *
+     * This can be used instead of the three-modulus version if it's known
+     * that the result elements of the convolution are all less than
+     * <code>MODULUS[0] * MODULUS[1]</code>.
+     *
+     * @param resultMod0 The result modulo <code>MODULUS[0]</code>.
+     * @param resultMod1 The result modulo <code>MODULUS[1]</code>.
+     * @param dataStorage The destination data storage of the computation.
+     * @param size The number of elements in the whole data set.
+     * @param resultSize The number of elements needed in the final result.
+     * @param offset The offset within the data for the block to be computed.
+     * @param length Length of the block to be computed.
+     *
+     * @return The carries overflowing from this block (two elements).
+     *
+     * @since 1.9.0
+     */
+
+    public T crt(DataStorage resultMod0, DataStorage resultMod1, DataStorage dataStorage, long size, long resultSize, long offset, long length)
+        throws ApfloatRuntimeException;
+
     /**
      * Propagate carries from the previous block computed with the CRT
      * method.
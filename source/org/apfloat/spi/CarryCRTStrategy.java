@@ -7,7 +7,7 @@ import org.apfloat.ApfloatRuntimeException;
  * Number Theoretic Transform based convolution.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -36,4 +36,28 @@ public interface CarryCRTStrategy
 
     public DataStorage carryCRT(DataStorage resultMod0, DataStorage resultMod1, DataStorage resultMod2, long resultSize)
         throws ApfloatRuntimeException;
+
+    /**
+     * Calculate the final result of a two-NTT convolution.<p>
+     *
+     * Performs a Chinese Remainder Theorem (CRT) on each element
+     * of the two result data sets to get the result of each element
+     * modulo the product of the two first moduli. Then it calculates the carries
+     * to get the final result.<p>
+     *
+     * This can be used instead of the three-modulus version if it's known
+     * that the result elements of the convolution are all less than
+     * <code>MODULUS[0] * MODULUS[1]</code>.
+     *
+     * @param resultMod0 The result modulo <code>MODULUS[0]</code>.
+     * @param resultMod1 The result modulo <code>MODULUS[1]</code>.
+     * @param resultSize The number of elements needed in the final result.
+     *
+     * @return The final result with the CRT performed and the carries calculated.
+     *
+     * @since 1.9.0
+     */
+
+    public DataStorage carryCRT(DataStorage resultMod0, DataStorage resultMod1, long resultSize)
+        throws ApfloatRuntimeException;
 }
@@ -13,7 +13,21 @@ import org.apfloat.ApfloatRuntimeException;
  *   <li><a href="http://www.apfloat.org/ntt.html" target="_blank">Number-Theoretic Transform (NTT)</a> based convolution, with the <a href="http://www.apfloat.org/crt.html" target="_blank">Chinese Remainder Theorem</a> used</li>
  * </ul>
  *
- * @version 1.0
+ * If the number of elements needed in the result is less than the full
+ * size of the convolution, the implementation can calculate only a "short
+ * product" i.e. only the most significant part of the result. In this case
+ * the carries from the omitted least significant part of the result may
+ * not be fully propagated to the last elements of the returned data, so the
+ * least significant elements that are needed may be inaccurate by a small
+ * amount, similar to the inaccuracy caused by truncating the operands.<p>
+ *
+ * A "middle product" is a short product where also some of the most
+ * significant elements of the result are not needed. This happens e.g.
+ * in Newton's iteration, where the most significant part of the product
+ * is known in advance. A transform-based implementation can then use a
+ * shorter transform, if it implements {@link MiddleProductConvolutionStrategy}.
+ *
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -26,7 +40,7 @@ public interface ConvolutionStrategy
      * @param y Second data set.
      * @param resultSize Number of elements needed in the result data.
      *
-     * @return The convolved data.
+     * @return The convolved data. This contains at least the <code>resultSize</code> most significant elements of the result.
      */
 
     public DataStorage convolute(DataStorage x, DataStorage y, long resultSize)
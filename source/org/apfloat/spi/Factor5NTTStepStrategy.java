@@ -0,0 +1,41 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * Steps for the factor-5 NTT.
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface Factor5NTTStepStrategy
+{
+    /**
+     * Transform the columns of a matrix using a 5-point transform.
+     *
+     * @param dataStorage0 The data of the first column.
+     * @param dataStorage1 The data of the second column.
+     * @param dataStorage2 The data of the third column.
+     * @param dataStorage3 The data of the fourth column.
+     * @param dataStorage4 The data of the fifth column.
+     * @param startColumn The starting element index in the data storages to transform.
+     * @param columns How many columns to transform.
+     * @param factor3length Length of the column transform, a power of two or three times a power of two.
+     * @param length Length of total transform (five times the length of one column).
+     * @param isInverse <code>true</code> if an inverse transform is performed, <code>false</code> if a forward transform is performed.
+     * @param modulus Index of the modulus.
+     */
+
+    public void transformColumns(DataStorage dataStorage0, DataStorage dataStorage1, DataStorage dataStorage2, DataStorage dataStorage3, DataStorage dataStorage4, long startColumn, long columns, long factor3length, long length, boolean isInverse, int modulus)
+        throws ApfloatRuntimeException;
+
+    /**
+     * Get the maximum transform length.
+     *
+     * @return The maximum transform length.
+     */
+
+    public long getMaxTransformLength();
+}
@@ -0,0 +1,41 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * Number Theoretic Transform strategy that can perform the forward transform,
+ * the element-by-element multiplication and the inverse transform of a convolution
+ * as one operation.<p>
+ *
+ * Done separately, each of the three steps makes at least one full pass over the data.
+ * An implementing class can combine the last pass of the forward transform, the
+ * multiplication and the first pass of the inverse transform, so that that part of
+ * the data is processed while it is in the processor cache.
+ *
+ * @see NTTConvolutionStepStrategy
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface FusedNTTStrategy
+    extends NTTStrategy
+{
+    /**
+     * Convolute the data with data that has been transformed in advance.
+     * The result is the same as with {@link #transform(DataStorage,int)},
+     * {@link NTTConvolutionStepStrategy#multiplyInPlace(DataStorage,DataStorage,int)}
+     * (or {@link NTTConvolutionStepStrategy#squareInPlace(DataStorage,int)} if
+     * <code>transformedSource</code> is <code>null</code>) and
+     * {@link #inverseTransform(DataStorage,int,long)}.
+     *
+     * @param dataStorage The data to be convoluted. The result is stored here.
+     * @param transformedSource The data to multiply with, transformed with {@link #transform(DataStorage,int)}, or <code>null</code> if the data should be squared. This data is not modified.
+     * @param modulus Number of modulus to use (in case the transform supports multiple moduli).
+     * @param totalTransformLength Total transform length; the final result elements are divided by this value.
+     */
+
+    public void convoluteInPlace(DataStorage dataStorage, DataStorage transformedSource, int modulus, long totalTransformLength)
+        throws ApfloatRuntimeException;
+}
@@ -0,0 +1,41 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * An <code>ApfloatImpl</code> that can calculate a product that is known
+ * to be close to one more efficiently, by skipping the most significant
+ * part of the product.<p>
+ *
+ * This is an optional extension of the {@link ApfloatImpl} interface.
+ * If an implementation does not implement this interface, a normal
+ * multiplication and subtraction are used instead.
+ *
+ * @see MiddleProductConvolutionStrategy
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface MiddleProductApfloatImpl
+    extends ApfloatImpl
+{
+    /**
+     * Multiply this object by an <code>ApfloatImpl</code> and subtract one from
+     * the product, when the product is known to be close to one. This is
+     * typically needed in Newton's iteration.<p>
+     *
+     * It must be known in advance that <code>|this * x - 1| &lt; radix<sup>-knownPrecision</sup></code>.
+     * The digits of the product that are known can then be skipped, and the result can be calculated
+     * more efficiently than with a multiplication and a subtraction.
+     *
+     * @param x The number to be multiplied by this <code>ApfloatImpl</code>.
+     * @param knownPrecision The number of digits after the radix point of the product that are known to be all zeros or all <code>radix - 1</code>.
+     *
+     * @return <code>this * x - 1</code>, or <code>null</code> if it can't be calculated more efficiently than with a multiplication and a subtraction.
+     */
+
+    public ApfloatImpl multiplySubtractOne(ApfloatImpl x, long knownPrecision)
+        throws ApfloatRuntimeException;
+}
@@ -0,0 +1,39 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * Convolution strategy that can skip the most significant elements of the result.<p>
+ *
+ * This is an optional extension of the {@link ConvolutionStrategy} interface.
+ * If a convolution strategy does not implement this interface, the full
+ * convolution is calculated instead.
+ *
+ * @see MiddleProductApfloatImpl
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface MiddleProductConvolutionStrategy
+    extends ConvolutionStrategy
+{
+    /**
+     * Convolutes the two sets of data, when the most significant elements of the result are not needed.<p>
+     *
+     * The returned data is the same as the data returned by {@link #convolute(DataStorage,DataStorage,long)},
+     * except that the first <code>skipSize</code> elements can contain any values. The carries from the skipped elements are not propagated.
+     * An implementation can also just calculate the same result as {@link #convolute(DataStorage,DataStorage,long)}.
+     *
+     * @param x First data set.
+     * @param y Second data set.
+     * @param skipSize Number of the most significant elements of the result that are not needed.
+     * @param resultSize Number of elements needed in the result data, including the skipped elements.
+     *
+     * @return The convolved data. This contains at least the <code>resultSize</code> most significant elements of the result.
+     */
+
+    public DataStorage convoluteMiddle(DataStorage x, DataStorage y, long skipSize, long resultSize)
+        throws ApfloatRuntimeException;
+}
@@ -7,7 +7,7 @@ package org.apfloat.spi;
  * @see NTTStrategy
  * @see NTTStepStrategy
  *
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -55,4 +55,14 @@ public interface NTTBuilder
      */
 
     public Factor3NTTStepStrategy createFactor3NTTSteps();
+
+    /**
+     * Creates an object for implementing the steps of factor-5 NTT.
+     *
+     * @return A suitable object for performing the factor-5 NTT steps, or <code>null</code> if the moduli of the transform don't support factor-5 transforms.
+     *
+     * @since 1.9.0
+     */
+
+    public Factor5NTTStepStrategy createFactor5NTTSteps();
 }
@@ -7,7 +7,7 @@ import org.apfloat.ApfloatRuntimeException;
  * multiplication and squaring of the transformed data.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -41,4 +41,21 @@ public interface NTTConvolutionStepStrategy
 
     public void squareInPlace(DataStorage sourceAndDestination, int modulus)
         throws ApfloatRuntimeException;
+
+    /**
+     * Linear subtraction in the number theoretic domain.
+     * The operation is <code>sourceAndDestination[i] -= source[i] (mod m)</code>.<p>
+     *
+     * This can be used for correcting the result of a convolution,
+     * after the inverse transform.
+     *
+     * @param sourceAndDestination The first source data storage, which is also the destination.
+     * @param source The second source data storage.
+     * @param modulus Which modulus to use (0, 1, 2)
+     *
+     * @since 1.9.0
+     */
+
+    public void subtractInPlace(DataStorage sourceAndDestination, DataStorage source, int modulus)
+        throws ApfloatRuntimeException;
 }
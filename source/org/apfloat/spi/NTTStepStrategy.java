@@ -7,7 +7,7 @@ import org.apfloat.ApfloatRuntimeException;
  * Steps for the six-step or two-pass NTT.
  *
  * @since 1.7.0
- * @version 1.7.0
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -31,6 +31,32 @@ public interface NTTStepStrategy
     public void multiplyElements(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, long length, long totalTransformLength, boolean isInverse, int modulus)
         throws ApfloatRuntimeException;
 
+    /**
+     * Multiply each matrix element <code>(i, j)</code> by <code>w<sup>i * j</sup> / totalTransformLength</code>,
+     * where the rows of the matrix can be in scrambled order. The matrix size is n<sub>1</sub> x n<sub>2</sub>.<p>
+     *
+     * If the rows are scrambled, the row at position <code>i</code> is row <code>i'</code> of the
+     * matrix, where <code>i'</code> is <code>i</code> with the bits reversed. This is the order
+     * that the columns are left in when they are transformed without permuting the data,
+     * so the permutation steps can be omitted from the transforms.
+     *
+     * @param arrayAccess The memory array to multiply.
+     * @param startRow Which row position in the whole matrix the starting row in the <code>arrayAccess</code> is.
+     * @param startColumn Which column in the whole matrix the starting column in the <code>arrayAccess</code> is.
+     * @param rows The number of rows in the <code>arrayAccess</code> to multiply.
+     * @param columns The number of columns in the matrix (= n<sub>2</sub>).
+     * @param length The length of data in the matrix being transformed.
+     * @param totalTransformLength The total transform length, for the scaling factor. Used only for the inverse case.
+     * @param isInverse If the multiplication is done for the inverse transform or not.
+     * @param scrambled If the rows of the whole matrix are in bit-reversed order.
+     * @param modulus Index of the modulus.
+     *
+     * @since 1.9.0
+     */
+
+    public void multiplyElements(ArrayAccess arrayAccess, int startRow, int startColumn, int rows, int columns, long length, long totalTransformLength, boolean isInverse, boolean scrambled, int modulus)
+        throws ApfloatRuntimeException;
+
     /**
      * Transform the rows of the data matrix.
      * If only one processor is available, it runs all transforms in the current
@@ -49,6 +75,28 @@ public interface NTTStepStrategy
     public void transformRows(ArrayAccess arrayAccess, int length, int count, boolean isInverse, boolean permute, int modulus)
         throws ApfloatRuntimeException;
 
+    /**
+     * Convolute the rows of the data matrix. Each row is transformed, multiplied
+     * element-by-element with the corresponding row of the source data, that has
+     * already been transformed, and then inverse transformed. The rows are not
+     * permuted and the inverse transform does not divide by the transform length.<p>
+     *
+     * Each row is processed completely before the next one, so the row stays in the
+     * processor cache for all three steps. If more than one processor is available,
+     * the rows are processed in parallel, as in {@link #transformRows(ArrayAccess,int,int,boolean,boolean,int)}.
+     *
+     * @param arrayAccess The memory array to split to rows and to convolute.
+     * @param source The transformed data to multiply with, of the same size as <code>arrayAccess</code>, or <code>null</code> if the elements should be squared instead.
+     * @param length Length of one transform (one row).
+     * @param count Number of rows.
+     * @param modulus Index of the modulus.
+     *
+     * @since 1.9.0
+     */
+
+    public void convoluteRows(ArrayAccess arrayAccess, ArrayAccess source, int length, int count, int modulus)
+        throws ApfloatRuntimeException;
+
     /**
      * Get the maximum transform length.
      *
@@ -0,0 +1,53 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * An <code>ApfloatImpl</code> that can be prepared in advance for being
+ * multiplied repeatedly by other <code>ApfloatImpl</code>s.<p>
+ *
+ * This is an optional extension of the {@link ApfloatImpl} interface.
+ * If an implementation does not implement this interface, a
+ * {@link org.apfloat.TransformedApfloat} simply performs normal
+ * multiplications.
+ *
+ * @see org.apfloat.TransformedApfloat
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface TransformableApfloatImpl
+    extends ApfloatImpl
+{
+    /**
+     * Prepares this object for being multiplied repeatedly by other
+     * <code>ApfloatImpl</code>s, for example by keeping the
+     * data in the transformed form.
+     *
+     * @param maxPrecision The maximum precision of the other numbers that will be multiplied by this <code>ApfloatImpl</code>, in digits.
+     *
+     * @return An operand that can be passed to {@link #multiply(ApfloatImpl,TransformedOperand)}, or <code>null</code> if the data can't be prepared.
+     */
+
+    public TransformedOperand createTransformedOperand(long maxPrecision)
+        throws ApfloatRuntimeException;
+
+    /**
+     * Multiply this object by an <code>ApfloatImpl</code>, using
+     * this object's data prepared in advance.<p>
+     *
+     * If the transformed operand can't be used for the multiplication,
+     * for example because the other number has too many digits, then
+     * the result is the same as calling {@link #multiply(ApfloatImpl)}.
+     *
+     * @param x The number to be multiplied by this <code>ApfloatImpl</code>.
+     * @param transformed This object's data, as returned by {@link #createTransformedOperand(long)}.
+     *
+     * @return <code>this * x</code>.
+     */
+
+    public ApfloatImpl multiply(ApfloatImpl x, TransformedOperand transformed)
+        throws ApfloatRuntimeException;
+}
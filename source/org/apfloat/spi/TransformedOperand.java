@@ -0,0 +1,55 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * A convolution operand that has been prepared in advance for
+ * being convolved repeatedly with different data sets. For example,
+ * when a transform-based convolution is used, the operand can be kept
+ * in the transformed form so that the forward transforms of the
+ * operand only need to be performed once.<p>
+ *
+ * The other data set of the convolution must not be longer than
+ * the maximum size specified when the operand was created.<p>
+ *
+ * Implementations of this interface must be thread-safe, so that
+ * the same operand can be used concurrently in multiple threads.
+ *
+ * @see TransformedOperandBuilder#createTransformedOperand(int,DataStorage,long)
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface TransformedOperand
+{
+    /**
+     * Convolutes a data set with this operand.
+     *
+     * @param x The other data set.
+     * @param resultSize Number of elements needed in the result data.
+     *
+     * @return The convolved data.
+     */
+
+    public DataStorage convolute(DataStorage x, long resultSize)
+        throws ApfloatRuntimeException;
+
+    /**
+     * Returns the size of the data of this operand.
+     *
+     * @return The number of elements in this operand.
+     */
+
+    public long getSize();
+
+    /**
+     * Returns the maximum size of the other data set
+     * that can be convolved with this operand.
+     *
+     * @return The maximum number of elements in the other data set.
+     */
+
+    public long getMaxSize();
+}
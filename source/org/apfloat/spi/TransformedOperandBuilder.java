@@ -0,0 +1,37 @@
+package org.apfloat.spi;
+
+import org.apfloat.ApfloatRuntimeException;
+
+/**
+ * Interface of a factory for creating convolution operands that are
+ * prepared in advance for being convolved repeatedly.<p>
+ *
+ * This is an optional interface that a {@link ConvolutionBuilder} can
+ * also implement. If the convolution builder does not implement it,
+ * each convolution is performed from the start.
+ *
+ * @see TransformedOperand
+ *
+ * @since 1.9.0
+ * @version 1.9.0
+ * @author Mikko Tommila
+ */
+
+public interface TransformedOperandBuilder
+{
+    /**
+     * Returns an operand that can be convolved repeatedly
+     * with other data sets without repeating the work that
+     * only depends on the operand itself, e.g. the forward
+     * transforms of the operand.
+     *
+     * @param radix The radix that will be used.
+     * @param y The data set to prepare.
+     * @param maxSize Maximum length of the other data sets that will be convolved with <code>y</code>.
+     *
+     * @return An object that can be used to perform the convolutions.
+     */
+
+    public TransformedOperand createTransformedOperand(int radix, DataStorage y, long maxSize)
+        throws ApfloatRuntimeException;
+}
@@ -5,7 +5,7 @@ import org.apfloat.Apfloat;
 /**
  * Miscellaneous utility methods.
  *
- * @version 1.6
+ * @version 1.9.0
  * @author Mikko Tommila
  */
 
@@ -257,6 +257,39 @@ public class Util
         return r;
     }
 
+    /**
+     * Round up to nearest power of two, or three, five or fifteen times a power of two.
+     * The power-of-two factor is limited to the specified maximum, except if
+     * <code>x</code> is greater than fifteen times the maximum.
+     *
+     * @param x The input value, which must be non-negative and not greater than 3 * 2<sup>61</sup>.
+     * @param maxPower2 The maximum power-of-two factor, which must be a power of two.
+     *
+     * @return <code>x</code> rounded up to the nearest power of two, or three, five or fifteen times a power of two.
+     *
+     * @since 1.9.0
+     */
+
+    public static long round235up(long x, long maxPower2)
+    {
+        assert (x >= 0);
+        assert (x <= 0x6000000000000000L);
+        assert (maxPower2 > 0 && maxPower2 == (maxPower2 & -maxPower2));
+
+        long r = 15 * round2up((x + 14) / 15);
+
+        for (int factor = 5; factor > 0; factor -= 2)
+        {
+            long power2 = round2up((x + factor - 1) / factor);
+            if (power2 <= maxPower2)
+            {
+                r = Math.min(r, factor * power2);
+            }
+        }
+
+        return r;
+    }
+
     /**
      * Square root rounded down to nearest power of two.
      *
@@ -38,6 +38,15 @@ are created through the {@link org.apfloat.spi.ApfloatBuilder} interface's
 methods. The rest of the interfaces in the SPI exist only for the convenience
 of the default apfloat SPI implementations ({@link org.apfloat.internal}).<p>
 
+Some features are defined in optional interfaces, that an implementation can
+implement in addition to the basic interface, for example
+{@link org.apfloat.spi.TransformableApfloatImpl},
+{@link org.apfloat.spi.TransformedOperandBuilder},
+{@link org.apfloat.spi.MiddleProductApfloatImpl} and
+{@link org.apfloat.spi.MiddleProductConvolutionStrategy}. If an implementation does
+not implement them, the operation is performed in a simpler way. This way
+existing implementations of the SPI interfaces don't need to be changed.<p>
+
 The apfloat SPI suggests the usage of various patterns, as encouraged by the
 specification of all the interfaces in the SPI. These patterns include:
 